@@ -25,7 +25,10 @@ import cc.cosmetica.api.cosmetic.UploadState;
 import cc.cosmetica.api.settings.CapeDisplay;
 import cc.cosmetica.api.settings.IconSettings;
 import cc.cosmetica.api.settings.UserSettings;
+import cc.cosmetica.impl.CosmeticCache;
 import cc.cosmetica.impl.CosmeticaWebAPI;
+import cc.cosmetica.impl.WriteCoalescerImpl;
+import cc.cosmetica.util.RequestScheduler;
 import com.google.gson.JsonObject;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -33,11 +36,17 @@ import org.jetbrains.annotations.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * A general interface with the Cosmetica Web API.
@@ -117,6 +126,23 @@ public interface CosmeticaAPI {
 	 */
 	ServerResponse<UserInfo> getUserInfo(@Nullable UUID uuid, @Nullable String username, boolean noThirdParty, boolean excludeModels, boolean forceShow) throws IllegalArgumentException;
 
+	/**
+	 * Retrieves user info with models excluded from the response, then fills in the hats, shoulder buddies, back bling
+	 * and cosmetica cape from a cache of cosmetics shared by all instances. Only cosmetics missing from the cache are
+	 * requested, and a cosmetic needed for several users at once is only requested once. Since popular cosmetics are
+	 * worn by many players, this sends far less data than {@link CosmeticaAPI#getUserInfo(UUID, String)}.
+	 * Blocks until all cosmetics have been retrieved.
+	 * @param uuid the uuid of the player to retrieve data of.
+	 * @param username the username of the player to retrieve data of.
+	 * @param noThirdParty whether the api should only send cosmetica capes, regardless of the user's cape server settings.
+	 * @param forceShow whether to ignore your cosmetic visibility settings when retrieving data for yourself. Only has an effect when getting your own user info.
+	 * @return a representation of the cosmetics data of the given player. Any cosmetic which could not be retrieved is left as sent without its model.
+	 * @throws IllegalArgumentException if both {@code uuid} and {@code username} are null.
+	 */
+	default ServerResponse<UserInfo> getUserInfoWithCachedModels(@Nullable UUID uuid, @Nullable String username, boolean noThirdParty, boolean forceShow) throws IllegalArgumentException {
+		return this.getUserInfo(uuid, username, noThirdParty, true, forceShow).map(info -> CosmeticCache.resolve(this, info));
+	}
+
 	/**
 	 * Retrieves the settings of the user associated with the token and some basic data.
 	 * @return the user's settings, as JSON.
@@ -307,6 +333,17 @@ public interface CosmeticaAPI {
 	 */
 	ServerResponse<Boolean> updateUserSettings(Map<String, Object> settings);
 
+	/**
+	 * Create a coalescer for this instance which debounces writes to the user's cosmetics and settings, only sending the
+	 * final state of each once no more writes have been made to it for the given delay.
+	 * @param delay how long to wait after the last write to each thing before sending it, in milliseconds.
+	 * @return the write coalescer.
+	 * @apiNote requires full authentication (a master token).
+	 */
+	default WriteCoalescer coalesceWrites(long delay) {
+		return new WriteCoalescerImpl(this, delay);
+	}
+
 	/**
 	 * Update the icon settings for this user. These affect how icons are shown to the user.
 	 * @param iconSettings the new values for the icon settings.
@@ -360,6 +397,110 @@ public interface CosmeticaAPI {
 	 */
 	ServerResponse<Boolean> updateExtraInfo(CosmeticType<?> type, String cosmeticId, int extraInfo);
 
+	//////////////////////////
+	//  Concurrent Helpers  //
+	//////////////////////////
+
+	/**
+	 * Run a request against this api on the {@linkplain CosmeticaAPI#getRequestExecutor() request executor}.
+	 * @param request the request to run, such as {@code api -> api.getUserInfo(uuid, null)}.
+	 * @param <T> the type of the result of the request.
+	 * @return a future completing with the result of the request.
+	 */
+	default <T> CompletableFuture<T> async(Function<CosmeticaAPI, T> request) {
+		RequestPriority priority = RequestScheduler.getPriorityHint();
+		if (priority == null) return CompletableFuture.supplyAsync(() -> request.apply(this), this.getRequestExecutor());
+		else return CompletableFuture.supplyAsync(() -> this.withPriority(priority, request), this.getRequestExecutor());
+	}
+
+	/**
+	 * Run requests against this api with the given priority in place of the default priority of each endpoint. When
+	 * more requests are waiting than can be sent at once, higher priority requests are sent first. Requests started with
+	 * {@link CosmeticaAPI#async(Function)} inside the given function keep the priority.<br>
+	 * By default, user info, user settings and single cosmetics are {@link RequestPriority#INTERACTIVE interactive},
+	 * pages of cosmetics and update polling are {@link RequestPriority#BULK bulk}, and everything else is {@link RequestPriority#NORMAL normal}.
+	 * @param priority the priority of the requests.
+	 * @param request the requests to run, such as {@code api -> api.getPopularCosmetics(page, 16)}.
+	 * @param <T> the type of the result.
+	 * @return the result of the requests.
+	 */
+	default <T> T withPriority(RequestPriority priority, Function<CosmeticaAPI, T> request) {
+		return RequestScheduler.withPriority(priority, () -> request.apply(this));
+	}
+
+	/**
+	 * Retrieves the user info of many users concurrently, on the {@linkplain CosmeticaAPI#getRequestExecutor() request executor}.
+	 * Blocks until all requests have finished.
+	 * @param uuids the uuids of the players to retrieve data of.
+	 * @param noThirdParty whether the api should only send cosmetica capes, regardless of the users' cape server settings.
+	 * @param excludeModels whether to exclude all models and textures from the responses.
+	 * @return a map of each uuid to the response for that user, in the iteration order of the given uuids.
+	 */
+	default Map<UUID, ServerResponse<UserInfo>> getUserInfos(Collection<UUID> uuids, boolean noThirdParty, boolean excludeModels) {
+		Map<UUID, CompletableFuture<ServerResponse<UserInfo>>> requests = new LinkedHashMap<>();
+
+		for (UUID uuid : uuids) {
+			requests.computeIfAbsent(uuid, id -> this.async(api -> api.getUserInfo(id, null, noThirdParty, excludeModels, false)));
+		}
+
+		Map<UUID, ServerResponse<UserInfo>> result = new LinkedHashMap<>();
+		requests.forEach((uuid, request) -> result.put(uuid, request.join()));
+		return result;
+	}
+
+	/**
+	 * Retrieves everything a cosmetics wardrobe screen needs concurrently, on the {@linkplain CosmeticaAPI#getRequestExecutor() request executor}:
+	 * the user's settings, the cosmetics they own, the panoramas they can select, and the pronouns and titles lore lists.
+	 * Blocks until all requests have finished. Unless {@linkplain CosmeticaAPI#withPriority(RequestPriority, Function) run with another priority},
+	 * the requests are {@link RequestPriority#INTERACTIVE interactive}, since a player is waiting on the screen.
+	 * @param uuid the uuid of the user, to retrieve the cosmetics they own.
+	 * @param username the username of the user, to retrieve the cosmetics they own.
+	 * @return the wardrobe, with a separate response for each part.
+	 * @throws IllegalArgumentException if both {@code uuid} and {@code username} are null.
+	 */
+	default Wardrobe loadWardrobe(@Nullable UUID uuid, @Nullable String username) throws IllegalArgumentException {
+		if (uuid == null && username == null) throw new IllegalArgumentException("Both uuid and username are null!");
+
+		// owned cosmetics would otherwise be bulk, and wait behind catalog crawls
+		RequestPriority priority = RequestScheduler.getPriorityHint();
+
+		return this.withPriority(priority == null ? RequestPriority.INTERACTIVE : priority, self -> {
+			CompletableFuture<ServerResponse<UserSettings>> settings = self.async(CosmeticaAPI::getUserSettings);
+			CompletableFuture<ServerResponse<List<OwnedCosmetic>>> ownedCosmetics = self.async(api -> api.getCosmeticsOwnedBy(uuid, username));
+			CompletableFuture<ServerResponse<List<Panorama>>> panoramas = self.async(CosmeticaAPI::getPanoramas);
+			CompletableFuture<ServerResponse<List<String>>> pronouns = self.async(api -> api.getLoreList(LoreType.PRONOUNS));
+			CompletableFuture<ServerResponse<List<String>>> titles = self.async(api -> api.getLoreList(LoreType.TITLES));
+
+			return new Wardrobe(settings.join(), ownedCosmetics.join(), panoramas.join(), pronouns.join(), titles.join());
+		});
+	}
+
+	/**
+	 * Gets many consecutive pages of cosmetics sorted by upload date concurrently, on the {@linkplain CosmeticaAPI#getRequestExecutor() request executor}.
+	 * Blocks until all requests have finished.
+	 * @param type the type of cosmetic to search for.
+	 * @param firstPage the first page number to browse.
+	 * @param pages the number of pages to retrieve.
+	 * @param pageSize how large each page should be. For example, the desktop website uses 16, and mobile uses 8.
+	 * @return the response for each page, in order. Pages past the last page will be empty.
+	 */
+	default <T extends Cosmetic> List<ServerResponse<CosmeticsPage<T>>> getRecentCosmeticsPages(CosmeticType<T> type, int firstPage, int pages, int pageSize) {
+		List<CompletableFuture<ServerResponse<CosmeticsPage<T>>>> requests = new ArrayList<>(pages);
+
+		for (int i = 0; i < pages; i++) {
+			final int page = firstPage + i;
+			requests.add(this.async(api -> api.getRecentCosmetics(type, page, pageSize)));
+		}
+
+		List<ServerResponse<CosmeticsPage<T>>> result = new ArrayList<>(pages);
+
+		for (CompletableFuture<ServerResponse<CosmeticsPage<T>>> request : requests) {
+			result.add(request.join());
+		}
+
+		return result;
+	}
+
 	///////////////////////////
 	//   Non-Web-API Methods //
 	///////////////////////////
@@ -372,16 +513,71 @@ public interface CosmeticaAPI {
 
 	/**
 	 * Pass a consumer to be invoked with the URL whenever a URL is contacted. This can be useful for debug logging purposes.
-	 * @param logger the logger to pass.
+	 * This is a {@link RequestListener#ofUrlLogger(Consumer) url logging listener} run alongside any set with {@link CosmeticaAPI#setRequestListener(RequestListener)}.
+	 * @param logger the logger to pass, or null to remove it.
 	 */
 	void setUrlLogger(@Nullable Consumer<String> logger);
 
+	/**
+	 * Set a listener to be told when each request to the api starts and completes, with its endpoint, timings and outcome.
+	 * When no listener or url logger is set, no events are created.
+	 * @param listener the listener, or null to remove it.
+	 */
+	void setRequestListener(@Nullable RequestListener listener);
+
+	/**
+	 * Gets the executor concurrent helpers such as {@link CosmeticaAPI#async(Function)} run requests on. Unless
+	 * {@linkplain CosmeticaAPI#setRequestExecutor(Executor) set}, this is an executor shared by all instances which,
+	 * on Java 21 and above, runs each request on its own virtual thread.
+	 * @return the request executor of this instance.
+	 */
+	Executor getRequestExecutor();
+
+	/**
+	 * Sets the executor concurrent helpers such as {@link CosmeticaAPI#async(Function)} run requests on.
+	 * @param executor the executor to use, or null to use the shared default executor.
+	 */
+	void setRequestExecutor(@Nullable Executor executor);
+
 	/**
 	 * Sets the request timeout for this API instance. Default is 20 seconds.
 	 * @param timeout the request timeout, in milliseconds.
 	 */
 	void setRequestTimeout(int timeout);
 
+	/**
+	 * Sets how long this instance caches the user info it retrieves by uuid for. Only one response is cached per user,
+	 * and it also serves requests which exclude models, or which only want cosmetica capes, where it can be projected
+	 * to them locally. Users listed by {@link CosmeticaAPI#everyThirtySecondsInAfricaHalfAMinutePasses(InetSocketAddress, long)}
+	 * are removed from the cache. Requests which force show are never cached. The settings of the user this instance is
+	 * authenticated as are cached too, and after this instance sets their cosmetics, lore or panorama, their cached user
+	 * info and settings are patched with the change where its effect is certain, or removed from the cache otherwise.
+	 * Default is 0, which disables the cache.
+	 * @param cacheTime how long to cache user info for, in milliseconds, or 0 to disable the cache. Changing it clears the cache.
+	 */
+	void setUserInfoCacheTime(long cacheTime);
+
+	/**
+	 * Sets how long after expiring user info {@linkplain CosmeticaAPI#setUserInfoCacheTime(long) cached} by this instance
+	 * may still be served in place of an error when the server cannot be reached or fails with a 5xx error. Such responses
+	 * are {@linkplain ServerResponse#isStale() marked stale} with the {@linkplain ServerResponse#getAge() age} of their
+	 * value. Errors the api intentionally responds with are never replaced. Default is 0, which never serves stale values.
+	 * @param maxStaleness how long after expiring to serve cached user info in place of errors, in milliseconds.
+	 */
+	void setMaxStaleness(long maxStaleness);
+
+	/**
+	 * Sets how long this instance remembers users with no cosmetica data at all for, answering further requests for their
+	 * user info by uuid without contacting the server. This is for servers where most players do not use cosmetica.
+	 * Users are remembered in a compact filter which takes a few megabytes regardless of how many there are, and which
+	 * mistakes around one in a hundred other users for them once it holds a million. Users listed by
+	 * {@link CosmeticaAPI#everyThirtySecondsInAfricaHalfAMinutePasses(InetSocketAddress, long)} are forgotten immediately.
+	 * Requests which force show are never answered from it. Default is 0, which disables it.
+	 * @param cacheTime how long to remember users for, in milliseconds, or 0 to disable it. Changing it forgets everyone.
+	 * @apiNote user info answered this way has no skin, as the skin is not remembered.
+	 */
+	void setNegativeUserInfoCacheTime(long cacheTime);
+
 	/**
 	 * Sets whether this instance of {@linkplain CosmeticaAPI} will require https for all connections.
 	 * When set, this instance will ignore the default value set in {@link CosmeticaAPI#setDefaultForceHttps(boolean)} and instead use the value given.
@@ -439,6 +635,43 @@ public interface CosmeticaAPI {
 		CosmeticaWebAPI.setDefaultForceHttps(forceHttps);
 	}
 
+	/**
+	 * Sets whether requests are sent over HTTP/2 where possible, letting concurrent requests to the same host share one
+	 * connection. This requires Java 11 or above. Otherwise, requests are sent over HTTP/1.1 through a connection pool.
+	 * This is off by default, and affects all instances of {@linkplain CosmeticaAPI}.
+	 * @param http2 whether to use HTTP/2.
+	 * @return whether HTTP/2 is now in use. Will be false if it was requested but is not supported on this java version.
+	 */
+	static boolean setUseHttp2(boolean http2) {
+		return CosmeticaWebAPI.setUseHttp2(http2);
+	}
+
+	/**
+	 * Sets whether to open connections to the api and auth hosts in the background as soon as they are retrieved from
+	 * cosmetica.cc, so the first requests made do not have to wait for DNS, TCP and TLS. This is off by default.
+	 * Must be set before the first instance is created to take effect.
+	 * @param warmUp whether to warm up connections once the api hosts are retrieved.
+	 */
+	static void setWarmUpConnections(boolean warmUp) {
+		CosmeticaWebAPI.setWarmUpOnDiscovery(warmUp);
+	}
+
+	/**
+	 * Retrieves the api hosts from cosmetica.cc if not already retrieved, then opens connections to the api and auth
+	 * hosts, all in the background. Failing to connect is ignored.
+	 * @return a future which completes once warming up is done, or completes exceptionally if the api hosts could not be retrieved.
+	 */
+	static CompletableFuture<Void> warmUpConnections() {
+		return CosmeticaWebAPI.warmUp();
+	}
+
+	/**
+	 * Remove all cosmetics from the cache shared by {@link CosmeticaAPI#getUserInfoWithCachedModels(UUID, String, boolean, boolean)}.
+	 */
+	static void clearCachedModels() {
+		CosmeticCache.clear();
+	}
+
 	/**
 	 * Create an instance with which to access the cosmetica web api via one token. Cannot accept a temporary token. To use a cosmetica temporary authentication token, see {@link CosmeticaAPI#fromTemporaryToken(String, UUID)}.
 	 * @param token a cosmetica token. Can be a master token, or a token.
@@ -545,6 +778,17 @@ public interface CosmeticaAPI {
 		CosmeticaWebAPI.setAPICache(apiCache);
 	}
 
+	/**
+	 * Sends requests through a {@link CosmeticaGateway} instead of to the api server directly, so processes on the same
+	 * host share its cache. Authentication still goes to the auth server. Must be called before any instance is created.
+	 * The gateway is reached over plain http, regardless of {@link #setDefaultForceHttps(boolean)}, so it should only be
+	 * reachable from the host or a private network.
+	 * @param gatewayUrl the url of the gateway, such as {@code http://127.0.0.1:8920}, or null to connect to the api server directly.
+	 */
+	static void setGateway(@Nullable String gatewayUrl) {
+		CosmeticaWebAPI.setGateway(gatewayUrl);
+	}
+
 	/**
 	 * Get the message retrieved once a {@link CosmeticaAPI} instance is retrieved from {@link CosmeticaAPI#fromToken}, {@link CosmeticaAPI#fromMinecraftToken(String, String, UUID)}, {@link CosmeticaAPI#fromTemporaryToken(String, UUID)}, {@link CosmeticaAPI#fromTokens}, or another method that forces initial API data to be fetched is called.
 	 */
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.api;
+
+import cc.cosmetica.impl.GatewayServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * A local gateway to the cosmetica api, for sharing one cache and one set of upstream connections between many
+ * processes on the same host, such as several game servers. It serves the same endpoints as the api, passing each
+ * request upstream, except that:
+ * <ul>
+ *     <li>Requests for public data, such as user info and cosmetics, are cached, and identical requests made at once are
+ *     sent upstream only once.</li>
+ *     <li>Users listed in the responses to the cosmetics update endpoint polled by game servers are removed from the cache.</li>
+ * </ul>
+ * Processes use the gateway by calling {@link CosmeticaAPI#setGateway(String)} before creating any api instance.
+ * Requests from processes to the gateway are plain http, so it should only listen on loopback or a private network.
+ * It can also be run as its own process with {@code java -cp <jar> cc.cosmetica.impl.GatewayServer <port> [cache seconds] [bind address]},
+ * which listens on loopback unless given another address.
+ */
+public interface CosmeticaGateway extends Closeable {
+	/**
+	 * @return the address the gateway is listening on.
+	 */
+	InetSocketAddress getAddress();
+
+	/**
+	 * @return the number of responses currently cached.
+	 */
+	int getCacheSize();
+
+	/**
+	 * Stop the gateway.
+	 */
+	@Override
+	void close();
+
+	/**
+	 * Start a gateway, discovering the api server to pass requests to if it has not been already.
+	 * @param address the address to listen on.
+	 * @param cacheTime how long to cache public responses for, in milliseconds.
+	 * @return the running gateway.
+	 * @throws IOException if the gateway could not listen on the address.
+	 * @throws IllegalStateException if the api server could not be discovered.
+	 */
+	static CosmeticaGateway start(InetSocketAddress address, long cacheTime) throws IOException, IllegalStateException {
+		return GatewayServer.start(address, cacheTime);
+	}
+
+	/**
+	 * Start a gateway passing requests to the given api server, rather than the discovered one.
+	 * @param address the address to listen on.
+	 * @param apiUrl the url of the api server.
+	 * @param cacheTime how long to cache public responses for, in milliseconds.
+	 * @return the running gateway.
+	 * @throws IOException if the gateway could not listen on the address.
+	 */
+	static CosmeticaGateway start(InetSocketAddress address, String apiUrl, long cacheTime) throws IOException {
+		return GatewayServer.start(address, apiUrl, cacheTime);
+	}
+}
@@ -23,12 +23,18 @@ import java.util.Objects;
  */
 public final class LoginInfo {
 	public LoginInfo(boolean isNewPlayer, boolean hasSpecialCape) {
+		this(isNewPlayer, hasSpecialCape, LoginTimings.NONE);
+	}
+
+	public LoginInfo(boolean isNewPlayer, boolean hasSpecialCape, LoginTimings timings) {
 		this.isNewPlayer = isNewPlayer;
 		this.hasSpecialCape = hasSpecialCape;
+		this.timings = timings;
 	}
 
 	private final boolean isNewPlayer;
 	private final boolean hasSpecialCape;
+	private final LoginTimings timings;
 
 	public boolean isNewPlayer() {
 		return isNewPlayer;
@@ -38,6 +44,13 @@ public final class LoginInfo {
 		return hasSpecialCape;
 	}
 
+	/**
+	 * @return how long each phase of logging in took. Not considered in {@link LoginInfo#equals(Object)}.
+	 */
+	public LoginTimings getTimings() {
+		return timings;
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (obj == this) return true;
@@ -56,7 +69,8 @@ public final class LoginInfo {
 	public String toString() {
 		return "LoginInfo[" +
 				"isNewPlayer=" + isNewPlayer + ", " +
-				"hasSpecialCape=" + hasSpecialCape + ']';
+				"hasSpecialCape=" + hasSpecialCape + ", " +
+				"timings=" + timings + ']';
 	}
 
 }
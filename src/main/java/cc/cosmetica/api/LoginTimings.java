@@ -0,0 +1,105 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cc.cosmetica.api;
+
+/**
+ * How long each phase of logging in took, in milliseconds. Phases which were not part of the login take 0ms.
+ */
+public final class LoginTimings {
+	public LoginTimings(long discovery, long keyFetch, boolean keyReady, long sessionJoin, long verify, long tokenExchange) {
+		this.discovery = discovery;
+		this.keyFetch = keyFetch;
+		this.keyReady = keyReady;
+		this.sessionJoin = sessionJoin;
+		this.verify = verify;
+		this.tokenExchange = tokenExchange;
+	}
+
+	private final long discovery;
+	private final long keyFetch;
+	private final boolean keyReady;
+	private final long sessionJoin;
+	private final long verify;
+	private final long tokenExchange;
+
+	/**
+	 * @return how long retrieving the api hosts from cosmetica.cc took. 0 if they were already retrieved.
+	 */
+	public long getDiscovery() {
+		return this.discovery;
+	}
+
+	/**
+	 * @return how long was spent waiting for the auth server's public key after discovery. The key is fetched
+	 * alongside discovery where possible, and cached between logins.
+	 */
+	public long getKeyFetch() {
+		return this.keyFetch;
+	}
+
+	/**
+	 * @return whether the auth server's public key was already available once discovery finished.
+	 */
+	public boolean wasKeyReady() {
+		return this.keyReady;
+	}
+
+	/**
+	 * @return how long joining the session on mojang's session server took.
+	 */
+	public long getSessionJoin() {
+		return this.sessionJoin;
+	}
+
+	/**
+	 * @return how long verifying the session with the auth server took.
+	 */
+	public long getVerify() {
+		return this.verify;
+	}
+
+	/**
+	 * @return how long exchanging the temporary token for api tokens took.
+	 */
+	public long getTokenExchange() {
+		return this.tokenExchange;
+	}
+
+	/**
+	 * @return how long logging in took in total.
+	 */
+	public long getTotal() {
+		return this.discovery + this.keyFetch + this.sessionJoin + this.verify + this.tokenExchange;
+	}
+
+	@Override
+	public String toString() {
+		return "LoginTimings[" +
+				"discovery=" + discovery + "ms, " +
+				"keyFetch=" + keyFetch + "ms, " +
+				"keyReady=" + keyReady + ", " +
+				"sessionJoin=" + sessionJoin + "ms, " +
+				"verify=" + verify + "ms, " +
+				"tokenExchange=" + tokenExchange + "ms]";
+	}
+
+	/**
+	 * Timings for a login where no phase was timed.
+	 */
+	public static final LoginTimings NONE = new LoginTimings(0, 0, false, 0, 0, 0);
+}
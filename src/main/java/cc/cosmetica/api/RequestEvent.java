@@ -0,0 +1,175 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cc.cosmetica.api;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * A request made to the api server, passed to a {@link RequestListener}. Instances are reused between requests made
+ * on the same thread, so must not be retained: copy out anything needed later.
+ */
+public final class RequestEvent {
+	private Endpoint endpoint;
+	private String method;
+	private String url;
+	private long requestNanos;
+	private long parseNanos;
+	private int statusCode;
+	@Nullable
+	private RuntimeException exception;
+	private boolean complete;
+
+	/**
+	 * Reset this event for a new request. Called by the api implementation.
+	 */
+	public RequestEvent start(Endpoint endpoint, String method, String url) {
+		this.endpoint = endpoint;
+		this.method = method;
+		this.url = url;
+		this.requestNanos = 0;
+		this.parseNanos = 0;
+		this.statusCode = -1;
+		this.exception = null;
+		this.complete = false;
+		return this;
+	}
+
+	/**
+	 * Record the outcome of the request. Called by the api implementation.
+	 */
+	public RequestEvent complete(long requestNanos, long parseNanos, int statusCode, @Nullable RuntimeException exception) {
+		this.requestNanos = requestNanos;
+		this.parseNanos = parseNanos;
+		this.statusCode = statusCode;
+		this.exception = exception;
+		this.complete = true;
+		return this;
+	}
+
+	/**
+	 * @return the endpoint requested.
+	 */
+	public Endpoint getEndpoint() {
+		return this.endpoint;
+	}
+
+	/**
+	 * @return the http method of the request, such as "GET" or "POST".
+	 */
+	public String getMethod() {
+		return this.method;
+	}
+
+	/**
+	 * @return the url requested. Will not include the token.
+	 */
+	public String getURL() {
+		return this.url;
+	}
+
+	/**
+	 * @return how long sending the request and receiving the full response took, in nanoseconds. 0 until complete.
+	 */
+	public long getRequestNanos() {
+		return this.requestNanos;
+	}
+
+	/**
+	 * @return how long parsing the response took, in nanoseconds. 0 until complete, or if no response was received.
+	 */
+	public long getParseNanos() {
+		return this.parseNanos;
+	}
+
+	/**
+	 * @return how long the request took in total, in nanoseconds. 0 until complete.
+	 */
+	public long getTotalNanos() {
+		return this.requestNanos + this.parseNanos;
+	}
+
+	/**
+	 * @return the http status code of the response, if one was received.
+	 */
+	public OptionalInt getStatusCode() {
+		return this.statusCode == -1 ? OptionalInt.empty() : OptionalInt.of(this.statusCode);
+	}
+
+	/**
+	 * @return whether the request has finished.
+	 */
+	public boolean isComplete() {
+		return this.complete;
+	}
+
+	/**
+	 * @return whether the request finished successfully.
+	 */
+	public boolean isSuccessful() {
+		return this.complete && this.exception == null;
+	}
+
+	/**
+	 * @return the error the request failed with, if it failed. This is the same exception the {@link ServerResponse} holds.
+	 */
+	public Optional<RuntimeException> getException() {
+		return Optional.ofNullable(this.exception);
+	}
+
+	@Override
+	public String toString() {
+		return "RequestEvent[" +
+				"endpoint=" + endpoint + ", " +
+				"method=" + method + ", " +
+				"url=" + url + ", " +
+				"requestNanos=" + requestNanos + ", " +
+				"parseNanos=" + parseNanos + ", " +
+				"statusCode=" + statusCode + ", " +
+				"exception=" + exception + ']';
+	}
+
+	/**
+	 * The endpoints of the api server.
+	 */
+	public enum Endpoint {
+		VERSION_CHECK,
+		USER_INFO,
+		USER_SETTINGS,
+		RECENT_COSMETICS,
+		POPULAR_COSMETICS,
+		OFFICIAL_COSMETICS,
+		PENDING_COSMETICS,
+		OWNED_COSMETICS,
+		LORE_LIST,
+		COSMETIC,
+		PANORAMAS,
+		UPDATES,
+		SET_COSMETIC,
+		SET_COSMETIC_STATUS,
+		UPDATE_EXTRA_INFO,
+		SET_LORE,
+		SET_PANORAMA,
+		SET_CAPE_SERVER_SETTINGS,
+		UPDATE_USER_SETTINGS,
+		UPLOAD_CAPE,
+		UPLOAD_MODEL
+	}
+}
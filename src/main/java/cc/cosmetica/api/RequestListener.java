@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cc.cosmetica.api;
+
+import java.util.function.Consumer;
+
+/**
+ * Listens to requests made by a {@link CosmeticaAPI} instance to the api server. Events are only created when a
+ * listener is set, so an instance without one pays nothing for this.<br>
+ * Listeners may be called from any thread making requests, and should return quickly.
+ */
+public interface RequestListener {
+	/**
+	 * Called before a request is sent.
+	 * @param event the request. Only the endpoint, method and url are set. The instance is reused, so must not be retained.
+	 */
+	default void onStart(RequestEvent event) {
+	}
+
+	/**
+	 * Called once a request has finished, whether it succeeded or failed.
+	 * @param event the request. The instance is reused, so must not be retained.
+	 */
+	default void onComplete(RequestEvent event) {
+	}
+
+	/**
+	 * Create a listener which passes the url of each request to the given logger as it starts, as
+	 * {@link CosmeticaAPI#setUrlLogger(Consumer)} does.
+	 * @param urlLogger the logger to pass each url to. POST requests have " (POST)" appended.
+	 * @return the listener.
+	 */
+	static RequestListener ofUrlLogger(Consumer<String> urlLogger) {
+		return new RequestListener() {
+			@Override
+			public void onStart(RequestEvent event) {
+				urlLogger.accept("POST".equals(event.getMethod()) ? event.getURL() + " (POST)" : event.getURL());
+			}
+		};
+	}
+
+	/**
+	 * Create a listener which passes each event to both given listeners, in order.
+	 * @param first the first listener.
+	 * @param second the second listener.
+	 * @return the combined listener.
+	 */
+	static RequestListener both(RequestListener first, RequestListener second) {
+		return new RequestListener() {
+			@Override
+			public void onStart(RequestEvent event) {
+				first.onStart(event);
+				second.onStart(event);
+			}
+
+			@Override
+			public void onComplete(RequestEvent event) {
+				first.onComplete(event);
+				second.onComplete(event);
+			}
+		};
+	}
+}
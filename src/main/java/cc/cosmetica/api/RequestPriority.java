@@ -0,0 +1,51 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.api;
+
+/**
+ * How urgently a request to the api is needed. When more requests are waiting than can be sent at once, each priority
+ * is given a share of the connections freed proportional to its weight, so bulk traffic never starves, but never
+ * holds up interactive requests for long either.
+ * @see CosmeticaAPI#withPriority(RequestPriority, java.util.function.Function)
+ */
+public enum RequestPriority {
+	/**
+	 * Requests a player is waiting on, such as the user info of a player who just came into view. Weight 8.
+	 */
+	INTERACTIVE(8),
+	/**
+	 * Requests with no particular urgency. The default for most endpoints. Weight 3.
+	 */
+	NORMAL(3),
+	/**
+	 * Background work such as crawling the catalog or polling for updates. Weight 1.
+	 */
+	BULK(1);
+
+	RequestPriority(int weight) {
+		this.weight = weight;
+	}
+
+	private final int weight;
+
+	/**
+	 * @return the share of freed connections this priority is given relative to the others while requests are queued.
+	 */
+	public int getWeight() {
+		return this.weight;
+	}
+}
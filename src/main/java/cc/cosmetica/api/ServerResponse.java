@@ -35,10 +35,21 @@ import java.util.function.UnaryOperator;
  */
 public class ServerResponse<T> {
 	public ServerResponse(T t, SafeURL url) throws IllegalArgumentException {
+		this(t, url, 0, false);
+	}
+
+	/**
+	 * Create a response of a value retrieved from the server some time ago, such as from a cache.
+	 * @param age how long ago the value was retrieved, in milliseconds.
+	 * @param stale whether the value is being served in place of an error, having expired.
+	 */
+	public ServerResponse(T t, SafeURL url, long age, boolean stale) throws IllegalArgumentException {
 		if (t == null) throw new IllegalArgumentException("Object t cannot be null.");
 		this.value = t;
 		this.exception = null;
 		this.url = url;
+		this.age = age;
+		this.stale = stale;
 	}
 
 	public ServerResponse(RuntimeException e, SafeURL url) throws IllegalArgumentException {
@@ -46,6 +57,8 @@ public class ServerResponse<T> {
 		this.value = null;
 		this.exception = e;
 		this.url = url;
+		this.age = 0;
+		this.stale = false;
 	}
 
 	public ServerResponse(IOException ie, SafeURL url) throws IllegalArgumentException {
@@ -53,6 +66,8 @@ public class ServerResponse<T> {
 		this.value = null;
 		this.exception = new UncheckedIOException(ie);
 		this.url = url;
+		this.age = 0;
+		this.stale = false;
 	}
 
 	@Nullable
@@ -60,6 +75,8 @@ public class ServerResponse<T> {
 	@Nullable
 	private final RuntimeException exception;
 	private final SafeURL url;
+	private final long age;
+	private final boolean stale;
 
 	/**
 	 * @return the url that was contacted to receive this response. Will not include the token.
@@ -68,6 +85,22 @@ public class ServerResponse<T> {
 		return this.url.safeUrl();
 	}
 
+	/**
+	 * @return how long ago the value was retrieved from the server, in milliseconds. This is 0 unless it was served from a cache.
+	 */
+	public long getAge() {
+		return this.age;
+	}
+
+	/**
+	 * Whether the value is stale. Stale values have expired from a cache, but were served in its place as the server
+	 * could not be reached or failed. Use {@link ServerResponse#getAge()} to see how old it is.
+	 * @return whether the value is stale.
+	 */
+	public boolean isStale() {
+		return this.stale;
+	}
+
 	/**
 	 * Tries to get the value stored. If that value is an exception, it will be thrown.
 	 * @throws RuntimeException if the object stores an exception. The exception thrown is the exact same as the one stored.
@@ -119,7 +152,7 @@ public class ServerResponse<T> {
 	 * @return a new server response with the mapped value, if this contains a value. Otherwise, returns this.
 	 */
 	public ServerResponse<T> map(UnaryOperator<T> mappingFunction) {
-		return this.value == null ? this : new ServerResponse<T>(mappingFunction.apply(this.value), this.url);
+		return this.value == null ? this : new ServerResponse<T>(mappingFunction.apply(this.value), this.url, this.age, this.stale);
 	}
 
 	/**
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.api;
+
+import cc.cosmetica.api.cosmetic.OwnedCosmetic;
+import cc.cosmetica.api.settings.UserSettings;
+
+import java.util.List;
+
+/**
+ * Everything a cosmetics wardrobe screen needs, as retrieved by {@link CosmeticaAPI#loadWardrobe(java.util.UUID, String)}.
+ * Each part has its own response, so one failing does not prevent the others being used.
+ */
+public final class Wardrobe {
+	public Wardrobe(ServerResponse<UserSettings> settings, ServerResponse<List<OwnedCosmetic>> ownedCosmetics, ServerResponse<List<Panorama>> panoramas,
+					ServerResponse<List<String>> pronouns, ServerResponse<List<String>> titles) {
+		this.settings = settings;
+		this.ownedCosmetics = ownedCosmetics;
+		this.panoramas = panoramas;
+		this.pronouns = pronouns;
+		this.titles = titles;
+	}
+
+	private final ServerResponse<UserSettings> settings;
+	private final ServerResponse<List<OwnedCosmetic>> ownedCosmetics;
+	private final ServerResponse<List<Panorama>> panoramas;
+	private final ServerResponse<List<String>> pronouns;
+	private final ServerResponse<List<String>> titles;
+
+	/**
+	 * @return the settings of the user, as from {@link CosmeticaAPI#getUserSettings()}.
+	 */
+	public ServerResponse<UserSettings> getSettings() {
+		return this.settings;
+	}
+
+	/**
+	 * @return the cosmetics owned by the user, as from {@link CosmeticaAPI#getCosmeticsOwnedBy(java.util.UUID, String)}.
+	 */
+	public ServerResponse<List<OwnedCosmetic>> getOwnedCosmetics() {
+		return this.ownedCosmetics;
+	}
+
+	/**
+	 * @return the panoramas the user can select from, as from {@link CosmeticaAPI#getPanoramas()}.
+	 */
+	public ServerResponse<List<Panorama>> getPanoramas() {
+		return this.panoramas;
+	}
+
+	/**
+	 * @return the pronouns the user can set as their lore, as from {@link CosmeticaAPI#getLoreList(cc.cosmetica.api.cosmetic.LoreType)}.
+	 */
+	public ServerResponse<List<String>> getPronouns() {
+		return this.pronouns;
+	}
+
+	/**
+	 * @return the titles the user can set as their lore, as from {@link CosmeticaAPI#getLoreList(cc.cosmetica.api.cosmetic.LoreType)}.
+	 */
+	public ServerResponse<List<String>> getTitles() {
+		return this.titles;
+	}
+
+	/**
+	 * @return whether every part of the wardrobe was retrieved successfully.
+	 */
+	public boolean isComplete() {
+		return this.settings.isSuccessful() && this.ownedCosmetics.isSuccessful() && this.panoramas.isSuccessful()
+				&& this.pronouns.isSuccessful() && this.titles.isSuccessful();
+	}
+
+	@Override
+	public String toString() {
+		return "Wardrobe[" +
+				"settings=" + settings + ", " +
+				"ownedCosmetics=" + ownedCosmetics + ", " +
+				"panoramas=" + panoramas + ", " +
+				"pronouns=" + pronouns + ", " +
+				"titles=" + titles + ']';
+	}
+}
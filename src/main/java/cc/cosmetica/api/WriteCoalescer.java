@@ -0,0 +1,74 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.api;
+
+import cc.cosmetica.api.settings.CapeDisplay;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Coalesces rapid writes to a user's cosmetics and settings, such as while they scroll through options in a menu. Each
+ * write waits for a short debounce delay, and writes made to the same thing meanwhile replace it, so only the final state
+ * is sent. Create one with {@link CosmeticaAPI#coalesceWrites(long)}.
+ * @apiNote requires full authentication (a master token).
+ */
+public interface WriteCoalescer {
+	/**
+	 * Set the cosmetic at the given position, replacing any cosmetic waiting to be set at that position.
+	 * @param position the position of the cosmetic to set.
+	 * @param id the id of the cosmetic. Set the id to "none" to remove a cosmetic.
+	 * @return the response of the request which set the final cosmetic at that position. Replaced writes receive it too.
+	 * @see CosmeticaAPI#setCosmetic(CosmeticPosition, String)
+	 */
+	default CompletableFuture<ServerResponse<Boolean>> setCosmetic(CosmeticPosition position, String id) {
+		return this.setCosmetic(position, id, false);
+	}
+
+	/**
+	 * Set the cosmetic at the given position, replacing any cosmetic waiting to be set at that position.
+	 * @param position the position of the cosmetic to set.
+	 * @param id the id of the cosmetic. Set the id to "none" to remove a cosmetic.
+	 * @param requireOfficial whether to only allow official capes.
+	 * @return the response of the request which set the final cosmetic at that position. Replaced writes receive it too.
+	 * @see CosmeticaAPI#setCosmetic(CosmeticPosition, String, boolean)
+	 */
+	CompletableFuture<ServerResponse<Boolean>> setCosmetic(CosmeticPosition position, String id, boolean requireOfficial);
+
+	/**
+	 * Update the specified settings. Settings waiting to be updated are merged with these, the latest value of each
+	 * setting winning, and sent in a single request.
+	 * @param settings a map of the settings to change.
+	 * @return the response of the request which updated these settings.
+	 * @see CosmeticaAPI#updateUserSettings(Map)
+	 */
+	CompletableFuture<ServerResponse<Boolean>> updateUserSettings(Map<String, Object> settings);
+
+	/**
+	 * Set how cosmetica should handle each cape service. Cape servers waiting to be set are merged with these, the latest
+	 * value for each cape server winning, and sent in a single request. As with {@link CosmeticaAPI#setCapeServerSettings(Map)},
+	 * cape servers not in the merged settings are reset to their defaults.
+	 * @param settings the settings to set as the settings.
+	 * @return the response of the request which set these settings.
+	 */
+	CompletableFuture<ServerResponse<Map<String, CapeDisplay>>> setCapeServerSettings(Map<String, CapeDisplay> settings);
+
+	/**
+	 * Send every waiting write now, such as when the menu making them is closed.
+	 */
+	void flush();
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.api.cape;
+
+import cc.cosmetica.api.settings.CapeServer;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * A cape service which can be asked for the cape of a player, such as OptiFine or MinecraftCapes. Implementations are
+ * given to a {@link CapeResolver}, which calls them concurrently, so they must be thread safe. Calls may block.
+ */
+public interface CapeProvider {
+	/**
+	 * @return the id of the cape server this provides capes from, as the key of its {@link CapeServer} in a user's
+	 * {@linkplain cc.cosmetica.api.settings.UserSettings#getCapeServerSettings() cape server settings}.
+	 */
+	String getId();
+
+	/**
+	 * Retrieve the cape of a player from this service.
+	 * @param uuid the uuid of the player.
+	 * @param username the username of the player.
+	 * @return the image of the cape in base64 format, as with {@link cc.cosmetica.api.cosmetic.Cape#getImage()}, or
+	 * empty if the player has no cape on this service.
+	 * @throws IOException if the service could not be reached.
+	 */
+	Optional<String> getCape(UUID uuid, String username) throws IOException;
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.api.cape;
+
+import cc.cosmetica.api.settings.CapeDisplay;
+import cc.cosmetica.api.settings.CapeServer;
+import cc.cosmetica.impl.CapeResolverImpl;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Resolves which third party cape to show for a player from their {@linkplain CapeServer cape server settings}. Every
+ * cape server set to {@link CapeDisplay#SHOW} with a registered {@link CapeProvider} is asked at once, and the cape
+ * from the one earliest in {@linkplain CapeServer#getCheckOrder() check order} which has one is shown. The result is
+ * known as soon as that provider and every provider before it have answered, without waiting for later ones. Cape
+ * servers set to {@link CapeDisplay#REPLACE} or {@link CapeDisplay#HIDE} are not asked, as cosmetica replaces or hides
+ * their capes itself. Answers are cached per provider and player; failures are not cached, and count as no cape.
+ */
+public interface CapeResolver {
+	/**
+	 * Resolve the third party cape of a player.
+	 * @param uuid the uuid of the player.
+	 * @param username the username of the player.
+	 * @param capeServerSettings the cape server settings of the player, by cape server id.
+	 * @return a future which completes with the cape to show, or empty if no provider has one.
+	 */
+	CompletableFuture<Optional<ResolvedCape>> resolve(UUID uuid, String username, Map<String, CapeServer> capeServerSettings);
+
+	/**
+	 * Remove the cached answers of every provider for a player, such as after they appear in a cosmetics update.
+	 * @param uuid the uuid of the player.
+	 */
+	void invalidate(UUID uuid);
+
+	/**
+	 * Create a cape resolver.
+	 * @param providers the providers to ask for capes. Cape servers without a provider are skipped.
+	 * @param executor the executor to call providers on.
+	 * @param cacheTime how long to cache the answer of each provider for, in milliseconds.
+	 * @return the cape resolver.
+	 */
+	static CapeResolver create(Collection<? extends CapeProvider> providers, Executor executor, long cacheTime) {
+		return new CapeResolverImpl(providers, executor, cacheTime);
+	}
+}
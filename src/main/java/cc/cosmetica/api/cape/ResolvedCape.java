@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.api.cape;
+
+import java.util.Objects;
+
+/**
+ * A cape resolved from a {@link CapeProvider}.
+ */
+public final class ResolvedCape {
+	public ResolvedCape(String provider, String image) {
+		this.provider = provider;
+		this.image = image;
+	}
+
+	private final String provider;
+	private final String image;
+
+	/**
+	 * @return the {@linkplain CapeProvider#getId() id} of the provider the cape is from.
+	 */
+	public String getProvider() {
+		return this.provider;
+	}
+
+	/**
+	 * @return the image of the cape, in base64 format.
+	 */
+	public String getImage() {
+		return this.image;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) return true;
+		if (obj == null || obj.getClass() != this.getClass()) return false;
+		ResolvedCape that = (ResolvedCape) obj;
+		return Objects.equals(this.provider, that.provider) &&
+				Objects.equals(this.image, that.image);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(provider, image);
+	}
+
+	@Override
+	public String toString() {
+		return "ResolvedCape[" +
+				"provider=" + provider + ']';
+	}
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cc.cosmetica.api.catalog;
+
+import cc.cosmetica.api.CosmeticaAPI;
+import cc.cosmetica.api.CosmeticsPage;
+import cc.cosmetica.api.ServerResponse;
+import cc.cosmetica.api.cosmetic.Cosmetic;
+import cc.cosmetica.api.cosmetic.CosmeticType;
+import cc.cosmetica.impl.cosmetic.AbstractCosmetic;
+import cc.cosmetica.util.SafeURL;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+
+/**
+ * A local, in-memory index of the cosmetics catalog for searching without contacting the server. Cosmetics are indexed
+ * by the words in their name, origin, and owner's username, and searched by word prefix.<br>
+ * Populate it by streaming pages from the api with {@link CatalogIndex#loadRecent(CosmeticaAPI, CosmeticType, int)},
+ * {@link CatalogIndex#loadPopular(CosmeticaAPI, int)} and {@link CatalogIndex#loadOfficial(CosmeticaAPI, int)}. Each
+ * page is searchable as soon as it arrives. This class is thread safe, so it can be populated in the background.<br>
+ * To keep the index small, cosmetics are stored {@linkplain AbstractCosmetic#stripHeavyFields(Cosmetic) without} their
+ * model, texture or image. Use {@link CatalogIndex#fetch(CosmeticaAPI, Cosmetic)} to get a result in full.
+ */
+public final class CatalogIndex {
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	// guarded by lock
+	private final Map<String, Cosmetic> cosmetics = new HashMap<>();
+	private final TreeMap<String, Set<String>> words = new TreeMap<>();
+	private final Map<CosmeticType<?>, Long> newestUploads = new HashMap<>();
+
+	/**
+	 * Add a cosmetic to the index, replacing any cosmetic with the same type and id. Its heavy fields are not kept.
+	 * @param cosmetic the cosmetic to add.
+	 */
+	public void add(Cosmetic cosmetic) {
+		this.lock.writeLock().lock();
+
+		try {
+			this.addUnlocked(cosmetic);
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Add many cosmetics to the index, replacing any cosmetics with the same type and id.
+	 * @param cosmetics the cosmetics to add.
+	 */
+	public void addAll(Collection<? extends Cosmetic> cosmetics) {
+		this.lock.writeLock().lock();
+
+		try {
+			for (Cosmetic cosmetic : cosmetics) {
+				this.addUnlocked(cosmetic);
+			}
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove a cosmetic from the index.
+	 * @param type the type of the cosmetic.
+	 * @param id the id of the cosmetic.
+	 * @return whether the cosmetic was in the index.
+	 */
+	public boolean remove(CosmeticType<?> type, String id) {
+		this.lock.writeLock().lock();
+
+		try {
+			return this.removeUnlocked(key(type, id)) != null;
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the number of cosmetics in the index.
+	 */
+	public int size() {
+		this.lock.readLock().lock();
+
+		try {
+			return this.cosmetics.size();
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return every cosmetic in the index, most recently uploaded first.
+	 */
+	public List<Cosmetic> getAll() {
+		return this.search("", Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Search the index for cosmetics of any type.
+	 * @param query the search query. Each word in the query must be the start of a word in the cosmetic's name, origin or owner's username.
+	 *              Case-insensitive. If blank, matches every cosmetic.
+	 * @param limit the maximum number of results.
+	 * @return the matching cosmetics, most recently uploaded first.
+	 */
+	public List<Cosmetic> search(String query, int limit) {
+		return this.search(null, query, limit);
+	}
+
+	/**
+	 * Search the index for cosmetics of the given type.
+	 * @param type the type of cosmetic to search for.
+	 * @param query the search query. Each word in the query must be the start of a word in the cosmetic's name, origin or owner's username.
+	 *              Case-insensitive. If blank, matches every cosmetic of the type.
+	 * @param limit the maximum number of results.
+	 * @param <T> the type of cosmetic.
+	 * @return the matching cosmetics, most recently uploaded first.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends Cosmetic> List<T> search(CosmeticType<T> type, String query, int limit) {
+		List<String> queryWords = tokenise(query);
+		List<Cosmetic> results = new ArrayList<>();
+
+		this.lock.readLock().lock();
+
+		try {
+			Collection<String> matches;
+
+			if (queryWords.isEmpty()) {
+				matches = this.cosmetics.keySet();
+			}
+			else {
+				Set<String> intersection = null;
+
+				for (String word : queryWords) {
+					Set<String> wordMatches = new HashSet<>();
+
+					for (Set<String> keys : this.withPrefix(word).values()) {
+						if (intersection == null) {
+							wordMatches.addAll(keys);
+						}
+						else {
+							for (String key : keys) {
+								if (intersection.contains(key)) wordMatches.add(key);
+							}
+						}
+					}
+
+					intersection = wordMatches;
+					if (intersection.isEmpty()) break;
+				}
+
+				matches = intersection;
+			}
+
+			for (String key : matches) {
+				Cosmetic cosmetic = this.cosmetics.get(key);
+				if (type == null || cosmetic.getType() == type) results.add(cosmetic);
+			}
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+
+		results.sort(NEWEST_FIRST);
+		return (List<T>) (results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results);
+	}
+
+	/**
+	 * Fetch the full data of a cosmetic from this index, including the model, texture or image which are not kept here.
+	 * @param api the api instance to request the cosmetic with.
+	 * @param cosmetic the cosmetic, such as a search result.
+	 * @return the cosmetic in full.
+	 */
+	public ServerResponse<? extends Cosmetic> fetch(CosmeticaAPI api, Cosmetic cosmetic) {
+		return api.getCosmetic(cosmetic.getType(), cosmetic.getId());
+	}
+
+	/**
+	 * Load the most recently uploaded cosmetics of the given type into the index, page by page. Once loaded, later
+	 * calls only fetch pages until they reach a cosmetic uploaded before the newest one loaded by a previous call which
+	 * succeeded, or from a snapshot, so can be used to refresh the index. Cosmetics loaded or added any other way do not
+	 * affect where it stops.
+	 * @param api the api instance to request pages with.
+	 * @param type the type of cosmetic to load.
+	 * @param pageSize the number of cosmetics to request per page.
+	 * @return the number of cosmetics loaded if successful. Otherwise, the error of the page which failed to load.
+	 */
+	public ServerResponse<Integer> loadRecent(CosmeticaAPI api, CosmeticType<?> type, int pageSize) {
+		final long newestUpload;
+
+		this.lock.readLock().lock();
+
+		try {
+			newestUpload = this.newestUploads.getOrDefault(type, Long.MIN_VALUE);
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+
+		return this.load(page -> api.getRecentCosmetics(type, page, pageSize), newestUpload, type);
+	}
+
+	/**
+	 * Load the recent cosmetics of every type into the index, as in {@link CatalogIndex#loadRecent(CosmeticaAPI, CosmeticType, int)}.
+	 * @param api the api instance to request pages with.
+	 * @param pageSize the number of cosmetics to request per page.
+	 * @return the number of cosmetics loaded if successful. Otherwise, the error of the first page which failed to load.
+	 */
+	public ServerResponse<Integer> loadAllRecent(CosmeticaAPI api, int pageSize) {
+		ServerResponse<Integer> result = null;
+		int loaded = 0;
+
+		for (CosmeticType<?> type : new CosmeticType<?>[] {CosmeticType.CAPE, CosmeticType.HAT, CosmeticType.SHOULDER_BUDDY, CosmeticType.BACK_BLING}) {
+			result = this.loadRecent(api, type, pageSize);
+			if (!result.isSuccessful()) return result;
+			loaded += result.get();
+		}
+
+		return new ServerResponse<>(loaded, SafeURL.direct(result.getURL()));
+	}
+
+	/**
+	 * Load every page of popular cosmetics into the index. These are not in upload order, so every page is fetched each time.
+	 * @param api the api instance to request pages with.
+	 * @param pageSize the number of cosmetics to request per page.
+	 * @return the number of cosmetics loaded if successful. Otherwise, the error of the page which failed to load.
+	 */
+	public ServerResponse<Integer> loadPopular(CosmeticaAPI api, int pageSize) {
+		return this.load(page -> api.getPopularCosmetics(page, pageSize), Long.MIN_VALUE, null);
+	}
+
+	/**
+	 * Load every page of official cosmetics into the index. These are not in upload order, so every page is fetched each time.
+	 * @param api the api instance to request pages with.
+	 * @param pageSize the number of cosmetics to request per page.
+	 * @return the number of cosmetics loaded if successful. Otherwise, the error of the page which failed to load.
+	 */
+	public ServerResponse<Integer> loadOfficial(CosmeticaAPI api, int pageSize) {
+		return this.load(page -> api.getOfficialCosmetics(page, pageSize), Long.MIN_VALUE, null);
+	}
+
+	/**
+	 * Write every cosmetic in this index to a {@linkplain CatalogSnapshot snapshot} file. As in the index, their heavy
+	 * fields are left out.
+	 * @param file the file to write to. Will be replaced if it exists.
+	 * @return the number of cosmetics written.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public int saveSnapshot(Path file) throws IOException {
+		return CatalogSnapshot.write(file, this.getAll());
+	}
+
+	/**
+	 * Add every cosmetic in a {@linkplain CatalogSnapshot snapshot} file to this index. A later
+	 * {@link CatalogIndex#loadRecent(CosmeticaAPI, CosmeticType, int)} will only fetch cosmetics uploaded since.
+	 * @param file the file to read.
+	 * @return the number of cosmetics read.
+	 * @throws IOException if an I/O error occurs, or the file is not a valid snapshot.
+	 */
+	public int loadSnapshot(Path file) throws IOException {
+		List<Cosmetic> cosmetics = CatalogSnapshot.read(file);
+		this.lock.writeLock().lock();
+
+		try {
+			for (Cosmetic cosmetic : cosmetics) {
+				this.addUnlocked(cosmetic);
+				this.newestUploads.merge(cosmetic.getType(), cosmetic.getUploadTime(), Math::max);
+			}
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+
+		return cosmetics.size();
+	}
+
+	/**
+	 * Load pages until reaching a cosmetic uploaded at or before the given time, or the last page.
+	 * @param recentType the type of cosmetic, if the pages are of recent cosmetics. Only these, once all loaded, advance
+	 *                   where later calls to {@link CatalogIndex#loadRecent(CosmeticaAPI, CosmeticType, int)} stop, since
+	 *                   other pages are not in upload order, and a partial load may have missed older cosmetics.
+	 */
+	private ServerResponse<Integer> load(IntFunction<? extends ServerResponse<? extends CosmeticsPage<?>>> pages, long stopAtUpload, @Nullable CosmeticType<?> recentType) {
+		int loaded = 0;
+		int pageNumber = 1;
+		long newestUpload = Long.MIN_VALUE;
+
+		while (true) {
+			ServerResponse<? extends CosmeticsPage<?>> response = pages.apply(pageNumber++);
+
+			if (!response.isSuccessful()) {
+				return new ServerResponse<>((RuntimeException) response.getException(), SafeURL.direct(response.getURL()));
+			}
+
+			CosmeticsPage<?> page = response.get();
+			boolean reachedLoaded = false;
+
+			for (Cosmetic cosmetic : page.getCosmetics()) {
+				if (cosmetic.getUploadTime() <= stopAtUpload) reachedLoaded = true;
+				newestUpload = Math.max(newestUpload, cosmetic.getUploadTime());
+			}
+
+			this.addAll(page.getCosmetics());
+			loaded += page.getCosmetics().size();
+
+			if (reachedLoaded || !page.hasNextPage() || page.getCosmetics().isEmpty()) {
+				if (recentType != null && newestUpload != Long.MIN_VALUE) {
+					this.lock.writeLock().lock();
+
+					try {
+						this.newestUploads.merge(recentType, newestUpload, Math::max);
+					}
+					finally {
+						this.lock.writeLock().unlock();
+					}
+				}
+
+				return new ServerResponse<>(loaded, SafeURL.direct(response.getURL()));
+			}
+		}
+	}
+
+	private void addUnlocked(Cosmetic cosmetic) {
+		String key = key(cosmetic.getType(), cosmetic.getId());
+		this.removeUnlocked(key);
+		this.cosmetics.put(key, AbstractCosmetic.stripHeavyFields(cosmetic));
+
+		for (String word : indexedWords(cosmetic)) {
+			this.words.computeIfAbsent(word, w -> new HashSet<>()).add(key);
+		}
+	}
+
+	private Cosmetic removeUnlocked(String key) {
+		Cosmetic removed = this.cosmetics.remove(key);
+
+		if (removed != null) {
+			for (String word : indexedWords(removed)) {
+				Set<String> keys = this.words.get(word);
+
+				if (keys != null && keys.remove(key) && keys.isEmpty()) {
+					this.words.remove(word);
+				}
+			}
+		}
+
+		return removed;
+	}
+
+	private SortedMap<String, Set<String>> withPrefix(String prefix) {
+		return this.words.subMap(prefix, prefix + Character.MAX_VALUE);
+	}
+
+	private static Set<String> indexedWords(Cosmetic cosmetic) {
+		Set<String> result = new HashSet<>(tokenise(cosmetic.getName()));
+		result.addAll(tokenise(cosmetic.getOrigin()));
+		cosmetic.getOwner().ifPresent(owner -> result.addAll(tokenise(owner.getUsername())));
+		return result;
+	}
+
+	private static List<String> tokenise(String text) {
+		if (text == null || text.isEmpty()) return Collections.emptyList();
+
+		List<String> result = new ArrayList<>();
+		int start = -1;
+
+		for (int i = 0; i <= text.length(); i++) {
+			boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+
+			if (wordChar && start == -1) {
+				start = i;
+			}
+			else if (!wordChar && start != -1) {
+				result.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+				start = -1;
+			}
+		}
+
+		return result;
+	}
+
+	private static String key(CosmeticType<?> type, String id) {
+		return type.getUrlString() + ':' + id;
+	}
+
+	private static final Comparator<Cosmetic> NEWEST_FIRST = Comparator.comparingLong(Cosmetic::getUploadTime).reversed();
+}
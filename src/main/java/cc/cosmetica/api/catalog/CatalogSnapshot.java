@@ -0,0 +1,324 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cc.cosmetica.api.catalog;
+
+import cc.cosmetica.api.User;
+import cc.cosmetica.api.cosmetic.BoundingBox;
+import cc.cosmetica.api.cosmetic.Cape;
+import cc.cosmetica.api.cosmetic.Cosmetic;
+import cc.cosmetica.api.cosmetic.CosmeticType;
+import cc.cosmetica.api.cosmetic.Model;
+import cc.cosmetica.impl.cosmetic.AbstractCosmetic;
+import cc.cosmetica.util.SlicedJson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.UUID;
+
+/**
+ * Reads and writes snapshots of the cosmetics catalog: compact files storing each field of every cosmetic in its own
+ * column, with heavy payloads (cape images, models and model textures) in a separate blob region.<br>
+ * Snapshots are read through a memory-mapped file. Heavy payloads are not copied out of the file until requested, so
+ * the file must not be modified while cosmetics read from it are in use.
+ */
+public final class CatalogSnapshot {
+	private CatalogSnapshot() {
+	}
+
+	private static final int MAGIC = 0x43534E50; // CSNP
+	private static final int VERSION = 1;
+
+	// flags
+	private static final int REDUCED_DATA = 1;
+	private static final int COSMETICA_ALTERNATIVE = 2;
+	private static final int USES_UV_ROTATIONS = 4;
+
+	private static final CosmeticType<?>[] TYPES = {CosmeticType.CAPE, CosmeticType.HAT, CosmeticType.SHOULDER_BUDDY, CosmeticType.BACK_BLING};
+	private static final int STRINGS = 5; // id, name, origin, owner name, reason
+	private static final int BOUNDS = 6;
+
+	/**
+	 * Write a snapshot of the given cosmetics. Cosmetics without an owner, such as third-party capes, are not part of
+	 * the catalog and are skipped.
+	 * @param file the file to write to. Will be replaced if it exists.
+	 * @param cosmetics the cosmetics to write.
+	 * @return the number of cosmetics written.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static int write(Path file, Collection<? extends Cosmetic> cosmetics) throws IOException {
+		List<Cosmetic> rows = new ArrayList<>(cosmetics.size());
+
+		for (Cosmetic cosmetic : cosmetics) {
+			if (cosmetic.getOwner().isPresent()) rows.add(cosmetic);
+		}
+
+		final int count = rows.size();
+		ByteArrayOutputStream stringHeap = new ByteArrayOutputStream();
+		ByteArrayOutputStream blob = new ByteArrayOutputStream();
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(count);
+
+			for (Cosmetic cosmetic : rows) {
+				out.writeByte(typeIndex(cosmetic.getType()));
+			}
+
+			for (Cosmetic cosmetic : rows) {
+				int flags = cosmetic.hasReducedData() ? REDUCED_DATA : 0;
+				if (cosmetic instanceof Cape && ((Cape) cosmetic).isCosmeticaAlternative()) flags |= COSMETICA_ALTERNATIVE;
+				if (cosmetic instanceof Model && ((Model) cosmetic).usesUVRotations()) flags |= USES_UV_ROTATIONS;
+				out.writeByte(flags);
+			}
+
+			for (Cosmetic cosmetic : rows) {
+				out.writeByte(cosmetic.getUploadState().getId());
+			}
+
+			for (Cosmetic cosmetic : rows) {
+				OptionalInt extraInfo = cosmetic.getExtraInfo();
+				out.writeInt(extraInfo.isPresent() ? extraInfo.getAsInt() : 0);
+			}
+
+			for (Cosmetic cosmetic : rows) {
+				out.writeLong(cosmetic.getUploadTime());
+			}
+
+			for (Cosmetic cosmetic : rows) {
+				UUID owner = cosmetic.getOwner().get().getUUID();
+				out.writeLong(owner.getMostSignificantBits());
+				out.writeLong(owner.getLeastSignificantBits());
+			}
+
+			for (Cosmetic cosmetic : rows) {
+				BoundingBox bounds = !cosmetic.hasReducedData() && cosmetic instanceof Model ? ((Model) cosmetic).getBoundingBox() : null;
+				out.writeInt(bounds == null ? 0 : (int) bounds.x0());
+				out.writeInt(bounds == null ? 0 : (int) bounds.y0());
+				out.writeInt(bounds == null ? 0 : (int) bounds.z0());
+				out.writeInt(bounds == null ? 0 : (int) bounds.x1());
+				out.writeInt(bounds == null ? 0 : (int) bounds.y1());
+				out.writeInt(bounds == null ? 0 : (int) bounds.z1());
+			}
+
+			for (Cosmetic cosmetic : rows) {
+				out.writeInt(writeString(stringHeap, cosmetic.getId()));
+				out.writeInt(writeString(stringHeap, cosmetic.getName()));
+				out.writeInt(writeString(stringHeap, cosmetic.getOrigin()));
+				out.writeInt(writeString(stringHeap, cosmetic.getOwner().map(User::getUsername).orElse("")));
+				out.writeInt(writeString(stringHeap, cosmetic.getReason()));
+			}
+
+			// heavy payloads as raw json string literals, so they can be decoded lazily in place
+			for (Cosmetic cosmetic : rows) {
+				String first = null;
+				String second = null;
+
+				if (!cosmetic.hasReducedData() && cosmetic instanceof Cape) {
+					first = ((Cape) cosmetic).getImage();
+				}
+				else if (!cosmetic.hasReducedData() && cosmetic instanceof Model) {
+					first = ((Model) cosmetic).getModel();
+					second = ((Model) cosmetic).getTexture();
+				}
+
+				writeBlob(out, blob, first);
+				writeBlob(out, blob, second);
+			}
+
+			out.writeInt(stringHeap.size());
+			stringHeap.writeTo(out);
+			out.writeInt(blob.size());
+			blob.writeTo(out);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Read a snapshot, parsing each cosmetic the same way as from an api response.
+	 * @param file the file to read.
+	 * @return the cosmetics in the snapshot.
+	 * @throws IOException if an I/O error occurs, or the file is not a valid snapshot.
+	 */
+	public static List<Cosmetic> read(Path file) throws IOException {
+		final ByteBuffer buffer;
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		try {
+			if (buffer.getInt() != MAGIC) throw new IOException("Not a catalog snapshot: " + file);
+			int version = buffer.getInt();
+			if (version != VERSION) throw new IOException("Unsupported catalog snapshot version " + version + ": " + file);
+
+			final int count = buffer.getInt();
+
+			// column offsets
+			final int types = buffer.position();
+			final int flags = types + count;
+			final int uploadStates = flags + count;
+			final int extraInfos = uploadStates + count;
+			final int uploadTimes = extraInfos + 4 * count;
+			final int owners = uploadTimes + 8 * count;
+			final int bounds = owners + 16 * count;
+			final int strings = bounds + 4 * BOUNDS * count;
+			final int heavy = strings + 4 * STRINGS * count;
+			final int stringHeapSize = heavy + 16 * count;
+			final int stringHeap = stringHeapSize + 4;
+			final int blobSize = stringHeap + buffer.getInt(stringHeapSize);
+			final ByteBuffer blob = slice(buffer, blobSize + 4, buffer.getInt(blobSize));
+
+			// slice 2 * i is the cape image or model of row i, and slice 2 * i + 1 is the model texture
+			SlicedJson document = SlicedJson.of(new JsonObject(), new AbstractList<ByteBuffer>() {
+				@Override
+				public ByteBuffer get(int index) {
+					int entry = heavy + 8 * index;
+					return slice(blob, buffer.getInt(entry), buffer.getInt(entry + 4));
+				}
+
+				@Override
+				public int size() {
+					return 2 * count;
+				}
+			});
+
+			List<Cosmetic> result = new ArrayList<>(count);
+
+			for (int i = 0; i < count; i++) {
+				CosmeticType<?> type = TYPES[buffer.get(types + i)];
+				int rowFlags = buffer.get(flags + i);
+				int string = strings + 4 * STRINGS * i;
+				int owner = owners + 16 * i;
+
+				JsonObject json = new JsonObject();
+				json.addProperty("type", type.getTypeString());
+				json.addProperty("id", readString(buffer, stringHeap, string));
+				json.addProperty("name", readString(buffer, stringHeap, string + 4));
+				json.addProperty("origin", readString(buffer, stringHeap, string + 8));
+				json.addProperty("owner", new UUID(buffer.getLong(owner), buffer.getLong(owner + 8)).toString());
+				json.addProperty("ownerName", readString(buffer, stringHeap, string + 12));
+				json.addProperty("reason", readString(buffer, stringHeap, string + 16));
+				json.addProperty("uploadState", buffer.get(uploadStates + i));
+				json.addProperty("uploaded", buffer.getLong(uploadTimes + 8 * i));
+
+				if ((rowFlags & REDUCED_DATA) != 0) {
+					json.addProperty("extraInfo", "");
+				}
+				else {
+					json.addProperty("extraInfo", buffer.getInt(extraInfos + 4 * i));
+					json.addProperty("isCosmeticaAlternative", (rowFlags & COSMETICA_ALTERNATIVE) != 0);
+					json.addProperty("usesUvRotations", (rowFlags & USES_UV_ROTATIONS) != 0);
+					json.add("image", new JsonPrimitive(2 * i));
+					json.add("model", new JsonPrimitive(2 * i));
+					json.add("texture", new JsonPrimitive(2 * i + 1));
+
+					int bound = bounds + 4 * BOUNDS * i;
+					JsonArray lower = new JsonArray();
+					JsonArray upper = new JsonArray();
+
+					for (int axis = 0; axis < 3; axis++) {
+						lower.add(new JsonPrimitive(buffer.getInt(bound + 4 * axis)));
+						upper.add(new JsonPrimitive(buffer.getInt(bound + 4 * (axis + 3))));
+					}
+
+					JsonArray boundsJson = new JsonArray();
+					boundsJson.add(lower);
+					boundsJson.add(upper);
+					json.add("bounds", boundsJson);
+				}
+
+				Optional<? extends Cosmetic> cosmetic = AbstractCosmetic.parse(json, document);
+				if (cosmetic.isPresent()) result.add(cosmetic.get());
+			}
+
+			return result;
+		}
+		catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw new IOException("Corrupt catalog snapshot: " + file, e);
+		}
+	}
+
+	private static int typeIndex(CosmeticType<?> type) {
+		for (int i = 0; i < TYPES.length; i++) {
+			if (TYPES[i] == type) return i;
+		}
+
+		throw new IllegalArgumentException("Unknown cosmetic type " + type);
+	}
+
+	private static int writeString(ByteArrayOutputStream heap, String value) throws IOException {
+		int offset = heap.size();
+		byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+		writeInt(heap, bytes.length);
+		heap.write(bytes);
+		return offset;
+	}
+
+	private static String readString(ByteBuffer buffer, int heap, int offsetEntry) {
+		int offset = heap + buffer.getInt(offsetEntry);
+		int length = buffer.getInt(offset);
+		byte[] bytes = new byte[length];
+
+		ByteBuffer view = buffer.duplicate();
+		((Buffer) view).position(offset + 4);
+		view.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeBlob(DataOutputStream out, ByteArrayOutputStream blob, String value) throws IOException {
+		byte[] literal = new JsonPrimitive(value == null ? "" : value).toString().getBytes(StandardCharsets.UTF_8);
+		out.writeInt(blob.size());
+		out.writeInt(literal.length);
+		blob.write(literal);
+	}
+
+	private static void writeInt(OutputStream out, int value) throws IOException {
+		out.write(value >>> 24);
+		out.write(value >>> 16);
+		out.write(value >>> 8);
+		out.write(value);
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+		ByteBuffer view = buffer.duplicate();
+		((Buffer) view).position(offset);
+		((Buffer) view).limit(offset + length);
+		return view.slice();
+	}
+}
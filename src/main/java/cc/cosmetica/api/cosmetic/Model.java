@@ -17,8 +17,10 @@
 package cc.cosmetica.api.cosmetic;
 
 import cc.cosmetica.impl.CosmeticFetcher;
+import cc.cosmetica.impl.cosmetic.GeometryCache;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Optional;
 import java.util.OptionalInt;
 
 /**
@@ -40,6 +42,17 @@ public interface Model extends Cosmetic {
 	 */
 	String getTexture();
 
+	/**
+	 * Get the geometry of this model, pre-parsed from {@linkplain Model#getModel() the model json} into flat arrays.
+	 * The geometry of each model is parsed once and cached by {@linkplain Model#getType() type} and {@linkplain Model#getId() id}.
+	 * @return the geometry of this model, or empty if this model was received without its model json, such as from a
+	 * request excluding models, and its geometry is not already cached.
+	 * @throws com.google.gson.JsonParseException if the model json is malformed.
+	 */
+	default Optional<ModelGeometry> getGeometry() {
+		return GeometryCache.get(this);
+	}
+
 	/**
 	 * @return whether this model uses UV rotations.
 	 * @apiNote useful for applications which cannot, for whatever reason, support UV rotations in textures, or need special handling thereof.
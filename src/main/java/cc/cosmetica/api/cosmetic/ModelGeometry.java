@@ -0,0 +1,291 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.api.cosmetic;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.util.Locale;
+
+/**
+ * The pre-parsed geometry of a {@link Model}: the cuboids ("elements") of its model json stored in flat primitive
+ * arrays, so they can be read without parsing the json again. Obtain one through {@link Model#getGeometry()}, which
+ * parses each model once and caches the result.<br>
+ * Cuboid {@code i} has its components at indices {@code 3 * i} to {@code 3 * i + 2} in the three-component arrays,
+ * and its faces at indices {@code FACES * i + face} in the per-face arrays, where face is one of the face constants
+ * in this class. The arrays returned are shared and must not be modified.
+ */
+public final class ModelGeometry {
+	private ModelGeometry(int cuboids, float[] from, float[] to, float[] rotationAngles, byte[] rotationAxes,
+						  float[] rotationOrigins, byte[] faceMasks, float[] uvs, short[] uvRotations,
+						  int textureWidth, int textureHeight, BoundingBox bounds, boolean usesUVRotations) {
+		this.cuboids = cuboids;
+		this.from = from;
+		this.to = to;
+		this.rotationAngles = rotationAngles;
+		this.rotationAxes = rotationAxes;
+		this.rotationOrigins = rotationOrigins;
+		this.faceMasks = faceMasks;
+		this.uvs = uvs;
+		this.uvRotations = uvRotations;
+		this.textureWidth = textureWidth;
+		this.textureHeight = textureHeight;
+		this.bounds = bounds;
+		this.usesUVRotations = usesUVRotations;
+	}
+
+	private final int cuboids;
+	private final float[] from;
+	private final float[] to;
+	private final float[] rotationAngles;
+	private final byte[] rotationAxes;
+	private final float[] rotationOrigins;
+	private final byte[] faceMasks;
+	private final float[] uvs;
+	private final short[] uvRotations;
+	private final int textureWidth;
+	private final int textureHeight;
+	private final BoundingBox bounds;
+	private final boolean usesUVRotations;
+
+	/**
+	 * @return the number of cuboids in this model.
+	 */
+	public int getCuboidCount() {
+		return this.cuboids;
+	}
+
+	/**
+	 * @return the "from" corner of each cuboid as x, y, z triples.
+	 */
+	public float[] getFrom() {
+		return this.from;
+	}
+
+	/**
+	 * @return the "to" corner of each cuboid as x, y, z triples.
+	 */
+	public float[] getTo() {
+		return this.to;
+	}
+
+	/**
+	 * @return the rotation angle of each cuboid, in degrees. 0 if the cuboid is not rotated.
+	 */
+	public float[] getRotationAngles() {
+		return this.rotationAngles;
+	}
+
+	/**
+	 * @return the rotation axis of each cuboid, as one of {@link ModelGeometry#AXIS_X}, {@link ModelGeometry#AXIS_Y}, {@link ModelGeometry#AXIS_Z}.
+	 */
+	public byte[] getRotationAxes() {
+		return this.rotationAxes;
+	}
+
+	/**
+	 * @return the rotation origin of each cuboid as x, y, z triples.
+	 */
+	public float[] getRotationOrigins() {
+		return this.rotationOrigins;
+	}
+
+	/**
+	 * Get which faces each cuboid has.
+	 * @return a bitmask per cuboid, with bit {@code 1 << face} set if the cuboid has that face.
+	 */
+	public byte[] getFaceMasks() {
+		return this.faceMasks;
+	}
+
+	/**
+	 * Check whether the given cuboid has the given face.
+	 * @param cuboid the index of the cuboid.
+	 * @param face the face, one of the face constants in this class.
+	 * @return whether the cuboid has that face.
+	 */
+	public boolean hasFace(int cuboid, int face) {
+		return (this.faceMasks[cuboid] & (1 << face)) != 0;
+	}
+
+	/**
+	 * @return the uvs of each face as u0, v0, u1, v1 quadruples, indexed {@code 4 * (FACES * cuboid + face)}. Missing faces have all zero uvs.
+	 * Uvs are in texture-size units, as in the model json. See {@link ModelGeometry#getTextureWidth()} and {@link ModelGeometry#getTextureHeight()}.
+	 */
+	public float[] getUVs() {
+		return this.uvs;
+	}
+
+	/**
+	 * @return the uv rotation of each face, in degrees. All zero if this model does not {@linkplain Model#usesUVRotations() use uv rotations}.
+	 */
+	public short[] getUVRotations() {
+		return this.uvRotations;
+	}
+
+	/**
+	 * @return the width of the texture, in the units the uvs are given in.
+	 */
+	public int getTextureWidth() {
+		return this.textureWidth;
+	}
+
+	/**
+	 * @return the height of the texture, in the units the uvs are given in.
+	 */
+	public int getTextureHeight() {
+		return this.textureHeight;
+	}
+
+	/**
+	 * @return the bounding box of the model this geometry is of.
+	 */
+	public BoundingBox getBoundingBox() {
+		return this.bounds;
+	}
+
+	/**
+	 * @return whether the model this geometry is of uses uv rotations.
+	 */
+	public boolean usesUVRotations() {
+		return this.usesUVRotations;
+	}
+
+	/**
+	 * Parse the geometry of the given model. This does not use the cache; prefer {@link Model#getGeometry()}.
+	 * @param model the model to parse the geometry of.
+	 * @return the geometry of the model.
+	 * @throws JsonParseException if the model json is malformed.
+	 */
+	public static ModelGeometry parse(Model model) throws JsonParseException {
+		return parse(model.getModel(), model.getBoundingBox(), model.usesUVRotations());
+	}
+
+	/**
+	 * Parse the geometry of the given model json.
+	 * @param modelJson the model json, in minecraft block model format.
+	 * @param bounds the bounding box of the model.
+	 * @param usesUVRotations whether the model uses uv rotations. If false, uv rotations will not be read.
+	 * @return the geometry of the model.
+	 * @throws JsonParseException if the model json is malformed.
+	 */
+	public static ModelGeometry parse(String modelJson, BoundingBox bounds, boolean usesUVRotations) throws JsonParseException {
+		JsonElement root = new JsonParser().parse(modelJson);
+		if (!root.isJsonObject()) throw new JsonParseException("Model json is not an object");
+
+		JsonObject json = root.getAsJsonObject();
+		JsonArray elements = json.has("elements") ? json.getAsJsonArray("elements") : new JsonArray();
+		final int cuboids = elements.size();
+
+		float[] from = new float[3 * cuboids];
+		float[] to = new float[3 * cuboids];
+		float[] rotationAngles = new float[cuboids];
+		byte[] rotationAxes = new byte[cuboids];
+		float[] rotationOrigins = new float[3 * cuboids];
+		byte[] faceMasks = new byte[cuboids];
+		float[] uvs = new float[4 * FACES * cuboids];
+		short[] uvRotations = new short[FACES * cuboids];
+
+		for (int i = 0; i < cuboids; i++) {
+			JsonObject element = elements.get(i).getAsJsonObject();
+			readFloats(element.getAsJsonArray("from"), from, 3 * i, 3);
+			readFloats(element.getAsJsonArray("to"), to, 3 * i, 3);
+
+			if (element.has("rotation")) {
+				JsonObject rotation = element.getAsJsonObject("rotation");
+				rotationAngles[i] = rotation.get("angle").getAsFloat();
+				rotationAxes[i] = axis(rotation.get("axis").getAsString());
+				readFloats(rotation.getAsJsonArray("origin"), rotationOrigins, 3 * i, 3);
+			}
+
+			if (element.has("faces")) {
+				JsonObject faces = element.getAsJsonObject("faces");
+
+				for (int face = 0; face < FACES; face++) {
+					JsonElement faceData = faces.get(FACE_NAMES[face]);
+					if (faceData == null) continue;
+
+					JsonObject faceObject = faceData.getAsJsonObject();
+					int index = FACES * i + face;
+					faceMasks[i] |= 1 << face;
+
+					if (faceObject.has("uv")) {
+						readFloats(faceObject.getAsJsonArray("uv"), uvs, 4 * index, 4);
+					}
+
+					if (usesUVRotations && faceObject.has("rotation")) {
+						uvRotations[index] = faceObject.get("rotation").getAsShort();
+					}
+				}
+			}
+		}
+
+		int textureWidth = 16;
+		int textureHeight = 16;
+
+		if (json.has("texture_size")) {
+			JsonArray textureSize = json.getAsJsonArray("texture_size");
+			textureWidth = textureSize.get(0).getAsInt();
+			textureHeight = textureSize.get(1).getAsInt();
+		}
+
+		return new ModelGeometry(cuboids, from, to, rotationAngles, rotationAxes, rotationOrigins, faceMasks, uvs,
+				uvRotations, textureWidth, textureHeight, bounds, usesUVRotations);
+	}
+
+	private static void readFloats(JsonArray array, float[] into, int offset, int count) {
+		for (int i = 0; i < count; i++) {
+			into[offset + i] = array.get(i).getAsFloat();
+		}
+	}
+
+	private static byte axis(String axis) {
+		switch (axis.toLowerCase(Locale.ROOT)) {
+		case "x":
+			return AXIS_X;
+		case "y":
+			return AXIS_Y;
+		case "z":
+			return AXIS_Z;
+		default:
+			throw new JsonParseException("Unknown rotation axis " + axis);
+		}
+	}
+
+	// axes
+	public static final byte AXIS_X = 0;
+	public static final byte AXIS_Y = 1;
+	public static final byte AXIS_Z = 2;
+
+	// faces, in the same order as minecraft's Direction enum
+	public static final int DOWN = 0;
+	public static final int UP = 1;
+	public static final int NORTH = 2;
+	public static final int SOUTH = 3;
+	public static final int WEST = 4;
+	public static final int EAST = 5;
+
+	/**
+	 * The number of faces on a cuboid.
+	 */
+	public static final int FACES = 6;
+
+	private static final String[] FACE_NAMES = {"down", "up", "north", "south", "west", "east"};
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.api.texture;
+
+import cc.cosmetica.api.cosmetic.Cape;
+import cc.cosmetica.api.cosmetic.Model;
+
+import java.util.Arrays;
+
+/**
+ * A {@link DecodedTexture} which is a vertical strip of animation frames, pre-sliced into one pixel array per frame.
+ * Looking up the frame to show at a given time does not allocate.
+ */
+public final class AnimatedTexture {
+	private AnimatedTexture(DecodedTexture texture, int frameHeight, int frameDelay) {
+		this.texture = texture;
+		this.frameHeight = frameHeight;
+		this.frameDelay = frameDelay;
+
+		// a static texture only ever shows its first frame
+		int frameCount = frameDelay > 0 ? Math.max(1, texture.getHeight() / frameHeight) : 1;
+		int frameSize = texture.getWidth() * frameHeight;
+		int[] pixels = texture.getPixels();
+
+		this.frames = new int[frameCount][];
+
+		for (int i = 0; i < frameCount; i++) {
+			this.frames[i] = Arrays.copyOfRange(pixels, i * frameSize, (i + 1) * frameSize);
+		}
+	}
+
+	private final DecodedTexture texture;
+	private final int frameHeight;
+	private final int frameDelay;
+	private final int[][] frames;
+
+	/**
+	 * @return the full texture this was sliced from.
+	 */
+	public DecodedTexture getTexture() {
+		return this.texture;
+	}
+
+	/**
+	 * @return the width of each frame, in pixels.
+	 */
+	public int getFrameWidth() {
+		return this.texture.getWidth();
+	}
+
+	/**
+	 * @return the height of each frame, in pixels.
+	 */
+	public int getFrameHeight() {
+		return this.frameHeight;
+	}
+
+	/**
+	 * @return the delay between each frame, in ms. Will be 0 if static.
+	 */
+	public int getFrameDelay() {
+		return this.frameDelay;
+	}
+
+	/**
+	 * @return the number of frames in this animation.
+	 */
+	public int getFrameCount() {
+		return this.frames.length;
+	}
+
+	/**
+	 * @return whether this texture has more than one frame.
+	 */
+	public boolean isAnimated() {
+		return this.frames.length > 1;
+	}
+
+	/**
+	 * Get the pixels of the given frame, in the same format as {@link DecodedTexture#getPixels()}. The array is shared and must not be modified.
+	 * @param frame the index of the frame.
+	 * @return the pixels of that frame.
+	 */
+	public int[] getFrame(int frame) {
+		return this.frames[frame];
+	}
+
+	/**
+	 * Get the index of the frame to show at the given time. Every animation is in sync, being timed from the epoch.
+	 * @param timeMillis the time, in milliseconds, such as from {@link System#currentTimeMillis()}.
+	 * @return the index of the frame to show.
+	 */
+	public int frameIndexAt(long timeMillis) {
+		if (this.frames.length == 1) return 0;
+		return (int) Math.floorMod(Math.floorDiv(timeMillis, (long) this.frameDelay), (long) this.frames.length);
+	}
+
+	/**
+	 * Get the pixels of the frame to show at the given time. The array is shared and must not be modified.
+	 * @param timeMillis the time, in milliseconds, such as from {@link System#currentTimeMillis()}.
+	 * @return the pixels of the frame to show.
+	 */
+	public int[] frameAt(long timeMillis) {
+		return this.frames[this.frameIndexAt(timeMillis)];
+	}
+
+	/**
+	 * Slice the given texture into frames.
+	 * @param texture the texture, a vertical strip of frames.
+	 * @param frameHeight the height of each frame, in pixels.
+	 * @param frameDelay the delay between each frame, in ms. 0 if static.
+	 * @return the animated texture.
+	 * @throws IllegalArgumentException if the frame height is not positive.
+	 */
+	public static AnimatedTexture of(DecodedTexture texture, int frameHeight, int frameDelay) throws IllegalArgumentException {
+		if (frameHeight <= 0) throw new IllegalArgumentException("Frame height must be positive, was " + frameHeight);
+		return new AnimatedTexture(texture, Math.min(frameHeight, texture.getHeight()), frameDelay);
+	}
+
+	/**
+	 * Slice the decoded image of a cape into frames. Each cape frame has a 2:1 width:height aspect ratio.
+	 * @param cape the cape.
+	 * @param image the decoded {@linkplain Cape#getImage() image} of the cape.
+	 * @return the animated texture.
+	 */
+	public static AnimatedTexture ofCape(Cape cape, DecodedTexture image) {
+		return of(image, Math.max(1, image.getWidth() / 2), cape.getFrameDelay());
+	}
+
+	/**
+	 * Slice the decoded texture of a model into frames. Each model texture frame is square.
+	 * @param model the model.
+	 * @param texture the decoded {@linkplain Model#getTexture() texture} of the model.
+	 * @return the animated texture.
+	 */
+	public static AnimatedTexture ofModel(Model model, DecodedTexture texture) {
+		return of(texture, texture.getWidth(), model.getFrameDelay());
+	}
+}
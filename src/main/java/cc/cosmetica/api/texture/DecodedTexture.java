@@ -0,0 +1,114 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.api.texture;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * An image decoded into ARGB pixels. Instances are shared between everyone who requests the same image from a
+ * {@link TextureService}, so the pixel array must not be modified.
+ */
+public final class DecodedTexture {
+	public DecodedTexture(String hash, int width, int height, int[] pixels) throws IllegalArgumentException {
+		if (pixels.length != width * height) throw new IllegalArgumentException("Pixel array of length " + pixels.length + " does not match size " + width + "x" + height);
+
+		this.hash = hash;
+		this.width = width;
+		this.height = height;
+		this.pixels = pixels;
+	}
+
+	private final String hash;
+	private final int width;
+	private final int height;
+	private final int[] pixels;
+
+	/**
+	 * @return the hash of the encoded image this texture was decoded from.
+	 */
+	public String getHash() {
+		return this.hash;
+	}
+
+	/**
+	 * @return the width of this texture, in pixels.
+	 */
+	public int getWidth() {
+		return this.width;
+	}
+
+	/**
+	 * @return the height of this texture, in pixels.
+	 */
+	public int getHeight() {
+		return this.height;
+	}
+
+	/**
+	 * Get the pixels of this texture, row by row from the top left, in ARGB format. The array is shared and must not be modified.
+	 * @return the pixels of this texture.
+	 */
+	public int[] getPixels() {
+		return this.pixels;
+	}
+
+	/**
+	 * Get the pixel at the given position.
+	 * @param x the x position, from the left.
+	 * @param y the y position, from the top.
+	 * @return the pixel at that position in ARGB format.
+	 */
+	public int getPixel(int x, int y) {
+		return this.pixels[y * this.width + x];
+	}
+
+	/**
+	 * @return a read-only buffer view of the pixels of this texture.
+	 */
+	public IntBuffer asIntBuffer() {
+		return IntBuffer.wrap(this.pixels).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Copy the pixels of this texture into a new off-heap buffer in native byte order, such as for uploading to the GPU.
+	 * @return a new direct buffer containing the pixels of this texture.
+	 */
+	public IntBuffer toDirectBuffer() {
+		IntBuffer buffer = ByteBuffer.allocateDirect(this.pixels.length * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+		buffer.put(this.pixels);
+		((Buffer) buffer).flip();
+		return buffer;
+	}
+
+	/**
+	 * @return the approximate number of bytes of memory the pixels of this texture take up.
+	 */
+	public long getByteSize() {
+		return 4L * this.pixels.length;
+	}
+
+	@Override
+	public String toString() {
+		return "DecodedTexture[" +
+				"hash=" + hash + ", " +
+				"width=" + width + ", " +
+				"height=" + height + ']';
+	}
+}
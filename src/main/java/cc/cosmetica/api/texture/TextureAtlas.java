@@ -0,0 +1,420 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.api.texture;
+
+import cc.cosmetica.api.CosmeticsUpdates;
+import cc.cosmetica.api.cosmetic.ModelGeometry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Packs many small textures into a few large square pages of ARGB pixels, using shelf packing, so they can be uploaded
+ * and bound together. This is entirely CPU-side: upload each page's {@linkplain TextureAtlas#getPagePixels(int) pixels}
+ * whenever its {@linkplain TextureAtlas#getPageRevision(int) revision} changes.<br>
+ * Textures are reference counted by key, since many players may wear the same cosmetic. When {@link CosmeticsUpdates}
+ * arrive, {@linkplain TextureAtlas#release(Object) release} the textures of the users needing updating and
+ * {@linkplain TextureAtlas#acquire(Object, DecodedTexture) acquire} their new ones: space freed by released textures is
+ * reused by later ones without repacking the page.<br>
+ * This class is not thread safe.
+ * @param <K> the type of key textures are stored under, such as the {@linkplain DecodedTexture#getHash() texture hash}.
+ */
+public final class TextureAtlas<K> {
+	/**
+	 * Create a new, empty texture atlas.
+	 * @param pageSize the width and height of each page, in pixels.
+	 * @param padding the number of empty pixels to leave around each texture, to prevent bleeding when sampling.
+	 */
+	public TextureAtlas(int pageSize, int padding) {
+		if (pageSize <= 0) throw new IllegalArgumentException("Page size must be positive, was " + pageSize);
+		if (padding < 0) throw new IllegalArgumentException("Padding must not be negative, was " + padding);
+
+		this.pageSize = pageSize;
+		this.padding = padding;
+	}
+
+	private final int pageSize;
+	private final int padding;
+	private final List<Page> pages = new ArrayList<>();
+	private final Map<K, Entry> entries = new HashMap<>();
+
+	/**
+	 * Add a reference to the texture under the given key, packing it into the atlas if it is not already present.
+	 * @param key the key of the texture.
+	 * @param texture the texture. Ignored if the key is already present.
+	 * @return the region of the atlas the texture is in.
+	 * @throws IllegalArgumentException if the texture is larger than a page.
+	 */
+	public Region acquire(K key, DecodedTexture texture) throws IllegalArgumentException {
+		return this.acquire(key, texture.getWidth(), texture.getHeight(), texture.getPixels());
+	}
+
+	/**
+	 * Add a reference to the texture under the given key, packing it into the atlas if it is not already present.
+	 * Useful for adding single frames of an {@link AnimatedTexture}.
+	 * @param key the key of the texture.
+	 * @param width the width of the texture.
+	 * @param height the height of the texture.
+	 * @param pixels the ARGB pixels of the texture, row by row. Ignored if the key is already present.
+	 * @return the region of the atlas the texture is in.
+	 * @throws IllegalArgumentException if the texture is larger than a page.
+	 */
+	public Region acquire(K key, int width, int height, int[] pixels) throws IllegalArgumentException {
+		Entry entry = this.entries.get(key);
+
+		if (entry == null) {
+			if (pixels.length < width * height) throw new IllegalArgumentException("Pixel array too small for a " + width + "x" + height + " texture");
+
+			Region region = this.allocate(width, height);
+			this.pages.get(region.page).write(region, pixels);
+			entry = new Entry(region);
+			this.entries.put(key, entry);
+		}
+
+		entry.references++;
+		return entry.region;
+	}
+
+	/**
+	 * Remove a reference to the texture under the given key. Once no references remain, the texture is removed and its
+	 * space can be reused.
+	 * @param key the key of the texture.
+	 * @return whether the texture was removed from the atlas by this call.
+	 */
+	public boolean release(K key) {
+		Entry entry = this.entries.get(key);
+		if (entry == null || --entry.references > 0) return false;
+
+		this.entries.remove(key);
+		this.pages.get(entry.region.page).free(entry.region);
+		return true;
+	}
+
+	/**
+	 * Get the region of the texture under the given key.
+	 * @param key the key of the texture.
+	 * @return the region of the atlas the texture is in, if it is present.
+	 */
+	public Optional<Region> getRegion(K key) {
+		Entry entry = this.entries.get(key);
+		return entry == null ? Optional.empty() : Optional.of(entry.region);
+	}
+
+	/**
+	 * @return the number of textures in this atlas.
+	 */
+	public int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * @return the width and height of each page, in pixels.
+	 */
+	public int getPageSize() {
+		return this.pageSize;
+	}
+
+	/**
+	 * @return the number of pages in this atlas.
+	 */
+	public int getPageCount() {
+		return this.pages.size();
+	}
+
+	/**
+	 * Get the pixels of the given page, row by row in ARGB format. The array is live and must not be modified.
+	 * @param page the index of the page.
+	 * @return the pixels of the page.
+	 */
+	public int[] getPagePixels(int page) {
+		return this.pages.get(page).pixels;
+	}
+
+	/**
+	 * Get the revision of the given page, which changes every time pixels on the page change.
+	 * @param page the index of the page.
+	 * @return the revision of the page.
+	 */
+	public int getPageRevision(int page) {
+		return this.pages.get(page).revision;
+	}
+
+	/**
+	 * Remap the uvs of a model to atlas coordinates.
+	 * @param region the region of the atlas containing the texture the uvs refer to. For an animated texture, this
+	 *               should be a single frame.
+	 * @param geometry the geometry of the model.
+	 * @return a new array of uvs in the same layout as {@link ModelGeometry#getUVs()}, in normalised [0, 1] atlas page coordinates.
+	 */
+	public float[] remapUVs(Region region, ModelGeometry geometry) {
+		float[] uvs = geometry.getUVs();
+		float[] result = new float[uvs.length];
+
+		final float scaleU = region.width / (float) geometry.getTextureWidth() / this.pageSize;
+		final float scaleV = region.height / (float) geometry.getTextureHeight() / this.pageSize;
+		final float offsetU = region.x / (float) this.pageSize;
+		final float offsetV = region.y / (float) this.pageSize;
+
+		for (int i = 0; i < uvs.length; i += 2) {
+			result[i] = offsetU + uvs[i] * scaleU;
+			result[i + 1] = offsetV + uvs[i + 1] * scaleV;
+		}
+
+		return result;
+	}
+
+	private Region allocate(int width, int height) {
+		final int paddedWidth = width + 2 * this.padding;
+		final int paddedHeight = height + 2 * this.padding;
+
+		if (paddedWidth > this.pageSize || paddedHeight > this.pageSize) {
+			throw new IllegalArgumentException("Texture of size " + width + "x" + height + " (with padding " + this.padding + ") does not fit in an atlas page of size " + this.pageSize);
+		}
+
+		for (Page page : this.pages) {
+			Region region = page.allocate(paddedWidth, paddedHeight);
+			if (region != null) return region;
+		}
+
+		Page page = new Page(this.pages.size());
+		this.pages.add(page);
+		return page.allocate(paddedWidth, paddedHeight);
+	}
+
+	private static final class Entry {
+		private Entry(Region region) {
+			this.region = region;
+		}
+
+		private final Region region;
+		private int references;
+	}
+
+	private final class Page {
+		private Page(int index) {
+			this.index = index;
+			this.pixels = new int[pageSize * pageSize];
+		}
+
+		private final int index;
+		private final int[] pixels;
+		private final List<Shelf> shelves = new ArrayList<>();
+		private final List<int[]> freeSlots = new ArrayList<>(); // {x, y, width, height}, padded
+		private int shelvesHeight;
+		private int revision;
+
+		private Region allocate(int paddedWidth, int paddedHeight) {
+			// best fit among slots freed by removed textures
+			int bestSlot = -1;
+			int bestWaste = Integer.MAX_VALUE;
+
+			for (int i = 0; i < this.freeSlots.size(); i++) {
+				int[] slot = this.freeSlots.get(i);
+
+				if (slot[2] >= paddedWidth && slot[3] >= paddedHeight) {
+					int waste = slot[2] * slot[3] - paddedWidth * paddedHeight;
+
+					if (waste < bestWaste) {
+						bestWaste = waste;
+						bestSlot = i;
+					}
+				}
+			}
+
+			if (bestSlot != -1) {
+				int[] slot = this.freeSlots.remove(bestSlot);
+				return this.region(slot[0], slot[1], slot[2], slot[3], paddedWidth, paddedHeight);
+			}
+
+			// the shortest existing shelf that fits
+			Shelf bestShelf = null;
+
+			for (Shelf shelf : this.shelves) {
+				if (shelf.height >= paddedHeight && pageSize - shelf.cursor >= paddedWidth
+						&& (bestShelf == null || shelf.height < bestShelf.height)) {
+					bestShelf = shelf;
+				}
+			}
+
+			// open a new shelf if no existing one fits well
+			if ((bestShelf == null || bestShelf.height > 2 * paddedHeight) && pageSize - this.shelvesHeight >= paddedHeight) {
+				bestShelf = new Shelf(this.shelvesHeight, paddedHeight);
+				this.shelves.add(bestShelf);
+				this.shelvesHeight += paddedHeight;
+			}
+
+			if (bestShelf == null) {
+				return null;
+			}
+
+			int x = bestShelf.cursor;
+			bestShelf.cursor += paddedWidth;
+			return this.region(x, bestShelf.y, paddedWidth, bestShelf.height, paddedWidth, paddedHeight);
+		}
+
+		private Region region(int slotX, int slotY, int slotWidth, int slotHeight, int paddedWidth, int paddedHeight) {
+			return new Region(this.index, slotX + padding, slotY + padding,
+					paddedWidth - 2 * padding, paddedHeight - 2 * padding,
+					slotX, slotY, slotWidth, slotHeight, pageSize);
+		}
+
+		private void write(Region region, int[] texture) {
+			for (int row = 0; row < region.height; row++) {
+				System.arraycopy(texture, row * region.width, this.pixels, (region.y + row) * pageSize + region.x, region.width);
+			}
+
+			this.revision++;
+		}
+
+		private void free(Region region) {
+			for (int row = 0; row < region.height; row++) {
+				int start = (region.y + row) * pageSize + region.x;
+				Arrays.fill(this.pixels, start, start + region.width, 0);
+			}
+
+			this.revision++;
+
+			// if this was the last texture on its shelf, give the space back to the shelf
+			for (Shelf shelf : this.shelves) {
+				if (shelf.y == region.slotY && shelf.cursor == region.slotX + region.slotWidth) {
+					shelf.cursor = region.slotX;
+					return;
+				}
+			}
+
+			this.freeSlots.add(new int[] {region.slotX, region.slotY, region.slotWidth, region.slotHeight});
+		}
+	}
+
+	private static final class Shelf {
+		private Shelf(int y, int height) {
+			this.y = y;
+			this.height = height;
+		}
+
+		private final int y;
+		private final int height;
+		private int cursor;
+	}
+
+	/**
+	 * A region of an atlas page containing a texture.
+	 */
+	public static final class Region {
+		private Region(int page, int x, int y, int width, int height, int slotX, int slotY, int slotWidth, int slotHeight, int pageSize) {
+			this.page = page;
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+			this.slotX = slotX;
+			this.slotY = slotY;
+			this.slotWidth = slotWidth;
+			this.slotHeight = slotHeight;
+			this.pageSize = pageSize;
+		}
+
+		private final int page;
+		private final int x;
+		private final int y;
+		private final int width;
+		private final int height;
+		// the space allocated to this region, including padding
+		private final int slotX;
+		private final int slotY;
+		private final int slotWidth;
+		private final int slotHeight;
+		private final int pageSize;
+
+		/**
+		 * @return the index of the page this region is on.
+		 */
+		public int getPage() {
+			return this.page;
+		}
+
+		/**
+		 * @return the x position of this region on its page, in pixels.
+		 */
+		public int getX() {
+			return this.x;
+		}
+
+		/**
+		 * @return the y position of this region on its page, in pixels.
+		 */
+		public int getY() {
+			return this.y;
+		}
+
+		/**
+		 * @return the width of this region, in pixels.
+		 */
+		public int getWidth() {
+			return this.width;
+		}
+
+		/**
+		 * @return the height of this region, in pixels.
+		 */
+		public int getHeight() {
+			return this.height;
+		}
+
+		/**
+		 * @return the normalised u coordinate of the left edge of this region.
+		 */
+		public float getU0() {
+			return this.x / (float) this.pageSize;
+		}
+
+		/**
+		 * @return the normalised v coordinate of the top edge of this region.
+		 */
+		public float getV0() {
+			return this.y / (float) this.pageSize;
+		}
+
+		/**
+		 * @return the normalised u coordinate of the right edge of this region.
+		 */
+		public float getU1() {
+			return (this.x + this.width) / (float) this.pageSize;
+		}
+
+		/**
+		 * @return the normalised v coordinate of the bottom edge of this region.
+		 */
+		public float getV1() {
+			return (this.y + this.height) / (float) this.pageSize;
+		}
+
+		@Override
+		public String toString() {
+			return "Region[" +
+					"page=" + page + ", " +
+					"x=" + x + ", " +
+					"y=" + y + ", " +
+					"width=" + width + ", " +
+					"height=" + height + ']';
+		}
+	}
+}
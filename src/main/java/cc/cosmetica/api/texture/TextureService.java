@@ -0,0 +1,112 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.api.texture;
+
+import cc.cosmetica.api.cosmetic.Cape;
+import cc.cosmetica.api.cosmetic.Model;
+import cc.cosmetica.impl.TextureServiceImpl;
+
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Decodes base64 images, such as {@linkplain Cape#getImage() cape images} and {@linkplain Model#getTexture() model textures},
+ * into {@link DecodedTexture pixel buffers}. Each distinct image is decoded only once: decoded textures are cached by the
+ * hash of their encoded contents, with the least recently used textures evicted once the cache exceeds its byte limit.
+ * Requests for an image that is already being decoded will share the result of that decode.
+ */
+public interface TextureService {
+	/**
+	 * Decode the given image on this service's worker pool, or retrieve it from the cache.
+	 * @param base64Image the image, in base64 format. May be prefixed with a data uri header such as {@code data:image/png;base64,}.
+	 * @return a future which completes with the decoded texture, or exceptionally with an {@link UncheckedIOException} if the image could not be decoded,
+	 * or a {@link java.util.concurrent.RejectedExecutionException} if this service has been {@linkplain TextureService#shutdown() shut down}.
+	 */
+	CompletableFuture<DecodedTexture> decode(String base64Image);
+
+	/**
+	 * Decode the image of the given cape on this service's worker pool, or retrieve it from the cache.
+	 * @param cape the cape.
+	 * @return a future which completes with the decoded texture.
+	 */
+	default CompletableFuture<DecodedTexture> decode(Cape cape) {
+		return this.decode(cape.getImage());
+	}
+
+	/**
+	 * Decode the texture of the given model on this service's worker pool, or retrieve it from the cache.
+	 * @param model the model.
+	 * @return a future which completes with the decoded texture.
+	 */
+	default CompletableFuture<DecodedTexture> decode(Model model) {
+		return this.decode(model.getTexture());
+	}
+
+	/**
+	 * Decode the given image, blocking until it is decoded.
+	 * @param base64Image the image, in base64 format. May be prefixed with a data uri header such as {@code data:image/png;base64,}.
+	 * @return the decoded texture.
+	 * @throws UncheckedIOException if the image could not be decoded.
+	 */
+	default DecodedTexture decodeNow(String base64Image) throws UncheckedIOException {
+		try {
+			return this.decode(base64Image).join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Get the given image from the cache, without decoding it if it is absent.
+	 * @param base64Image the image, in base64 format.
+	 * @return the decoded texture, if it is cached.
+	 */
+	Optional<DecodedTexture> getIfCached(String base64Image);
+
+	/**
+	 * @return the total size in bytes of the textures currently cached.
+	 */
+	long getCachedBytes();
+
+	/**
+	 * Remove all textures from the cache.
+	 */
+	void clear();
+
+	/**
+	 * Stop the worker threads of this service. Decodes already queued will still complete, but later decodes of images
+	 * which are not cached will fail.
+	 */
+	void shutdown();
+
+	/**
+	 * Create a new texture service.
+	 * @param workerThreads the number of threads to decode images on.
+	 * @param maxCacheBytes the maximum total size in bytes of decoded textures to keep cached.
+	 * @return the new texture service.
+	 */
+	static TextureService create(int workerThreads, long maxCacheBytes) {
+		return new TextureServiceImpl(workerThreads, maxCacheBytes);
+	}
+}
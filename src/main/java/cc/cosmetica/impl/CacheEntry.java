@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.impl;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A cached value which expires after a fixed time, and which, if read often, is refreshed in the background shortly
+ * before it does so hot entries never miss. The old value is served until the refreshed one replaces it.
+ */
+class CacheEntry<T> {
+	CacheEntry(T value, long storedAt) {
+		this.value = value;
+		this.storedAt = storedAt;
+	}
+
+	final T value;
+	final long storedAt;
+	private final AtomicInteger reads = new AtomicInteger();
+	private final AtomicBoolean refreshing = new AtomicBoolean();
+
+	boolean isExpired(long now, long cacheTime) {
+		return now - this.storedAt > cacheTime;
+	}
+
+	/**
+	 * Record a read of this entry.
+	 * @return whether the reader should refresh this entry, having been read often and being about to expire. Only one
+	 * reader is told to until {@link CacheEntry#refreshFailed()} is called.
+	 */
+	boolean read(long now, long cacheTime) {
+		int reads = this.reads.incrementAndGet();
+
+		return reads >= HOT_READS
+				&& now - this.storedAt >= cacheTime - (long) (cacheTime * REFRESH_AHEAD)
+				&& !this.refreshing.get() && this.refreshing.compareAndSet(false, true);
+	}
+
+	/**
+	 * Allow the entry to be refreshed again after a failed refresh.
+	 */
+	void refreshFailed() {
+		this.refreshing.set(false);
+	}
+
+	/**
+	 * How many times an entry must be read to be refreshed before it expires.
+	 */
+	private static final int HOT_READS = 2;
+	/**
+	 * The fraction of the cache time before expiry in which hot entries are refreshed.
+	 */
+	private static final double REFRESH_AHEAD = 0.15;
+}
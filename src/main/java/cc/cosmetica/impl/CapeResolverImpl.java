@@ -0,0 +1,195 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.impl;
+
+import cc.cosmetica.api.cape.CapeProvider;
+import cc.cosmetica.api.cape.CapeResolver;
+import cc.cosmetica.api.cape.ResolvedCape;
+import cc.cosmetica.api.settings.CapeDisplay;
+import cc.cosmetica.api.settings.CapeServer;
+import cc.cosmetica.util.FlightRecording;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+public class CapeResolverImpl implements CapeResolver {
+	public CapeResolverImpl(Collection<? extends CapeProvider> providers, Executor executor, long cacheTime) {
+		for (CapeProvider provider : providers) {
+			this.providers.put(provider.getId(), new Provider(provider));
+		}
+
+		this.executor = executor;
+		this.cacheTime = cacheTime;
+	}
+
+	private final Map<String, Provider> providers = new HashMap<>();
+	private final Executor executor;
+	private final long cacheTime;
+
+	@Override
+	public CompletableFuture<Optional<ResolvedCape>> resolve(UUID uuid, String username, Map<String, CapeServer> capeServerSettings) {
+		List<Map.Entry<String, CapeServer>> servers = new ArrayList<>();
+
+		for (Map.Entry<String, CapeServer> entry : capeServerSettings.entrySet()) {
+			if (entry.getValue().getDisplay() == CapeDisplay.SHOW && this.providers.containsKey(entry.getKey())) {
+				servers.add(entry);
+			}
+		}
+
+		if (servers.isEmpty()) return CompletableFuture.completedFuture(Optional.empty());
+
+		servers.sort(Comparator.comparingInt((Map.Entry<String, CapeServer> entry) -> entry.getValue().getCheckOrder()).thenComparing(Map.Entry::getKey));
+
+		List<CompletableFuture<Optional<String>>> answers = new ArrayList<>(servers.size());
+
+		for (Map.Entry<String, CapeServer> server : servers) {
+			answers.add(this.providers.get(server.getKey()).ask(uuid, username));
+		}
+
+		CompletableFuture<Optional<ResolvedCape>> result = new CompletableFuture<>();
+
+		Runnable check = () -> {
+			for (int i = 0; i < answers.size(); i++) {
+				CompletableFuture<Optional<String>> answer = answers.get(i);
+
+				// an earlier provider could still have a cape
+				if (!answer.isDone()) return;
+
+				Optional<String> cape = answer.join();
+
+				if (cape.isPresent()) {
+					result.complete(Optional.of(new ResolvedCape(servers.get(i).getKey(), cape.get())));
+					return;
+				}
+			}
+
+			result.complete(Optional.empty());
+		};
+
+		for (CompletableFuture<Optional<String>> answer : answers) {
+			answer.thenRun(check);
+		}
+
+		return result;
+	}
+
+	@Override
+	public void invalidate(UUID uuid) {
+		for (Provider provider : this.providers.values()) {
+			provider.invalidate(uuid);
+		}
+	}
+
+	private static final int MAX_ENTRIES = 4096;
+
+	/**
+	 * A provider with its cache of answers.
+	 */
+	private class Provider {
+		Provider(CapeProvider provider) {
+			this.provider = provider;
+		}
+
+		private final CapeProvider provider;
+		// guarded by cache
+		private final Map<UUID, CacheEntry<Optional<String>>> cache = new LinkedHashMap<UUID, CacheEntry<Optional<String>>>(64, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<UUID, CacheEntry<Optional<String>>> eldest) {
+				return this.size() > MAX_ENTRIES;
+			}
+		};
+		private final Map<UUID, CompletableFuture<Optional<String>>> inFlight = new HashMap<>();
+
+		/**
+		 * @return the answer of this provider for a player. Never completes exceptionally: failures are no cape.
+		 */
+		CompletableFuture<Optional<String>> ask(UUID uuid, String username) {
+			CompletableFuture<Optional<String>> request;
+
+			synchronized (this.cache) {
+				CacheEntry<Optional<String>> cached = this.cache.get(uuid);
+
+				if (cached != null && cached.isExpired(System.currentTimeMillis(), CapeResolverImpl.this.cacheTime)) {
+					this.cache.remove(uuid);
+					cached = null;
+				}
+
+				FlightRecording.cacheLookup("cape", this.provider.getId(), uuid, cached != null);
+				if (cached != null) return CompletableFuture.completedFuture(cached.value);
+
+				request = this.inFlight.get(uuid);
+				if (request != null) return request;
+
+				request = new CompletableFuture<>();
+				this.inFlight.put(uuid, request);
+			}
+
+			CompletableFuture<Optional<String>> owned = request;
+
+			try {
+				CapeResolverImpl.this.executor.execute(() -> owned.complete(this.fetch(uuid, username)));
+			}
+			catch (RejectedExecutionException e) {
+				// answered as no cape for now, like a failure, so a later ask tries again
+				synchronized (this.cache) {
+					this.inFlight.remove(uuid);
+				}
+
+				owned.complete(Optional.empty());
+			}
+
+			return owned;
+		}
+
+		private Optional<String> fetch(UUID uuid, String username) {
+			Optional<String> cape = null;
+
+			try {
+				Optional<String> answer = this.provider.getCape(uuid, username);
+				// a provider answering null is taken to have no cape
+				cape = answer == null ? Optional.empty() : answer;
+				return cape;
+			}
+			catch (IOException | RuntimeException e) {
+				return Optional.empty();
+			}
+			finally {
+				synchronized (this.cache) {
+					this.inFlight.remove(uuid);
+					if (cape != null) this.cache.put(uuid, new CacheEntry<>(cape, System.currentTimeMillis()));
+				}
+			}
+		}
+
+		void invalidate(UUID uuid) {
+			synchronized (this.cache) {
+				this.cache.remove(uuid);
+			}
+		}
+	}
+}
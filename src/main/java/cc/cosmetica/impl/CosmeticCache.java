@@ -0,0 +1,318 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.impl;
+
+import cc.cosmetica.api.CosmeticaAPI;
+import cc.cosmetica.api.RequestPriority;
+import cc.cosmetica.api.ServerResponse;
+import cc.cosmetica.api.UserInfo;
+import cc.cosmetica.api.cosmetic.Cosmetic;
+import cc.cosmetica.api.cosmetic.CosmeticType;
+import cc.cosmetica.api.cosmetic.ShoulderBuddies;
+import cc.cosmetica.util.FlightRecording;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caches full cosmetics by type and id, shared by every api instance, so user info fetched without models can have its
+ * cosmetics filled in locally. Missing cosmetics are requested with {@link CosmeticaAPI#getCosmetic(CosmeticType, String)}
+ * by the first thread to need them, and other threads needing the same cosmetic meanwhile wait for that request.
+ * Cosmetics are cached for {@link CosmeticCache#CACHE_TIME}, and those read often are
+ * {@linkplain CacheEntry refreshed in the background} before they expire.
+ */
+public final class CosmeticCache {
+	private CosmeticCache() {
+	}
+
+	private static final int MAX_ENTRIES = 1024;
+	/**
+	 * The maximum number of cosmetics requested at once when resolving a single user's cosmetics.
+	 */
+	private static final int MAX_CONCURRENT_FETCHES = 4;
+	/**
+	 * How long cosmetics are cached for, in milliseconds.
+	 */
+	public static final long CACHE_TIME = 30 * 60 * 1000;
+
+	// guarded by CACHE
+	private static final Map<String, CacheEntry<Cosmetic>> CACHE = new LinkedHashMap<String, CacheEntry<Cosmetic>>(64, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CacheEntry<Cosmetic>> eldest) {
+			return this.size() > MAX_ENTRIES;
+		}
+	};
+	private static final Map<String, CompletableFuture<Optional<Cosmetic>>> IN_FLIGHT = new HashMap<>();
+
+	/**
+	 * Get the full cosmetic of the given type and id, requesting it on this thread if it is not cached and not already
+	 * being requested. Blocks until it has been retrieved.
+	 * @param api the api to request the cosmetic with on a miss.
+	 * @param type the type of the cosmetic.
+	 * @param id the id of the cosmetic.
+	 * @return the cosmetic, or empty if it could not be retrieved. Failures are not cached.
+	 */
+	public static Optional<Cosmetic> get(CosmeticaAPI api, CosmeticType<?> type, String id) {
+		Lookup lookup = lookup(api, type, id);
+		if (lookup.owned) fetch(api, type, id, lookup);
+		return lookup.result.join();
+	}
+
+	/**
+	 * Get the full cosmetic of the given type and id if it is cached, without requesting it.
+	 * @param type the type of the cosmetic.
+	 * @param id the id of the cosmetic.
+	 * @return the cosmetic, or empty if it is not cached.
+	 */
+	public static Optional<Cosmetic> getIfPresent(CosmeticType<?> type, String id) {
+		String key = type.getUrlString() + ':' + id;
+
+		synchronized (CACHE) {
+			CacheEntry<Cosmetic> cached = CACHE.get(key);
+			return cached == null || cached.isExpired(System.currentTimeMillis(), CACHE_TIME) ? Optional.empty() : Optional.of(cached.value);
+		}
+	}
+
+	/**
+	 * Fill in the hats, shoulder buddies, back bling and cosmetica cape of user info retrieved without models from the
+	 * cache. Missing cosmetics are requested concurrently, on this thread and the api's
+	 * {@linkplain CosmeticaAPI#getRequestExecutor() request executor}, unless another thread is already requesting them.
+	 * Blocks until they have all been retrieved. Any cosmetic which cannot be retrieved is left as it was.
+	 * @param api the api to request missing cosmetics with.
+	 * @param info the user info, retrieved with models excluded.
+	 * @return the user info with full cosmetics.
+	 */
+	public static UserInfo resolve(CosmeticaAPI api, UserInfo info) {
+		Map<Cosmetic, Lookup> lookups = new LinkedHashMap<>();
+
+		for (Cosmetic hat : info.getHats()) {
+			lookups.computeIfAbsent(hat, cosmetic -> lookup(api, cosmetic));
+		}
+
+		info.getShoulderBuddies().ifPresent(buddies -> {
+			buddies.getLeft().ifPresent(left -> lookups.computeIfAbsent(left, cosmetic -> lookup(api, cosmetic)));
+			buddies.getRight().ifPresent(right -> lookups.computeIfAbsent(right, cosmetic -> lookup(api, cosmetic)));
+		});
+
+		info.getBackBling().ifPresent(backBling -> lookups.computeIfAbsent(backBling, cosmetic -> lookup(api, cosmetic)));
+
+		// third party capes have no stable id to look up
+		info.getCape().filter(cape -> "Cosmetica".equals(cape.getOrigin())).ifPresent(cape -> lookups.computeIfAbsent(cape, cosmetic -> lookup(api, cosmetic)));
+
+		if (lookups.isEmpty()) return info;
+
+		// cosmetics are equal by type and id, so each is only requested once
+		List<Map.Entry<Cosmetic, Lookup>> owned = new ArrayList<>();
+
+		for (Map.Entry<Cosmetic, Lookup> entry : lookups.entrySet()) {
+			if (entry.getValue().owned) owned.add(entry);
+		}
+
+		fetchAll(api, owned);
+
+		List<Cosmetic> hats = new ArrayList<>(info.getHats().size());
+
+		for (Cosmetic hat : info.getHats()) {
+			hats.add(resolved(hat, lookups));
+		}
+
+		Optional<ShoulderBuddies> shoulderBuddies = info.getShoulderBuddies().map(buddies -> new ShoulderBuddiesImpl(
+				buddies.getLeft().map(left -> resolved(left, lookups)),
+				buddies.getRight().map(right -> resolved(right, lookups))
+		));
+
+		return new UserInfoImpl(
+				info.getSkin(),
+				info.isSlim(),
+				info.getLore(),
+				info.getPlatform(),
+				info.getRole(),
+				info.isUpsideDown(),
+				info.getPrefix(),
+				info.getSuffix(),
+				info.getClient().orElse(null),
+				info.isOnline(),
+				hats,
+				shoulderBuddies,
+				info.getBackBling().map(backBling -> resolved(backBling, lookups)),
+				info.getCape().map(cape -> resolved(cape, lookups)),
+				info.getIcon()
+		);
+	}
+
+	private static Lookup lookup(CosmeticaAPI api, Cosmetic cosmetic) {
+		return lookup(api, cosmetic.getType(), cosmetic.getId());
+	}
+
+	private static Lookup lookup(CosmeticaAPI api, CosmeticType<?> type, String id) {
+		String key = type.getUrlString() + ':' + id;
+		long now = System.currentTimeMillis();
+		CacheEntry<Cosmetic> cached;
+
+		synchronized (CACHE) {
+			cached = CACHE.get(key);
+
+			if (cached != null && cached.isExpired(now, CACHE_TIME)) {
+				CACHE.remove(key);
+				cached = null;
+			}
+
+			FlightRecording.cacheLookup("cosmetic", key, cached != null);
+
+			if (cached == null) {
+				CompletableFuture<Optional<Cosmetic>> inFlight = IN_FLIGHT.get(key);
+				if (inFlight != null) return new Lookup(key, inFlight, false);
+
+				inFlight = new CompletableFuture<>();
+				IN_FLIGHT.put(key, inFlight);
+				return new Lookup(key, inFlight, true);
+			}
+		}
+
+		if (cached.read(now, CACHE_TIME)) refresh(api, type, id, key, cached);
+		return new Lookup(key, CompletableFuture.completedFuture(Optional.of(cached.value)), false);
+	}
+
+	/**
+	 * Request the cosmetics this thread is responsible for concurrently. This thread takes part too, taking whichever
+	 * cosmetics have not yet been taken by the request executor, so never waits on a request which has not started.
+	 */
+	private static void fetchAll(CosmeticaAPI api, List<Map.Entry<Cosmetic, Lookup>> owned) {
+		AtomicInteger next = new AtomicInteger();
+
+		Runnable work = () -> {
+			int index;
+
+			while ((index = next.getAndIncrement()) < owned.size()) {
+				Map.Entry<Cosmetic, Lookup> entry = owned.get(index);
+				fetch(api, entry.getKey().getType(), entry.getKey().getId(), entry.getValue());
+			}
+		};
+
+		for (int i = 1; i < Math.min(owned.size(), MAX_CONCURRENT_FETCHES); i++) {
+			try {
+				api.async(a -> {
+					work.run();
+					return null;
+				});
+			}
+			catch (RejectedExecutionException e) {
+				// this thread will request them instead
+				break;
+			}
+		}
+
+		work.run();
+	}
+
+	/**
+	 * Request a cosmetic this thread is responsible for, and pass it to everyone waiting on it. Never throws, so
+	 * everyone waiting is always released.
+	 */
+	private static void fetch(CosmeticaAPI api, CosmeticType<?> type, String id, Lookup lookup) {
+		Cosmetic cosmetic = null;
+
+		try {
+			ServerResponse<? extends Cosmetic> response = api.getCosmetic(type, id);
+			if (response.isSuccessful()) cosmetic = response.get();
+		}
+		catch (RuntimeException e) {
+			// treated as not retrieved, and not cached
+		}
+		finally {
+			synchronized (CACHE) {
+				IN_FLIGHT.remove(lookup.key);
+				if (cosmetic != null) CACHE.put(lookup.key, new CacheEntry<>(cosmetic, System.currentTimeMillis()));
+			}
+
+			lookup.result.complete(Optional.ofNullable(cosmetic));
+		}
+	}
+
+	/**
+	 * Request a hot cosmetic again in the background, replacing its entry once retrieved.
+	 */
+	private static void refresh(CosmeticaAPI api, CosmeticType<?> type, String id, String key, CacheEntry<Cosmetic> entry) {
+		final CompletableFuture<? extends ServerResponse<? extends Cosmetic>> refreshed;
+
+		try {
+			refreshed = api.async(a -> a.withPriority(RequestPriority.BULK, b -> b.getCosmetic(type, id)));
+		}
+		catch (RejectedExecutionException e) {
+			// a later read will try again
+			entry.refreshFailed();
+			return;
+		}
+
+		refreshed.whenComplete((response, error) -> {
+			if (response != null && response.isSuccessful()) {
+				synchronized (CACHE) {
+					// unless it has since been replaced or cleared
+					if (CACHE.get(key) == entry) CACHE.put(key, new CacheEntry<>(response.get(), System.currentTimeMillis()));
+				}
+			}
+			else {
+				entry.refreshFailed();
+			}
+		});
+	}
+
+	private static Cosmetic resolved(Cosmetic cosmetic, Map<Cosmetic, Lookup> lookups) {
+		Lookup lookup = lookups.get(cosmetic);
+		return lookup == null ? cosmetic : lookup.result.join().orElse(cosmetic);
+	}
+
+	/**
+	 * @return the number of cosmetics cached.
+	 */
+	public static int size() {
+		synchronized (CACHE) {
+			return CACHE.size();
+		}
+	}
+
+	/**
+	 * Remove all cached cosmetics.
+	 */
+	public static void clear() {
+		synchronized (CACHE) {
+			CACHE.clear();
+		}
+	}
+
+	private static class Lookup {
+		private Lookup(String key, CompletableFuture<Optional<Cosmetic>> result, boolean owned) {
+			this.key = key;
+			this.result = result;
+			this.owned = owned;
+		}
+
+		private final String key;
+		private final CompletableFuture<Optional<Cosmetic>> result;
+		/**
+		 * Whether the thread which looked this up is responsible for requesting it.
+		 */
+		private final boolean owned;
+	}
+}
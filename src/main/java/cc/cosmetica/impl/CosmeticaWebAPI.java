@@ -17,6 +17,7 @@
 package cc.cosmetica.impl;
 
 import cc.cosmetica.api.*;
+import cc.cosmetica.api.RequestEvent.Endpoint;
 import cc.cosmetica.api.cosmetic.Cosmetic;
 import cc.cosmetica.api.cosmetic.CosmeticType;
 import cc.cosmetica.api.cosmetic.LoreType;
@@ -29,9 +30,16 @@ import cc.cosmetica.api.settings.CapeServer;
 import cc.cosmetica.api.settings.IconSettings;
 import cc.cosmetica.api.settings.UserSettings;
 import cc.cosmetica.impl.cosmetic.AbstractCosmetic;
+import cc.cosmetica.util.FlightRecording;
 import cc.cosmetica.util.HostProvider;
+import cc.cosmetica.util.RequestExecutors;
+import cc.cosmetica.util.RequestScheduler;
 import cc.cosmetica.util.Response;
 import cc.cosmetica.util.SafeURL;
+import cc.cosmetica.util.SlicedJson;
+import cc.cosmetica.util.Transport;
+import cc.cosmetica.util.Transports;
+import cc.cosmetica.util.UrlTemplate;
 import cc.cosmetica.util.Yootil;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
@@ -42,19 +50,26 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalLong;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 public class CosmeticaWebAPI implements CosmeticaAPI {
 	private CosmeticaWebAPI(@Nullable String masterToken, @Nullable String limited) {
@@ -64,9 +79,15 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 		this.apiHostProvider = apiHostProviderTemplate.clone();
 	}
 
-	private CosmeticaWebAPI(UUID uuid, String limitedToken, @Nullable String client) throws FatalServerErrorException, IOException {
+	private CosmeticaWebAPI(HostProvider apiHostProvider) {
+		this.loginInfo = Optional.empty();
+		this.apiHostProvider = apiHostProvider;
+	}
+
+	private CosmeticaWebAPI(UUID uuid, String limitedToken, @Nullable String client, LoginTimings timings) throws FatalServerErrorException, IOException {
 		this.apiHostProvider = apiHostProviderTemplate.clone();
-		this.loginInfo = Optional.of(this.exchangeTokens(uuid, limitedToken, client));
+		this.loginInfo = Optional.of(this.exchangeTokens(uuid, limitedToken, client, timings));
+		this.ownUuid = uuid;
 	}
 
 	private final Optional<LoginInfo> loginInfo;
@@ -74,13 +95,35 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 	private String masterToken;
 	private String limitedToken;
 	private int timeout = 20 * 1000;
-	private Consumer<String> urlLogger = s -> {};
+	@Nullable
+	private volatile RequestListener requestListener;
+	@Nullable
+	private RequestListener customRequestListener;
+	@Nullable
+	private RequestListener urlLoggerListener;
+	private Executor requestExecutor;
+	@Nullable
+	private volatile UserInfoCache userInfoCache;
+	private long maxStaleness;
+	/**
+	 * The settings of the user this instance is authenticated as, cached alongside user info.
+	 */
+	@Nullable
+	private volatile CacheEntry<UserSettings> settingsEntry;
+	/**
+	 * The uuid of the user this instance is authenticated as, if known, for patching their cached user info after writes.
+	 */
+	@Nullable
+	private volatile UUID ownUuid;
+	@Nullable
+	private volatile NegativeUserInfoCache negativeUserInfoCache;
 
 	private boolean forceHttps() {
 		return this.apiHostProvider.isForceHttps();
 	}
 
-	private LoginInfo exchangeTokens(UUID uuid, String authToken, @Nullable String client) throws IllegalStateException, FatalServerErrorException, IOException {
+	private LoginInfo exchangeTokens(UUID uuid, String authToken, @Nullable String client, LoginTimings timings) throws IllegalStateException, FatalServerErrorException, IOException {
+		long start = System.nanoTime();
 		SafeURL url = SafeURL.of(this.apiHostProvider.getSecureUrl() + "/client/verifyforauthtokens?uuid=" + uuid + "&client=" + Yootil.urlEncode(client), authToken);
 
 		try (Response response = Response.get(url, this.timeout)) {
@@ -92,7 +135,8 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 
 			this.masterToken = object.get("master_token").getAsString();
 			this.limitedToken = object.get("limited_token").getAsString();
-			return new LoginInfo(object.get("is_new_player").getAsBoolean(), object.has("has_special_cape") ? object.get("has_special_cape").getAsBoolean() : false);
+			timings = new LoginTimings(timings.getDiscovery(), timings.getKeyFetch(), timings.wasKeyReady(), timings.getSessionJoin(), timings.getVerify(), millisSince(start));
+			return new LoginInfo(object.get("is_new_player").getAsBoolean(), object.has("has_special_cape") ? object.get("has_special_cape").getAsBoolean() : false, timings);
 		}
 	}
 
@@ -103,37 +147,85 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 
 	@Override
 	public ServerResponse<VersionInfo> checkVersion(String minecraftVersion, String cosmeticaVersion) {
-		SafeURL versionCheck = createTokenless("/v2/get/versioncheck?modversion="
-				+ Yootil.urlEncode(cosmeticaVersion)
-				+ "&mcversion=" + Yootil.urlEncode(minecraftVersion), OptionalLong.empty());
+		SafeURL versionCheck = createTokenless(VERSION_CHECK.begin()
+				.param(Yootil.urlEncode(cosmeticaVersion))
+				.param(Yootil.urlEncode(minecraftVersion)), OptionalLong.empty());
 
-		this.urlLogger.accept(versionCheck.safeUrl());
-
-		try (Response response = Response.get(versionCheck, this.timeout)) {
+		return this.request(Endpoint.VERSION_CHECK, versionCheck, response -> {
 			JsonObject s = response.getAsJson();
-			return new ServerResponse<>(new VersionInfo(
+			return new VersionInfo(
 					s.get("needsUpdate").getAsBoolean(),
 					s.get("isVital").getAsBoolean(),
 					s.get("minecraftMessage").getAsString(),
 					s.get("plainMessage").getAsString(),
 					s.get("megaInvasiveTutorial").getAsBoolean()
-			), versionCheck);
-		} catch (IOException ie) {
-			return new ServerResponse<>(ie, versionCheck);
-		} catch (RuntimeException e) {
-			return new ServerResponse<>(e, versionCheck);
-		}
+			);
+		});
 	}
 
 	@Override
 	public ServerResponse<UserInfo> getUserInfo(@Nullable UUID uuid, @Nullable String username, boolean noThirdParty, boolean excludeModels, boolean forceShow) throws IllegalArgumentException {
 		if (uuid == null && username == null) throw new IllegalArgumentException("Both uuid and username are null!");
 
-		SafeURL target = createLimited("/v2/get/info?username=" + Yootil.urlEncode(username) + "&uuid=" + Yootil.urlEncode(uuid) + Yootil.urlFlag("nothirdparty", noThirdParty) + Yootil.urlFlag("excludemodels", excludeModels) + Yootil.urlFlag("forceshow", forceShow));
-		this.urlLogger.accept(target.safeUrl());
+		SafeURL target = this.userInfoTarget(uuid, username, noThirdParty, excludeModels, forceShow);
+
+		UserInfoCache cache = this.userInfoCache;
+		boolean cacheable = cache != null && uuid != null && !forceShow;
+
+		if (cacheable) {
+			Optional<ServerResponse<UserInfo>> cached = cache.get(uuid, noThirdParty, excludeModels, target);
+			if (cached.isPresent()) return cached.get();
+		}
+
+		NegativeUserInfoCache negativeCache = this.negativeUserInfoCache;
+		boolean negativeCacheable = negativeCache != null && uuid != null && !forceShow;
+
+		if (negativeCacheable) {
+			Optional<UserInfo> cached = negativeCache.get(uuid);
+			if (cached.isPresent()) return new ServerResponse<>(cached.get(), target);
+		}
+
+		ServerResponse<UserInfo> result = this.requestUserInfo(target);
+
+		if (cacheable) {
+			if (result.isSuccessful()) {
+				cache.put(uuid, result.get(), noThirdParty, excludeModels);
+			}
+			else if (isServerFailure(result)) {
+				Optional<ServerResponse<UserInfo>> stale = cache.getStale(uuid, noThirdParty, excludeModels, target);
+				if (stale.isPresent()) return stale.get();
+			}
+		}
+
+		// without third party capes, a user with nothing may still have an optifine cape
+		if (negativeCacheable && !noThirdParty) {
+			result.ifSuccessful(info -> negativeCache.record(uuid, info));
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return whether the request failed because the server could not be reached or failed, rather than refusing it.
+	 */
+	private static boolean isServerFailure(ServerResponse<?> response) {
+		Exception e = response.getException();
+		return e instanceof UncheckedIOException || e instanceof FatalServerErrorException;
+	}
 
-		try (Response response = Response.get(target, this.timeout)) {
-			JsonObject jsonObject = response.getAsJson();
+	private SafeURL userInfoTarget(@Nullable UUID uuid, @Nullable String username, boolean noThirdParty, boolean excludeModels, boolean forceShow) {
+		return createLimited(USER_INFO.begin()
+				.param(Yootil.urlEncode(username))
+				.param(Yootil.urlEncode(uuid))
+				.flag("nothirdparty", noThirdParty)
+				.flag("excludemodels", excludeModels)
+				.flag("forceshow", forceShow));
+	}
+
+	private ServerResponse<UserInfo> requestUserInfo(SafeURL target) {
+		return this.request(Endpoint.USER_INFO, target, response -> {
+			SlicedJson document = response.getAsSlicedJson(AbstractCosmetic.HEAVY_FIELDS);
+			JsonObject jsonObject = document.getJson().getAsJsonObject();
 			checkErrors(target, jsonObject);
 
 			JsonArray hats = jsonObject.has("hats") ? jsonObject.get("hats").getAsJsonArray() : null;
@@ -145,14 +237,14 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 
 			if (shoulderBuddies != null) {
 				sbObj = Optional.of(new ShoulderBuddiesImpl(
-						AbstractCosmetic.parse(shoulderBuddies.has("left") ? shoulderBuddies.get("left").getAsJsonObject() : null),
-						AbstractCosmetic.parse(shoulderBuddies.has("right") ? shoulderBuddies.get("right").getAsJsonObject() : null)
+						AbstractCosmetic.parse(shoulderBuddies.has("left") ? shoulderBuddies.get("left").getAsJsonObject() : null, document),
+						AbstractCosmetic.parse(shoulderBuddies.has("right") ? shoulderBuddies.get("right").getAsJsonObject() : null, document)
 				));
 			}
 
 			JsonObject icon = jsonObject.get("icon").getAsJsonObject();
 
-			return new ServerResponse<>(new UserInfoImpl(
+			return new UserInfoImpl(
 					Yootil.readNullableJsonString(jsonObject.get("skin")),
 					jsonObject.get("slim").getAsBoolean(),
 					jsonObject.get("lore").getAsString(),
@@ -163,25 +255,27 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 					jsonObject.get("suffix").getAsString(),
 					Yootil.readNullableJsonString(icon.get("client")),
 					icon.get("online").getAsBoolean(),
-					hats == null ? new ArrayList<>() : Yootil.flatMapObjects(hats, AbstractCosmetic::parse),
+					hats == null ? new ArrayList<>() : Yootil.flatMapObjects(hats, hat -> AbstractCosmetic.parse(hat, document)),
 					sbObj,
-					AbstractCosmetic.parse(backBling),
-					AbstractCosmetic.parse(cloak),
+					AbstractCosmetic.parse(backBling, document),
+					AbstractCosmetic.parse(cloak, document),
 					icon.get("icon").getAsString()
-			), target);
-		} catch (IOException ie) {
-			return new ServerResponse<>(ie, target);
-		} catch (RuntimeException e) {
-			return new ServerResponse<>(e, target);
-		}
+			);
+		});
 	}
 
 	@Override
 	public ServerResponse<UserSettings> getUserSettings() {
-		SafeURL target = createLimited("/v2/get/settings");
-		this.urlLogger.accept(target.safeUrl());
+		SafeURL target = createLimited(USER_SETTINGS.begin());
+		UserInfoCache cache = this.userInfoCache;
+		CacheEntry<UserSettings> cached = this.settingsEntry;
+		long now = System.currentTimeMillis();
+
+		if (cache != null && cached != null && !cached.isExpired(now, cache.getCacheTime())) {
+			return new ServerResponse<>(cached.value, target, now - cached.storedAt, false);
+		}
 
-		try (Response response = Response.get(target, this.timeout)) {
+		ServerResponse<UserSettings> result = this.request(Endpoint.USER_SETTINGS, target, response -> {
 			JsonObject data = response.getAsJson();
 			checkErrors(target, data);
 
@@ -200,7 +294,7 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 				));
 			}
 
-			return new ServerResponse<>(new UserSettingsImpl(
+			return new UserSettingsImpl(
 					Yootil.toUUID(data.get("uuid").getAsString()),
 					// cosmetics
 					data.get("doHats").getAsBoolean(),
@@ -217,16 +311,68 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 					data.get("panorama").getAsInt(),
 					data.get("onlineActivity").getAsBoolean(),
 					oCapeServerSettings
-			), target);
-		}
-		catch (IOException ie) {
-			return new ServerResponse<>(ie, target);
+			);
+		});
+
+		result.ifSuccessful(settings -> {
+			this.ownUuid = settings.getUUID();
+			if (cache != null) this.settingsEntry = new CacheEntry<>(settings, System.currentTimeMillis());
+		});
+
+		return result;
+	}
+
+	/**
+	 * @return the cached settings of the user this instance is authenticated as, if fresh.
+	 */
+	@Nullable
+	private UserSettings cachedSettings() {
+		UserInfoCache cache = this.userInfoCache;
+		CacheEntry<UserSettings> cached = this.settingsEntry;
+		return cache == null || cached == null || cached.isExpired(System.currentTimeMillis(), cache.getCacheTime()) ? null : cached.value;
+	}
+
+	/**
+	 * Forget the cached user info and settings of the user this instance is authenticated as, after a write with effects
+	 * which cannot be patched in.
+	 */
+	private void invalidateOwn() {
+		this.settingsEntry = null;
+		UUID uuid = this.ownUuid;
+		UserInfoCache cache = this.userInfoCache;
+		NegativeUserInfoCache negativeCache = this.negativeUserInfoCache;
+
+		if (uuid != null) {
+			if (cache != null) cache.invalidate(uuid);
+			if (negativeCache != null) negativeCache.invalidate(uuid);
 		}
-		catch (RuntimeException e) {
-			return new ServerResponse<>(e, target);
+	}
+
+	/**
+	 * Patch the cached user info of the user this instance is authenticated as, or invalidate it if the effect cannot be
+	 * known, including when their settings are not cached to say whether the change is shown.
+	 * @param patch patches the user info, given their settings and whether it excludes models.
+	 */
+	private void patchOwn(OwnPatch patch) {
+		UUID uuid = this.ownUuid;
+		UserInfoCache cache = this.userInfoCache;
+		NegativeUserInfoCache negativeCache = this.negativeUserInfoCache;
+		if (uuid == null) return;
+
+		if (negativeCache != null) negativeCache.invalidate(uuid);
+
+		if (cache != null) {
+			UserSettings settings = this.cachedSettings();
+
+			if (settings == null) cache.invalidate(uuid);
+			else cache.patch(uuid, (info, excludeModels) -> patch.apply(info, settings, excludeModels));
 		}
 	}
 
+	private interface OwnPatch {
+		Optional<UserInfo> apply(UserInfo info, UserSettings settings, boolean excludeModels);
+	}
+
 	/**
 	 * Generics hack.
 	 * @param <T> the class to force it to reference through generics so the darn thing compiles.
@@ -241,76 +387,64 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 		}
 	}
 
-	private <T extends Cosmetic> ServerResponse<CosmeticsPage<T>> getCosmeticsPage(SafeURL url, GeneralCosmeticType<T> cosmeticType) {
-		this.urlLogger.accept(url.safeUrl());
-
-		try (Response response = Response.get(url, this.timeout)) {
-			JsonObject json = response.getAsJson();
+	private <T extends Cosmetic> ServerResponse<CosmeticsPage<T>> getCosmeticsPage(Endpoint endpoint, SafeURL url, GeneralCosmeticType<T> cosmeticType) {
+		return this.request(endpoint, url, response -> {
+			SlicedJson document = response.getAsSlicedJson(AbstractCosmetic.HEAVY_FIELDS);
+			JsonObject json = document.getJson().getAsJsonObject();
 			checkErrors(url, json);
 
 			boolean nextPage = json.get("nextPage").getAsBoolean();
 			List<T> cosmetics = new ArrayList<>();
 
 			for (JsonElement element : json.getAsJsonArray("list")) {
-				cosmetics.add((T) AbstractCosmetic.parse(element.getAsJsonObject()).get());
+				cosmetics.add((T) AbstractCosmetic.parse(element.getAsJsonObject(), document).get());
 			}
 
-			return new ServerResponse<>(new CosmeticsPage<>(cosmetics, nextPage), url);
-		}
-		catch (IOException ie) {
-			return new ServerResponse<>(ie, url);
-		}
-		catch (RuntimeException e) {
-			return new ServerResponse<>(e, url);
-		}
+			return new CosmeticsPage<>(cosmetics, nextPage);
+		});
 	}
 
 	@Override
 	public <T extends Cosmetic> ServerResponse<CosmeticsPage<T>> getRecentCosmetics(CosmeticType<T> type, int page, int pageSize, @NotNull String query) {
-		SafeURL url = createTokenless("/get/recentcosmetics?type=" + type.getUrlString() + "&page=" + page + "&pagesize=" + pageSize + "&query=" + Yootil.base64(query), OptionalLong.empty());
-		return getCosmeticsPage(url, GeneralCosmeticType.from(type));
+		SafeURL url = createTokenless(RECENT_COSMETICS.begin().param(type.getUrlString()).param(page).param(pageSize).param(Yootil.base64(query)), OptionalLong.empty());
+		return getCosmeticsPage(Endpoint.RECENT_COSMETICS, url, GeneralCosmeticType.from(type));
 	}
 
 	@Override
 	public ServerResponse<CosmeticsPage<Cosmetic>> getPopularCosmetics(int page, int pageSize) {
-		SafeURL url = createTokenless("/get/popularcosmetics?page=" + page + "&pagesize=" + pageSize, OptionalLong.empty());
-		return getCosmeticsPage(url, GeneralCosmeticType.any());
+		SafeURL url = createTokenless(POPULAR_COSMETICS.begin().param(page).param(pageSize), OptionalLong.empty());
+		return getCosmeticsPage(Endpoint.POPULAR_COSMETICS, url, GeneralCosmeticType.any());
 	}
 
 	@Override
 	public ServerResponse<CosmeticsPage<Cosmetic>> getOfficialCosmetics(int page, int pageSize) {
-		SafeURL url = createTokenless("/get/systemcosmetics?page=" + page + "&pagesize=" + pageSize, OptionalLong.empty());
-		return getCosmeticsPage(url, GeneralCosmeticType.any());
+		SafeURL url = createTokenless(OFFICIAL_COSMETICS.begin().param(page).param(pageSize), OptionalLong.empty());
+		return getCosmeticsPage(Endpoint.OFFICIAL_COSMETICS, url, GeneralCosmeticType.any());
 	}
 
 	@Override
 	public ServerResponse<CosmeticsPage<Cosmetic>> getPendingCosmetics() {
-		SafeURL url = createLimited("/get/unverifiedcosmetics");
+		SafeURL url = createLimited(PENDING_COSMETICS.begin());
 
-		try (Response response = Response.get(url)) {
+		return this.request(Endpoint.PENDING_COSMETICS, url, response -> {
+			SlicedJson document = response.getAsSlicedJson(AbstractCosmetic.HEAVY_FIELDS);
 			List<Cosmetic> cosmetics = new ArrayList<>();
 
-			for (JsonElement element : response.getAsJsonArray()) {
-				AbstractCosmetic.parse(element.getAsJsonObject()).ifPresent(cosmetics::add);
+			for (JsonElement element : document.getJson().getAsJsonArray()) {
+				AbstractCosmetic.parse(element.getAsJsonObject(), document).ifPresent(cosmetics::add);
 			}
 
-			return new ServerResponse<>(new CosmeticsPage<>(cosmetics, false), url);
-		} catch (IOException ie) {
-			return new ServerResponse<>(ie, url);
-		} catch (RuntimeException e) {
-			return new ServerResponse<>(e, url);
-		}
+			return new CosmeticsPage<>(cosmetics, false);
+		});
 	}
 
 	@Override
 	public ServerResponse<List<OwnedCosmetic>> getCosmeticsOwnedBy(@Nullable UUID uuid, @Nullable String username) {
 		if (uuid == null && username == null) throw new IllegalArgumentException("Both uuid and username are null!");
 
-		SafeURL url = createMinimalLimited("/get/userownedcosmetics?user=" + Yootil.firstNonNull(uuid, username));
+		SafeURL url = createMinimalLimited(OWNED_COSMETICS.begin().param(String.valueOf(Yootil.firstNonNull(uuid, username))));
 
-		this.urlLogger.accept(url.safeUrl());
-
-		try (Response response = Response.get(url, this.timeout)) {
+		return this.request(Endpoint.OWNED_COSMETICS, url, response -> {
 			JsonElement json = response.getAsJsonElement();
 
 			// if an object can only be an error
@@ -325,59 +459,34 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 				cosmetics.add(OwnedCosmeticImpl.parse(element.getAsJsonObject()));
 			}
 
-			return new ServerResponse<>(cosmetics, url);
-		}
-		catch (IOException ie) {
-			return new ServerResponse<>(ie, url);
-		}
-		catch (RuntimeException e) {
-			return new ServerResponse<>(e, url);
-		}
+			return cosmetics;
+		});
 	}
 
 	@Override
 	public ServerResponse<List<String>> getLoreList(LoreType type) throws IllegalArgumentException {
 		if (type == LoreType.DISCORD || type == LoreType.TWITCH || type == LoreType.NONE) throw new IllegalArgumentException("Invalid lore type for getLoreList: " + type);
 
-		SafeURL url = createLimited("/get/lorelists?type=" + type.toString().toLowerCase(Locale.ROOT));
-		this.urlLogger.accept(url.safeUrl());
-
-		try (Response response = Response.get(url, this.timeout)) {
-			return new ServerResponse<>(Yootil.toStringList(getAsArray(url, response.getAsJsonElement())), url);
-		}
-		catch (IOException ie) {
-			return new ServerResponse<>(ie, url);
-		}
-		catch (RuntimeException e) {
-			return new ServerResponse<>(e, url);
-		}
+		SafeURL url = createLimited(LORE_LIST.begin().param(type.toString().toLowerCase(Locale.ROOT)));
+		return this.request(Endpoint.LORE_LIST, url, response -> Yootil.toStringList(getAsArray(url, response.getAsJsonElement())));
 	}
 
 	@Override
 	public <T extends Cosmetic> ServerResponse<T> getCosmetic(CosmeticType<T> type, String id) {
-		SafeURL url = createTokenless("/get/cosmetic?type=" + type.getUrlString() + "&id=" + id, OptionalLong.empty());
-		this.urlLogger.accept(url.safeUrl());
-
-		try (Response response = Response.get(url, this.timeout)) {
-			JsonObject json = response.getAsJson();
+		SafeURL url = createTokenless(COSMETIC.begin().param(type.getUrlString()).param(id), OptionalLong.empty());
+		return this.request(Endpoint.COSMETIC, url, response -> {
+			SlicedJson document = response.getAsSlicedJson(AbstractCosmetic.HEAVY_FIELDS);
+			JsonObject json = document.getJson().getAsJsonObject();
 			checkErrors(url, json);
 
-			return new ServerResponse<>((T) AbstractCosmetic.parse(json).get(), url);
-		}
-		catch (IOException ie) {
-			return new ServerResponse<>(ie, url);
-		}
-		catch (RuntimeException e) {
-			return new ServerResponse<>(e, url);
-		}
+			return (T) AbstractCosmetic.parse(json, document).get();
+		});
 	}
 
 	@Override
 	public ServerResponse<List<Panorama>> getPanoramas() {
-		SafeURL url = createLimited("/get/panoramas");
-		this.urlLogger.accept(url.safeUrl());
-
-		try (Response response = Response.get(url, this.timeout)) {
+		SafeURL url = createLimited(PANORAMAS.begin());
+		return this.request(Endpoint.PANORAMAS, url, response -> {
 			JsonArray json = getAsArray(url, response.getAsJsonElement());
 			List<Panorama> result = new ArrayList<>();
 
@@ -386,23 +495,15 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 				result.add(new Panorama(pano.get("id").getAsInt(), pano.get("name").getAsString(), pano.get("free").getAsBoolean()));
 			}
 
-			return new ServerResponse<>(result, url);
-		}
-		catch (IOException ie) {
-			return new ServerResponse<>(ie, url);
-		}
-		catch (RuntimeException e) {
-			return new ServerResponse<>(e, url);
-		}
+			return result;
+		});
 	}
 
 	@Override
 	public ServerResponse<CosmeticsUpdates> everyThirtySecondsInAfricaHalfAMinutePasses(InetSocketAddress serverAddress, long timestamp) throws IllegalArgumentException {
-		SafeURL awimbawe = create("/get/everythirtysecondsinafricahalfaminutepasses?ip=" + Yootil.base64Ip(serverAddress), OptionalLong.of(timestamp));
+		SafeURL awimbawe = create(UPDATES.begin().param(Yootil.base64Ip(serverAddress)), OptionalLong.of(timestamp));
 
-		this.urlLogger.accept(awimbawe.safeUrl());
-
-		try (Response theLionSleepsTonight = Response.get(awimbawe, this.timeout)) {
+		return this.request(Endpoint.UPDATES, awimbawe, theLionSleepsTonight -> {
 			JsonObject theMightyJungle = theLionSleepsTonight.getAsJson();
 			checkErrors(awimbawe, theMightyJungle);
 
@@ -434,54 +535,51 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 				}
 			}
 
-			return new ServerResponse<>(new CosmeticsUpdates(notifications, users, updates.get("timestamp").getAsLong()), awimbawe);
-		}
-		catch (IOException ie) {
-			return new ServerResponse<>(ie, awimbawe);
-		}
-		catch (RuntimeException e) {
-			return new ServerResponse<>(e, awimbawe);
-		}
+			UserInfoCache cache = this.userInfoCache;
+			NegativeUserInfoCache negativeCache = this.negativeUserInfoCache;
+
+			for (User user : users) {
+				if (cache != null) cache.invalidate(user.getUUID());
+				if (negativeCache != null) negativeCache.invalidate(user.getUUID());
+			}
+
+			return new CosmeticsUpdates(notifications, users, updates.get("timestamp").getAsLong());
+		});
 	}
 
 	// Client/ endpoints
 
-	private ServerResponse<String> requestSet(SafeURL target) {
-		this.urlLogger.accept(target.safeUrl());
-
-		try (Response response = Response.get(target, this.timeout)) {
+	private ServerResponse<String> requestSet(Endpoint endpoint, SafeURL target) {
+		return this.request(endpoint, target, response -> {
 			JsonObject json = response.getAsJson();
 			checkErrors(target, json);
-			return new ServerResponse<>(json.get("success").getAsString(), target);
-		}
-		catch (IOException ie) {
-			return new ServerResponse<>(ie, target);
-		}
-		catch (RuntimeException e) {
-			return new ServerResponse<>(e, target);
-		}
+			return json.get("success").getAsString();
+		});
 	}
 
-	private ServerResponse<Boolean> requestSetZ(SafeURL target) {
-		this.urlLogger.accept(target.safeUrl());
-
-		try (Response response = Response.get(target, this.timeout)) {
+	private ServerResponse<Boolean> requestSetZ(Endpoint endpoint, SafeURL target) {
+		return this.request(endpoint, target, response -> {
 			JsonObject json = response.getAsJson();
 			checkErrors(target, json);
-			return new ServerResponse<>(json.get("success").getAsBoolean(), target);
-		}
-		catch (IOException ie) {
-			return new ServerResponse<>(ie, target);
-		}
-		catch (RuntimeException e) {
-			return new ServerResponse<>(e, target);
-		}
+			return json.get("success").getAsBoolean();
+		});
 	}
 
 	@Override
 	public ServerResponse<Boolean> setCosmetic(CosmeticPosition position, String id, boolean requireOfficial) {
-		SafeURL target = create("/client/setcosmetic?type=" + position.getUrlString() + "&id=" + id + (requireOfficial ? "&requireofficial" : ""), OptionalLong.empty());
-		return requestSetZ(target);
+		SafeURL target = create(SET_COSMETIC.begin().param(position.getUrlString()).param(id).flag("requireofficial", requireOfficial), OptionalLong.empty());
+		ServerResponse<Boolean> result = requestSetZ(Endpoint.SET_COSMETIC, target);
+
+		if (result.isSuccessful() && result.get()) {
+			Optional<Cosmetic> cosmetic = "none".equals(id) ? Optional.empty() : CosmeticCache.getIfPresent(position.getType(), id);
+
+			this.patchOwn((info, settings, excludeModels) -> {
+				if (!OptimisticPatches.shows(settings, position) || (!"none".equals(id) && !cosmetic.isPresent())) return Optional.empty();
+				return OptimisticPatches.withCosmetic(info, position, cosmetic.orElse(null), excludeModels);
+			});
+		}
+
+		return result;
 	}
 
 	@Override
@@ -490,22 +588,27 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 			throw new IllegalArgumentException("Cannot set cosmetic status to \"Unknown\"");
 		}
 
-		SafeURL target = create("/client/cosmeticstatus?type=" + type.getUrlString() + "&id=" + id + "&value=" + state.getId() + "&reason=" + Yootil.base64(reason), OptionalLong.empty());
-		return requestSetZ(target);
+		SafeURL target = create(SET_COSMETIC_STATUS.begin().param(type.getUrlString()).param(id).param(state.getId()).param(Yootil.base64(reason)), OptionalLong.empty());
+		return requestSetZ(Endpoint.SET_COSMETIC_STATUS, target);
 	}
 
 	@Override
 	public ServerResponse<Boolean> updateExtraInfo(CosmeticType<?> type, String cosmeticId, int extraInfo) {
-		SafeURL target = create("/client/modifyextrainfo?type=" + type.getUrlString() + "&id=" + cosmeticId + "&extrainfo=" + extraInfo, OptionalLong.empty());
-		return requestSetZ(target);
+		SafeURL target = create(UPDATE_EXTRA_INFO.begin().param(type.getUrlString()).param(cosmeticId).param(extraInfo), OptionalLong.empty());
+		return requestSetZ(Endpoint.UPDATE_EXTRA_INFO, target);
 	}
 
 	@Override
 	public ServerResponse<String> setLore(LoreType type, String lore) throws IllegalArgumentException {
 		if (type == LoreType.DISCORD || type == LoreType.TWITCH) throw new IllegalArgumentException("Invalid lore type for setLore(LoreType, String): " + type);
 
-		SafeURL target = create("/client/setlore?type=" + type.toString().toLowerCase(Locale.ROOT) + "&value=" + Yootil.base64(Yootil.urlEncode(lore)), OptionalLong.empty());
-		return requestSet(target);
+		SafeURL target = create(SET_LORE.begin().param(type.toString().toLowerCase(Locale.ROOT)).param(Yootil.base64(Yootil.urlEncode(lore))), OptionalLong.empty());
+		ServerResponse<String> result = requestSet(Endpoint.SET_LORE, target);
+
+		result.ifSuccessful(newLore -> this.patchOwn((info, settings, excludeModels) ->
+				settings.doLore() ? Optional.of(OptimisticPatches.withLore(info, newLore)) : Optional.empty()));
+
+		return result;
 	}
 
 	@Override
@@ -515,33 +618,51 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 
 	@Override
 	public ServerResponse<Boolean> setPanorama(int id) {
-		SafeURL target = create("/client/setpanorama?panorama=" + id, OptionalLong.empty());
-		return requestSetZ(target);
+		SafeURL target = create(SET_PANORAMA.begin().param(id), OptionalLong.empty());
+		ServerResponse<Boolean> result = requestSetZ(Endpoint.SET_PANORAMA, target);
+
+		if (result.isSuccessful() && result.get()) {
+			CacheEntry<UserSettings> cached = this.settingsEntry;
+			if (cached != null) this.settingsEntry = new CacheEntry<>(OptimisticPatches.withPanorama(cached.value, id), cached.storedAt);
+		}
+
+		return result;
 	}
 
 	@Override
 	public ServerResponse<Map<String, CapeDisplay>> setCapeServerSettings(Map<String, CapeDisplay> settings) {
-		SafeURL target = create("/client/capesettings?" + settings.entrySet().stream().map(entry -> entry.getKey() + "=" + entry.getValue().id).collect(Collectors.joining("&")), OptionalLong.empty());
-		this.urlLogger.accept(target.safeUrl());
+		UrlTemplate.Builder url = SET_CAPE_SERVER_SETTINGS.begin();
+
+		for (Map.Entry<String, CapeDisplay> entry : settings.entrySet()) {
+			url.query(entry.getKey(), entry.getValue().id);
+		}
 
-		try (Response response = Response.get(target, this.timeout)) {
+		SafeURL target = create(url, OptionalLong.empty());
+		ServerResponse<Map<String, CapeDisplay>> result = this.request(Endpoint.SET_CAPE_SERVER_SETTINGS, target, response -> {
 			JsonObject obj = response.getAsJson();
 			checkErrors(target, obj);
 
-			return new ServerResponse<>(Yootil.mapObject(obj.get("success").getAsJsonObject(), element -> CapeDisplay.byId(element.getAsInt())), target);
-		}
-		catch (IOException ie) {
-			return new ServerResponse<>(ie, target);
-		}
-		catch (RuntimeException e) {
-			return new ServerResponse<>(e, target);
-		}
+			return Yootil.mapObject(obj.get("success").getAsJsonObject(), element -> CapeDisplay.byId(element.getAsInt()));
+		});
+
+		// changes which cape is shown, which cannot be known locally
+		if (result.isSuccessful()) this.invalidateOwn();
+		return result;
 	}
 
 	@Override
 	public ServerResponse<Boolean> updateUserSettings(Map<String, Object> settings) {
-		SafeURL target = create("/v2/client/updatesettings?" + settings.entrySet().stream().map(entry -> entry.getKey() + "=" + entry.getValue()).collect(Collectors.joining("&")), OptionalLong.empty());
-		return requestSetZ(target);
+		UrlTemplate.Builder url = UPDATE_USER_SETTINGS.begin();
+
+		for (Map.Entry<String, Object> entry : settings.entrySet()) {
+			url.query(entry.getKey(), entry.getValue());
+		}
+
+		SafeURL target = create(url, OptionalLong.empty());
+		ServerResponse<Boolean> result = requestSetZ(Endpoint.UPDATE_USER_SETTINGS, target);
+
+		if (result.isSuccessful()) this.invalidateOwn();
+		return result;
 	}
 
 	@Override
@@ -556,91 +677,219 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 		if (frameDelay < 0 || frameDelay > 500) throw new IllegalArgumentException("Frame delay must be between 0 and 500 (inclusive)");
 		if (frameDelay % 50 != 0) throw new IllegalArgumentException("Frame delay must be a multiple of 50");
 
-		SafeURL target = create("/client/uploadcloak", OptionalLong.empty());
-		this.urlLogger.accept(target.safeUrl() + " (POST)");
-
-		try (Response response = Response.post(target)
+		SafeURL target = create(UPLOAD_CAPE.begin(), OptionalLong.empty());
+		Response.PostBuilder upload = Response.post(target)
 				.set("name", name)
 				.set("image", base64Image)
-				.set("extrainfo", frameDelay)
-				.submit()) {
+				.set("extrainfo", frameDelay);
+
+		return this.request(Endpoint.UPLOAD_CAPE, target, upload, response -> {
 			JsonObject obj = response.getAsJson();
 			checkErrors(target, obj);
 
-			return new ServerResponse<>(obj.get("success").getAsString(), target);
-		}
-		catch (IOException ie) {
-			return new ServerResponse<>(ie, target);
-		}
-		catch (RuntimeException e) {
-			return new ServerResponse<>(e, target);
-		}
+			return obj.get("success").getAsString();
+		});
 	}
 
 	@Override
 	public ServerResponse<String> uploadModel(CosmeticType<Model> type, String name, String base64Texture, JsonObject model, int flags) {
-		SafeURL target = create("/client/upload" + type.getUrlString(), OptionalLong.empty());
-		this.urlLogger.accept(target.safeUrl() + " (POST)");
-
-		try (Response response = Response.post(target)
+		SafeURL target = create(UPLOAD_MODEL.begin().param(type.getUrlString()), OptionalLong.empty());
+		Response.PostBuilder upload = Response.post(target)
 				.set("name", name)
 				.set("image", base64Texture)
 				.set("model", model.toString())
-				.set("extrainfo", flags)
-				.submit()) {
+				.set("extrainfo", flags);
+
+		return this.request(Endpoint.UPLOAD_MODEL, target, upload, response -> {
 			JsonObject obj = response.getAsJson();
 			checkErrors(target, obj);
 
-			return new ServerResponse<>(obj.get("success").getAsString(), target);
+			return obj.get("success").getAsString();
+		});
+	}
+
+	private <T> ServerResponse<T> request(Endpoint endpoint, SafeURL url, ResponseParser<T> parser) {
+		return this.request(endpoint, url, null, parser);
+	}
+
+	/**
+	 * Make a request to the given url and parse the response, reporting it to the request listener if there is one.
+	 * @param post the body to post, or null to make a GET request.
+	 */
+	private <T> ServerResponse<T> request(Endpoint endpoint, SafeURL url, @Nullable Response.PostBuilder post, ResponseParser<T> parser) {
+		RequestListener listener = this.requestListener;
+		RequestPriority priority = RequestScheduler.getPriorityHint();
+		if (priority == null) priority = defaultPriority(endpoint);
+
+		if (listener == null) {
+			try (Response response = post == null ? Response.get(url, this.timeout, priority) : post.setTimeout(this.timeout).setPriority(priority).submit()) {
+				return new ServerResponse<>(parse(endpoint, response, parser), url);
+			}
+			catch (IOException ie) {
+				return new ServerResponse<>(ie, url);
+			}
+			catch (RuntimeException e) {
+				return new ServerResponse<>(e, url);
+			}
+		}
+
+		RequestEvent event = REQUEST_EVENT.get().start(endpoint, post == null ? "GET" : "POST", url.safeUrl());
+		listener.onStart(event);
+
+		long start = System.nanoTime();
+		long parseStart = 0;
+		int status = -1;
+		RuntimeException exception = null;
+		ServerResponse<T> result;
+
+		try (Response response = post == null ? Response.get(url, this.timeout, priority) : post.setTimeout(this.timeout).setPriority(priority).submit()) {
+			parseStart = System.nanoTime();
+			status = response.getStatusCode();
+			result = new ServerResponse<>(parse(endpoint, response, parser), url);
 		}
 		catch (IOException ie) {
-			return new ServerResponse<>(ie, target);
+			exception = new UncheckedIOException(ie);
+			result = new ServerResponse<>(exception, url);
 		}
 		catch (RuntimeException e) {
-			return new ServerResponse<>(e, target);
+			exception = e;
+			result = new ServerResponse<>(e, url);
+		}
+
+		long end = System.nanoTime();
+		if (parseStart == 0) parseStart = end;
+
+		listener.onComplete(event.complete(parseStart - start, end - parseStart, status, exception));
+		return result;
+	}
+
+	/**
+	 * @return the priority of requests to the given endpoint when no priority hint is set.
+	 */
+	private static RequestPriority defaultPriority(Endpoint endpoint) {
+		switch (endpoint) {
+		case USER_INFO:
+		case USER_SETTINGS:
+		case COSMETIC:
+			return RequestPriority.INTERACTIVE;
+		case RECENT_COSMETICS:
+		case POPULAR_COSMETICS:
+		case OFFICIAL_COSMETICS:
+		case PENDING_COSMETICS:
+		case OWNED_COSMETICS:
+		case UPDATES:
+			return RequestPriority.BULK;
+		default:
+			return RequestPriority.NORMAL;
+		}
+	}
+
+	private static <T> T parse(Endpoint endpoint, Response response, ResponseParser<T> parser) throws IOException {
+		Object event = FlightRecording.beginParse();
+		if (event == null) return parser.parse(response);
+
+		boolean successful = false;
+
+		try {
+			T result = parser.parse(response);
+			successful = true;
+			return result;
+		}
+		finally {
+			FlightRecording.commitParse(event, endpoint.name(), response.getAsByteArray().length, successful);
 		}
 	}
 
-	private SafeURL createLimited(String target) {
-		if (this.limitedToken != null) return SafeURL.of(this.apiHostProvider.getFastInsecureUrl() + target + (target.indexOf('?') == -1 ? "?" : "&") + "timestamp=" + System.currentTimeMillis(), this.limitedToken);
+	private static final ThreadLocal<RequestEvent> REQUEST_EVENT = ThreadLocal.withInitial(RequestEvent::new);
+
+	@FunctionalInterface
+	private interface ResponseParser<T> {
+		T parse(Response response) throws IOException;
+	}
+
+	private static final UrlTemplate VERSION_CHECK = UrlTemplate.of("/v2/get/versioncheck?modversion={}&mcversion={}");
+	private static final UrlTemplate USER_INFO = UrlTemplate.of("/v2/get/info?username={}&uuid={}");
+	private static final UrlTemplate USER_SETTINGS = UrlTemplate.of("/v2/get/settings");
+	private static final UrlTemplate RECENT_COSMETICS = UrlTemplate.of("/get/recentcosmetics?type={}&page={}&pagesize={}&query={}");
+	private static final UrlTemplate POPULAR_COSMETICS = UrlTemplate.of("/get/popularcosmetics?page={}&pagesize={}");
+	private static final UrlTemplate OFFICIAL_COSMETICS = UrlTemplate.of("/get/systemcosmetics?page={}&pagesize={}");
+	private static final UrlTemplate PENDING_COSMETICS = UrlTemplate.of("/get/unverifiedcosmetics");
+	private static final UrlTemplate OWNED_COSMETICS = UrlTemplate.of("/get/userownedcosmetics?user={}");
+	private static final UrlTemplate LORE_LIST = UrlTemplate.of("/get/lorelists?type={}");
+	private static final UrlTemplate COSMETIC = UrlTemplate.of("/get/cosmetic?type={}&id={}");
+	private static final UrlTemplate PANORAMAS = UrlTemplate.of("/get/panoramas");
+	private static final UrlTemplate UPDATES = UrlTemplate.of("/get/everythirtysecondsinafricahalfaminutepasses?ip={}");
+	private static final UrlTemplate SET_COSMETIC = UrlTemplate.of("/client/setcosmetic?type={}&id={}");
+	private static final UrlTemplate SET_COSMETIC_STATUS = UrlTemplate.of("/client/cosmeticstatus?type={}&id={}&value={}&reason={}");
+	private static final UrlTemplate UPDATE_EXTRA_INFO = UrlTemplate.of("/client/modifyextrainfo?type={}&id={}&extrainfo={}");
+	private static final UrlTemplate SET_LORE = UrlTemplate.of("/client/setlore?type={}&value={}");
+	private static final UrlTemplate SET_PANORAMA = UrlTemplate.of("/client/setpanorama?panorama={}");
+	private static final UrlTemplate SET_CAPE_SERVER_SETTINGS = UrlTemplate.of("/client/capesettings");
+	private static final UrlTemplate UPDATE_USER_SETTINGS = UrlTemplate.of("/v2/client/updatesettings");
+	private static final UrlTemplate UPLOAD_CAPE = UrlTemplate.of("/client/uploadcloak");
+	private static final UrlTemplate UPLOAD_MODEL = UrlTemplate.of("/client/upload{}");
+
+	private SafeURL createLimited(UrlTemplate.Builder target) {
+		if (this.limitedToken != null) return target.build(this.apiHostProvider.getFastInsecureUrl(), System.currentTimeMillis(), this.limitedToken);
 		else return create(target, OptionalLong.empty());
 	}
 
 	/**
 	 * Create a fully authenticated request url to the cosmetica server. If no full token is provided, token will be left empty.
-	 * @param target the target endpoint, starting with, e.g., /client/... or /get/..., and including url parameters.
+	 * @param target the target endpoint, with its url parameters written.
 	 * @param timestamp the timestamp, if manually setting.
 	 * @return the url to request to.
 	 */
-	private SafeURL create(String target, OptionalLong timestamp) {
-		if (this.masterToken != null) return SafeURL.of(this.apiHostProvider.getSecureUrl() + target + (target.indexOf('?') == -1 ? "?" : "&") + "timestamp=" + timestamp.orElseGet(System::currentTimeMillis), this.masterToken);
-		else return SafeURL.of(this.apiHostProvider.getSecureUrl() + target + (target.indexOf('?') == -1 ? "?" : "&") + "timestamp=" + timestamp.orElseGet(System::currentTimeMillis));
+	private SafeURL create(UrlTemplate.Builder target, OptionalLong timestamp) {
+		return target.build(this.apiHostProvider.getSecureUrl(), timestamp.orElseGet(System::currentTimeMillis), this.masterToken == null ? "" : this.masterToken);
 	}
 
-	private SafeURL createMinimalLimited(String target) {
-		if (this.limitedToken != null) return SafeURL.of(this.apiHostProvider.getFastInsecureUrl() + target + (target.indexOf('?') == -1 ? "?" : "&") + "timestamp=" + System.currentTimeMillis(), this.limitedToken);
+	private SafeURL createMinimalLimited(UrlTemplate.Builder target) {
+		if (this.limitedToken != null) return target.build(this.apiHostProvider.getFastInsecureUrl(), System.currentTimeMillis(), this.limitedToken);
 		else return createMinimal(target, OptionalLong.empty());
 	}
 
 	/**
 	 * Create a fully authenticated request url to the cosmetica server. If no full token is provided, <b>no token will be provided</b>.
-	 * @param target the target endpoint, starting with, e.g., /client/... or /get/..., and including url parameters.
+	 * @param target the target endpoint, with its url parameters written.
 	 * @param timestamp the timestamp, if manually setting.
 	 * @return the url to request to.
 	 * @apiNote Use this where both authenticated and non-authenticated functionality can be provided, and an empty token isn't treated as an unauthenticated request.
 	 */
-	private SafeURL createMinimal(String target, OptionalLong timestamp) {
-		if (this.masterToken != null) return SafeURL.of(this.apiHostProvider.getSecureUrl() + target + (target.indexOf('?') == -1 ? "?" : "&") + "timestamp=" + timestamp.orElseGet(System::currentTimeMillis), this.masterToken);
-		else return SafeURL.direct(this.apiHostProvider.getSecureUrl() + target + (target.indexOf('?') == -1 ? "?" : "&") + "timestamp=" + timestamp.orElseGet(System::currentTimeMillis));
+	private SafeURL createMinimal(UrlTemplate.Builder target, OptionalLong timestamp) {
+		return target.build(this.apiHostProvider.getSecureUrl(), timestamp.orElseGet(System::currentTimeMillis), this.masterToken);
+	}
+
+	private SafeURL createTokenless(UrlTemplate.Builder target, OptionalLong timestamp) {
+		return target.build(this.apiHostProvider.getSecureUrl(), timestamp.orElseGet(System::currentTimeMillis), "");
+	}
+
+	@Override
+	public synchronized void setUrlLogger(@Nullable Consumer<String> urlLogger) {
+		this.urlLoggerListener = urlLogger == null ? null : RequestListener.ofUrlLogger(urlLogger);
+		this.updateRequestListener();
 	}
 
-	private SafeURL createTokenless(String target, OptionalLong timestamp) {
-		return SafeURL.of(this.apiHostProvider.getSecureUrl() + target + (target.indexOf('?') == -1 ? "?" : "&") + "timestamp=" + timestamp.orElseGet(System::currentTimeMillis));
+	@Override
+	public synchronized void setRequestListener(@Nullable RequestListener listener) {
+		this.customRequestListener = listener;
+		this.updateRequestListener();
+	}
+
+	private void updateRequestListener() {
+		if (this.customRequestListener == null) this.requestListener = this.urlLoggerListener;
+		else if (this.urlLoggerListener == null) this.requestListener = this.customRequestListener;
+		else this.requestListener = RequestListener.both(this.urlLoggerListener, this.customRequestListener);
 	}
 
 	@Override
-	public void setUrlLogger(Consumer<String> urlLogger) {
-		this.urlLogger = urlLogger;
+	public Executor getRequestExecutor() {
+		return this.requestExecutor == null ? sharedRequestExecutor() : this.requestExecutor;
+	}
+
+	@Override
+	public void setRequestExecutor(@Nullable Executor executor) {
+		this.requestExecutor = executor;
 	}
 
 	@Override
@@ -648,9 +897,40 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 		this.timeout = timeout;
 	}
 
+	@Override
+	public void setUserInfoCacheTime(long cacheTime) {
+		UserInfoCache cache = cacheTime > 0 ? new UserInfoCache(cacheTime, USER_INFO_CACHE_SIZE, this::refreshUserInfo) : null;
+		if (cache != null) cache.setMaxStaleness(this.maxStaleness);
+		this.userInfoCache = cache;
+		this.settingsEntry = null;
+	}
+
+	@Override
+	public void setMaxStaleness(long maxStaleness) {
+		this.maxStaleness = maxStaleness;
+		UserInfoCache cache = this.userInfoCache;
+		if (cache != null) cache.setMaxStaleness(maxStaleness);
+	}
+
+	private static final int USER_INFO_CACHE_SIZE = 4096;
+
+	private CompletableFuture<ServerResponse<UserInfo>> refreshUserInfo(UUID uuid, boolean noThirdParty, boolean excludeModels) {
+		return this.async(api -> this.withPriority(RequestPriority.BULK, a -> this.requestUserInfo(this.userInfoTarget(uuid, null, noThirdParty, excludeModels, false))));
+	}
+
+	@Override
+	public void setNegativeUserInfoCacheTime(long cacheTime) {
+		this.negativeUserInfoCache = cacheTime > 0 ? new NegativeUserInfoCache(cacheTime, NEGATIVE_CACHE_SIZE, NEGATIVE_CACHE_FALSE_POSITIVE_RATE) : null;
+	}
+
+	// per generation, so a million users across both take around 6 MB with a false positive rate of around 1%
+	private static final int NEGATIVE_CACHE_SIZE = 1 << 19;
+	private static final double NEGATIVE_CACHE_FALSE_POSITIVE_RATE = 0.005;
+
 	@Override
 	public void setForceHttps(boolean forceHttps) {
-		this.apiHostProvider.setForceHttps(forceHttps);
+		// the gateway does not serve https
+		this.apiHostProvider.setForceHttps(forceHttps && gatewayUrl == null);
 	}
 
 	@Override
@@ -683,7 +963,13 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 	public static void setDefaultForceHttps(boolean forceHttps) {
 		enforceHttpsGlobal = forceHttps;
 		// update api host provider too
-		if (apiHostProviderTemplate != null) apiHostProviderTemplate.setForceHttps(forceHttps);
+		if (apiHostProviderTemplate != null) apiHostProviderTemplate.setForceHttps(forceHttps && gatewayUrl == null);
+	}
+
+	public static boolean setUseHttp2(boolean http2) {
+		Transport transport = http2 ? Transports.http2().orElse(null) : null;
+		Transports.setDefault(transport);
+		return transport != null;
 	}
 
 	public static boolean getDefaultForceHttps() {
@@ -711,19 +997,45 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 	}
 
 	public static CosmeticaAPI fromTempToken(String tempToken, UUID uuid, @Nullable String client) throws IllegalStateException, IOException, FatalServerErrorException {
+		long start = System.nanoTime();
 		retrieveAPIIfNoneCached();
-		return new CosmeticaWebAPI(uuid, tempToken, client);
+		return new CosmeticaWebAPI(uuid, tempToken, client, new LoginTimings(millisSince(start), 0, false, 0, 0, 0));
 	}
 
 	public static CosmeticaAPI fromMinecraftToken(String minecraftToken, String username, UUID uuid, @Nullable String client) throws IllegalStateException, IOException, FatalServerErrorException {
+		long start = System.nanoTime();
+
+		// fetch the key alongside discovery if we already know the auth host from a previous discovery or the api cache
+		String speculativeAuthHost = knownAuthApiServerHost();
+		CompletableFuture<byte[]> speculativeKey = speculativeAuthHost == null ? null : fetchAuthKey(speculativeAuthHost);
+
 		retrieveAPIIfNoneCached();
+		final long discovery = millisSince(start);
+		start = System.nanoTime();
 
+		CompletableFuture<byte[]> keyRequest = authApiServerHost.equals(speculativeAuthHost) ? speculativeKey : fetchAuthKey(authApiServerHost);
+		final boolean keyReady = keyRequest.isDone();
 		byte[] publicKey;
 
 		// https://wiki.vg/Protocol_Encryption
-		try (Response response = Response.get(authApiServerHost + "/key")) {
-			publicKey = response.getAsByteArray();
+		try {
+			publicKey = keyRequest.join();
 		}
+		catch (CompletionException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) cause).getCause();
+			}
+			else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+
+			throw new IOException(cause);
+		}
+
+		final long keyFetch = millisSince(start);
+		start = System.nanoTime();
 
 		byte[] sharedSecret = Yootil.randomBytes(16);
 		String hash = Yootil.hash("".getBytes(StandardCharsets.US_ASCII), sharedSecret, publicKey);
@@ -739,6 +1051,9 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 			e.printStackTrace();
 		}
 
+		final long sessionJoin = millisSince(start);
+		start = System.nanoTime();
+
 		// Exchange Tokens with Cosmetica
 		try (Response response = Response.postJson(authApiServerHost + "/verify")
 				.set("secret", new String(Base64.getEncoder().encode(sharedSecret)))
@@ -747,10 +1062,70 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 			JsonObject data = response.getAsJson();
 			checkErrors(SafeURL.direct(authApiServerHost + "/verify"), data);
 
-			return new CosmeticaWebAPI(uuid, data.get("token").getAsString(), client);
+			LoginTimings timings = new LoginTimings(discovery, keyFetch, keyReady, sessionJoin, millisSince(start), 0);
+			return new CosmeticaWebAPI(uuid, data.get("token").getAsString(), client, timings);
+		}
+	}
+
+	private static final long AUTH_KEY_TTL = 10 * 60 * 1000;
+
+	// guarded by CosmeticaWebAPI.class
+	private static CompletableFuture<byte[]> authKey;
+	private static String authKeyHost;
+	private static long authKeyExpiry;
+
+	/**
+	 * Get the public key of the given auth server, fetching it in the background if it is not cached. Concurrent logins share the same request.
+	 */
+	private static synchronized CompletableFuture<byte[]> fetchAuthKey(String authHost) {
+		long now = System.currentTimeMillis();
+
+		boolean cached = authKey != null && authHost.equals(authKeyHost) && now < authKeyExpiry && !authKey.isCompletedExceptionally();
+		FlightRecording.cacheLookup("auth-key", authHost, cached);
+
+		if (cached) {
+			return authKey;
+		}
+
+		authKeyHost = authHost;
+		authKeyExpiry = now + AUTH_KEY_TTL;
+		authKey = CompletableFuture.supplyAsync(() -> {
+			try (Response response = Response.get(authHost + "/key")) {
+				if (response.getError().isPresent()) {
+					throw new IOException("Auth server responded with status " + response.getStatusCode() + " when fetching its key");
+				}
+
+				return response.getAsByteArray();
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, sharedRequestExecutor());
+
+		return authKey;
+	}
+
+	/**
+	 * @return the auth api host from a previous discovery or the api cache, if any.
+	 */
+	@Nullable
+	private static String knownAuthApiServerHost() {
+		if (authApiServerHost != null) return authApiServerHost;
+		if (apiCache == null || !apiCache.isFile()) return null;
+
+		try {
+			String cached = new String(Files.readAllBytes(apiCache.toPath()), StandardCharsets.UTF_8);
+			return new JsonParser().parse(cached).getAsJsonObject().get("auth-api").getAsString();
+		}
+		catch (Exception e) {
+			return null;
 		}
 	}
 
+	private static long millisSince(long startNanos) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+	}
+
 	public static CosmeticaAPI fromTokens(@Nullable String masterToken, @Nullable String limitedToken) throws IllegalStateException {
 		retrieveAPIIfNoneCached();
 		return new CosmeticaWebAPI(masterToken, limitedToken);
@@ -761,6 +1136,13 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 		return new CosmeticaWebAPI(null, null);
 	}
 
+	/**
+	 * Create an unauthenticated instance which sends requests to the given api host, without discovering it.
+	 */
+	static CosmeticaWebAPI onHost(String apiHost) {
+		return new CosmeticaWebAPI(new HostProvider(apiHost, false));
+	}
+
 	@Nullable
 	public static String getApiServerHost(boolean requireResult) throws IllegalStateException {
 		if (requireResult) retrieveAPIIfNoneCached();
@@ -783,9 +1165,36 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 		apiCache = api;
 	}
 
+	@Nullable
+	private static String gatewayUrl;
+
+	public static void setGateway(@Nullable String url) {
+		gatewayUrl = url == null || !url.endsWith("/") ? url : url.substring(0, url.length() - 1);
+	}
+
+	@Nullable
+	public static String getGateway() {
+		return gatewayUrl;
+	}
+
+	private static volatile Executor sharedRequestExecutor;
+
+	private static Executor sharedRequestExecutor() {
+		if (sharedRequestExecutor == null) {
+			synchronized (CosmeticaWebAPI.class) {
+				if (sharedRequestExecutor == null) {
+					sharedRequestExecutor = RequestExecutors.create("Cosmetica Request");
+				}
+			}
+		}
+
+		return sharedRequestExecutor;
+	}
+
 	private static void retrieveAPIIfNoneCached() throws IllegalStateException {
 		if (apiHostProviderTemplate == null) { // if this sequence has not already been initiated
-			final String apiGetHost = enforceHttpsGlobal ? "https://cosmetica.cc/getapi" : "http://cosmetica.cc/getapi";
+			final String gateway = gatewayUrl;
+			final String apiGetHost = gateway != null ? gateway + "/getapi" : enforceHttpsGlobal ? "https://cosmetica.cc/getapi" : "http://cosmetica.cc/getapi";
 
 			String apiGetData = null;
 			Exception eStored = new NullPointerException("Response succeeded but cosmetica.cc/getapi entity was null"); // in case response succeeds but somehow get data is null
@@ -797,20 +1206,51 @@ public class CosmeticaWebAPI implements CosmeticaAPI {
 				eStored = e;
 			}
 
-			if (apiCache != null) apiGetData = Yootil.loadOrCache(apiCache, apiGetData);
+			// the gateway's address is not worth caching, and would override the real one
+			if (apiCache != null && gateway == null) apiGetData = Yootil.loadOrCache(apiCache, apiGetData);
 
 			if (apiGetData == null) {
 				throw new IllegalStateException("Could not receive Cosmetica API host", eStored);
 			}
 
 			JsonObject data = new JsonParser().parse(apiGetData).getAsJsonObject();
-			apiHostProviderTemplate = new HostProvider(data.get("api").getAsString(), enforceHttpsGlobal);
+			// the gateway does not serve https
+			apiHostProviderTemplate = new HostProvider(data.get("api").getAsString(), enforceHttpsGlobal && gateway == null);
 			authApiServerHost = data.get("auth-api").getAsString();
 			websiteHost = data.get("website").getAsString();
 			message = data.get("message").getAsString();
+
+			if (warmUpOnDiscovery) {
+				warmUp();
+			}
 		}
 	}
 
+	private static boolean warmUpOnDiscovery;
+
+	public static void setWarmUpOnDiscovery(boolean warmUp) {
+		warmUpOnDiscovery = warmUp;
+	}
+
+	public static CompletableFuture<Void> warmUp() {
+		return CompletableFuture.runAsync(() -> {
+			retrieveAPIIfNoneCached();
+
+			Set<String> hosts = new LinkedHashSet<>();
+			hosts.add(apiHostProviderTemplate.getSecureUrl());
+			hosts.add(apiHostProviderTemplate.getFastInsecureUrl());
+			hosts.add(authApiServerHost);
+
+			for (String host : hosts) {
+				try {
+					Transports.getDefault().connect(host, 20 * 1000);
+				} catch (IOException e) {
+					// best effort. the first real request will try again
+				}
+			}
+		}, sharedRequestExecutor());
+	}
+
 	private static void checkErrors(SafeURL url, JsonObject response) {
 		if (response.has("error")) {
 			throw new CosmeticaAPIException(url, response.get("error").getAsString());
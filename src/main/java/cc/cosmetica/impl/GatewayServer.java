@@ -0,0 +1,374 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.impl;
+
+import cc.cosmetica.api.CosmeticaGateway;
+import cc.cosmetica.api.RequestPriority;
+import cc.cosmetica.util.RequestExecutors;
+import cc.cosmetica.util.RequestScheduler;
+import cc.cosmetica.util.Response;
+import cc.cosmetica.util.Transports;
+import cc.cosmetica.util.Yootil;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Serves a {@link CosmeticaGateway} over {@link HttpServer}, passing requests through to the api server discovered by
+ * {@link CosmeticaWebAPI}.
+ */
+public class GatewayServer implements CosmeticaGateway {
+	private GatewayServer(HttpServer server, ExecutorService executor, String upstream, long cacheTime) {
+		this.server = server;
+		this.executor = executor;
+		this.upstream = upstream;
+		this.cacheTime = cacheTime;
+	}
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final String upstream;
+	private final long cacheTime;
+	// guarded by cache
+	private final Map<String, CacheEntry<Reply>> cache = new LinkedHashMap<String, CacheEntry<Reply>>(64, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CacheEntry<Reply>> eldest) {
+			return this.size() > MAX_ENTRIES;
+		}
+	};
+	private final Map<String, CompletableFuture<Reply>> inFlight = new HashMap<>();
+
+	public static GatewayServer start(InetSocketAddress address, long cacheTime) throws IOException, IllegalStateException {
+		if (CosmeticaWebAPI.getGateway() != null) throw new IllegalStateException("Cannot start a gateway in a process which uses one");
+
+		String upstream = CosmeticaWebAPI.getApiServerHost(true);
+		if (upstream == null) throw new IllegalStateException("Could not discover the api server to pass requests to");
+
+		return start(address, upstream, cacheTime);
+	}
+
+	public static GatewayServer start(InetSocketAddress address, String apiUrl, long cacheTime) throws IOException {
+		HttpServer server = HttpServer.create(address, 0);
+		ExecutorService executor = RequestExecutors.create("Cosmetica Gateway");
+		GatewayServer gateway = new GatewayServer(server, executor, apiUrl.endsWith("/") ? apiUrl.substring(0, apiUrl.length() - 1) : apiUrl, cacheTime);
+
+		server.createContext("/", exchange -> {
+			try {
+				gateway.handle(exchange);
+			}
+			finally {
+				exchange.close();
+			}
+		});
+		server.setExecutor(executor);
+		server.start();
+		return gateway;
+	}
+
+	@Override
+	public InetSocketAddress getAddress() {
+		return this.server.getAddress();
+	}
+
+	@Override
+	public int getCacheSize() {
+		synchronized (this.cache) {
+			return this.cache.size();
+		}
+	}
+
+	@Override
+	public void close() {
+		this.server.stop(0);
+		this.executor.shutdown();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		URI uri = exchange.getRequestURI();
+		String path = uri.getRawPath();
+		@Nullable String query = uri.getRawQuery();
+
+		if (DISCOVERY.equals(path)) {
+			this.sendDiscovery(exchange);
+			return;
+		}
+
+		String url = this.upstream + path + (query == null ? "" : "?" + query);
+		Reply reply;
+
+		try {
+			if ("POST".equals(exchange.getRequestMethod())) {
+				String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+				byte[] body = readAll(exchange.getRequestBody());
+				reply = new Reply(RequestScheduler.getDefault().execute(RequestPriority.NORMAL,
+						() -> Transports.getDefault().post(url, contentType == null ? "application/x-www-form-urlencoded" : contentType, body, TIMEOUT)));
+			}
+			else if (isCacheable(path, query)) {
+				reply = this.getCached(path + '?' + withoutParams(query, "token", "timestamp"), url);
+			}
+			else {
+				reply = fetch(url);
+			}
+		}
+		catch (IOException e) {
+			// without a json body, so clients treat it as the server failing
+			send(exchange, new Reply(502, "Could not reach the api server".getBytes(StandardCharsets.UTF_8)));
+			return;
+		}
+
+		if (UPDATES.equals(path) && reply.status == 200) {
+			this.invalidateUpdated(reply.body);
+		}
+
+		send(exchange, reply);
+	}
+
+	/**
+	 * Get a public response from the cache, or request it if not cached and not already being requested.
+	 */
+	private Reply getCached(String key, String url) throws IOException {
+		CompletableFuture<Reply> request;
+		boolean owned = false;
+
+		synchronized (this.cache) {
+			CacheEntry<Reply> cached = this.cache.get(key);
+
+			if (cached != null && !cached.isExpired(System.currentTimeMillis(), this.cacheTime)) {
+				return cached.value;
+			}
+
+			request = this.inFlight.get(key);
+
+			if (request == null) {
+				request = new CompletableFuture<>();
+				this.inFlight.put(key, request);
+				owned = true;
+			}
+		}
+
+		if (!owned) {
+			try {
+				return request.join();
+			}
+			catch (CompletionException e) {
+				throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+			}
+		}
+
+		Reply reply = null;
+
+		try {
+			reply = fetch(url);
+			return reply;
+		}
+		finally {
+			synchronized (this.cache) {
+				this.inFlight.remove(key);
+				if (reply != null && reply.isCacheable()) this.cache.put(key, new CacheEntry<>(reply, System.currentTimeMillis()));
+			}
+
+			if (reply != null) request.complete(reply);
+			else request.completeExceptionally(new IOException("Could not reach the api server"));
+		}
+	}
+
+	/**
+	 * Remove the cached responses of users listed in a response from the cosmetics update endpoint.
+	 */
+	private void invalidateUpdated(byte[] body) {
+		try {
+			JsonObject updates = new JsonParser().parse(new String(body, StandardCharsets.UTF_8)).getAsJsonObject().getAsJsonObject("updates");
+			if (updates == null || !updates.has("list")) return;
+
+			for (JsonElement element : updates.getAsJsonArray("list")) {
+				UUID uuid = Yootil.toUUID(element.getAsJsonObject().get("uuid").getAsString());
+				String param = "uuid=" + uuid;
+
+				synchronized (this.cache) {
+					this.cache.keySet().removeIf(key -> key.contains(param));
+				}
+			}
+		}
+		catch (JsonParseException | IllegalStateException | IllegalArgumentException | NullPointerException e) {
+			// not a list of updates. the cache expires them regardless
+		}
+	}
+
+	private void sendDiscovery(HttpExchange exchange) throws IOException {
+		String host = exchange.getRequestHeaders().getFirst("Host");
+		if (host == null) host = exchange.getLocalAddress().getHostString() + ':' + exchange.getLocalAddress().getPort();
+
+		String authApi;
+
+		try {
+			authApi = CosmeticaWebAPI.getAuthApiServerHost(true);
+		}
+		catch (IllegalStateException e) {
+			send(exchange, new Reply(502, "Could not discover the auth server".getBytes(StandardCharsets.UTF_8)));
+			return;
+		}
+
+		JsonObject discovery = new JsonObject();
+		discovery.addProperty("api", "http://" + host);
+		discovery.addProperty("auth-api", authApi);
+		discovery.addProperty("website", CosmeticaWebAPI.getWebsite());
+		discovery.addProperty("message", CosmeticaWebAPI.getMessage());
+		send(exchange, new Reply(200, discovery.toString().getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static Reply fetch(String url) throws IOException {
+		return new Reply(RequestScheduler.getDefault().execute(RequestPriority.NORMAL, () -> Transports.getDefault().get(url, TIMEOUT)));
+	}
+
+	private static void send(HttpExchange exchange, Reply reply) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(reply.status, reply.body.length == 0 ? -1 : reply.body.length);
+
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(reply.body);
+		}
+	}
+
+	/**
+	 * @return whether the endpoint serves the same public data to everyone who requests it with the same parameters.
+	 */
+	private static boolean isCacheable(String path, @Nullable String query) {
+		switch (path) {
+		case "/v2/get/info":
+			// forced responses of a user's own info ignore their settings. the library sends the flag without a value
+			return !hasParam(query, "forceshow");
+		case "/get/cosmetic":
+		case "/get/recentcosmetics":
+		case "/get/popularcosmetics":
+		case "/get/systemcosmetics":
+		case "/v2/get/versioncheck":
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * @return whether the query has the given parameter, with or without a value.
+	 */
+	private static boolean hasParam(@Nullable String query, String name) {
+		if (query == null) return false;
+
+		for (String param : query.split("&")) {
+			if (param.startsWith(name) && (param.length() == name.length() || param.charAt(name.length()) == '=')) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static String withoutParams(@Nullable String query, String... names) {
+		if (query == null) return "";
+
+		StringBuilder result = new StringBuilder(query.length());
+
+		outer:
+		for (String param : query.split("&")) {
+			for (String name : names) {
+				if (param.startsWith(name + '=')) continue outer;
+			}
+
+			if (result.length() > 0) result.append('&');
+			result.append(param);
+		}
+
+		return result.toString();
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+
+		return out.toByteArray();
+	}
+
+	private static final String DISCOVERY = "/getapi";
+	private static final String UPDATES = "/get/everythirtysecondsinafricahalfaminutepasses";
+	private static final int MAX_ENTRIES = 16384;
+	private static final int TIMEOUT = 20 * 1000;
+
+	private static class Reply {
+		Reply(int status, byte[] body) {
+			this.status = status;
+			this.body = body;
+		}
+
+		Reply(Response response) throws IOException {
+			this(response.getStatusCode(), response.getAsByteArray());
+		}
+
+		private final int status;
+		private final byte[] body;
+
+		/**
+		 * @return whether this reply is a successful response, and not an error the api sent.
+		 */
+		boolean isCacheable() {
+			return this.status == 200 && !new String(this.body, StandardCharsets.UTF_8).contains("\"error\"");
+		}
+	}
+
+	/**
+	 * Run a gateway as its own process.
+	 * @param args the port to listen on, optionally how long to cache public responses for in seconds, defaulting to 60,
+	 *             and optionally the address to listen on, defaulting to loopback. Requests to the gateway carry tokens
+	 *             over plain http, so only give an address on a private network.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: GatewayServer <port> [cache seconds] [bind address]");
+			System.exit(1);
+		}
+
+		int port = Integer.parseInt(args[0]);
+		long cacheTime = (args.length > 1 ? Long.parseLong(args[1]) : 60) * 1000;
+		InetAddress host = args.length > 2 ? InetAddress.getByName(args[2]) : InetAddress.getLoopbackAddress();
+		GatewayServer gateway = start(new InetSocketAddress(host, port), cacheTime);
+		System.out.println("(Cosmetica API) Gateway listening on " + gateway.getAddress());
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.impl;
+
+import cc.cosmetica.api.UserInfo;
+import cc.cosmetica.util.CountingBloomFilter;
+import cc.cosmetica.util.FlightRecording;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Remembers which users had no cosmetica data at all, being unregistered java players wearing nothing, so repeat lookups of them can be answered without a request.
+ * Users are held in two generations of {@link CountingBloomFilter}, the older of which is dropped every half of the
+ * cache time, so each user is remembered for between half and all of it. Being a bloom filter, a small fraction of
+ * other users are also reported as having nothing.
+ */
+class NegativeUserInfoCache {
+	NegativeUserInfoCache(long cacheTime, int expectedEntries, double falsePositiveRate) {
+		this.generationTime = Math.max(1, cacheTime / 2);
+		this.current = new CountingBloomFilter(expectedEntries, falsePositiveRate);
+		this.previous = new CountingBloomFilter(expectedEntries, falsePositiveRate);
+		this.generationStart = System.currentTimeMillis();
+	}
+
+	private final long generationTime;
+	// guarded by this
+	private CountingBloomFilter current;
+	private CountingBloomFilter previous;
+	private long generationStart;
+
+	/**
+	 * @param uuid the uuid of the user.
+	 * @return an empty user info if the user is remembered as having nothing.
+	 */
+	Optional<UserInfo> get(UUID uuid) {
+		boolean hit;
+
+		synchronized (this) {
+			this.rotate();
+			hit = this.current.mightContain(uuid) || this.previous.mightContain(uuid);
+		}
+
+		FlightRecording.cacheLookup("negative-user-info", uuid, hit);
+		return hit ? Optional.of(EMPTY) : Optional.empty();
+	}
+
+	/**
+	 * Remember the user if the given user info has no cosmetica data and they are not already remembered.
+	 * @param uuid the uuid of the user.
+	 * @param info their user info, retrieved including third party capes.
+	 */
+	void record(UUID uuid, UserInfo info) {
+		if (isEmpty(info)) {
+			synchronized (this) {
+				this.rotate();
+
+				// adding a user twice, as concurrent misses for them would, means a single invalidation would not remove them
+				if (!this.current.mightContain(uuid) && !this.previous.mightContain(uuid)) {
+					this.current.add(uuid);
+				}
+			}
+		}
+	}
+
+	synchronized void invalidate(UUID uuid) {
+		this.current.remove(uuid);
+		this.previous.remove(uuid);
+	}
+
+	private void rotate() {
+		long now = System.currentTimeMillis();
+
+		if (now - this.generationStart >= this.generationTime) {
+			CountingBloomFilter expired = this.previous;
+			expired.clear();
+
+			// if a whole generation has passed with no calls, the current generation has expired too
+			if (now - this.generationStart >= 2 * this.generationTime) {
+				this.current.clear();
+			}
+
+			this.previous = this.current;
+			this.current = expired;
+			this.generationStart = now;
+		}
+	}
+
+	private static boolean isEmpty(UserInfo info) {
+		return info.getSkin() == null
+				&& !info.isSlim()
+				&& "none".equals(info.getRole())
+				&& "java".equals(info.getPlatform())
+				&& info.getHats().isEmpty()
+				&& !info.getShoulderBuddies().isPresent()
+				&& !info.getBackBling().isPresent()
+				&& !info.getCape().isPresent()
+				&& info.getLore().isEmpty()
+				&& info.getPrefix().isEmpty()
+				&& info.getSuffix().isEmpty()
+				&& info.getIcon().isEmpty()
+				&& !info.getClient().isPresent()
+				&& !info.isOnline()
+				&& !info.isUpsideDown();
+	}
+
+	/**
+	 * The user info served for users remembered as having nothing, which includes having no skin.
+	 */
+	private static final UserInfo EMPTY = new UserInfoImpl(null, false, "", "java", "none", false, "", "", null, false,
+			Collections.emptyList(), Optional.empty(), Optional.empty(), Optional.empty(), "");
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.impl;
+
+import cc.cosmetica.api.CosmeticPosition;
+import cc.cosmetica.api.UserInfo;
+import cc.cosmetica.api.cosmetic.Cosmetic;
+import cc.cosmetica.api.cosmetic.ShoulderBuddies;
+import cc.cosmetica.api.settings.UserSettings;
+import cc.cosmetica.impl.cosmetic.AbstractCosmetic;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Applies the known effects of successful writes to cached user info and settings, so they need not be requested again.
+ * Where the effect cannot be known for certain, no patch is produced and the cached value should be invalidated.
+ */
+final class OptimisticPatches {
+	private OptimisticPatches() {
+	}
+
+	/**
+	 * Patch the cosmetic at a position of user info.
+	 * @param info the user info.
+	 * @param position the position the cosmetic was set at.
+	 * @param cosmetic the full cosmetic set, or null if it was removed.
+	 * @param excludeModels whether the user info was retrieved without models.
+	 * @return the patched user info, or empty if the effect cannot be known.
+	 */
+	static Optional<UserInfo> withCosmetic(UserInfo info, CosmeticPosition position, @Nullable Cosmetic cosmetic, boolean excludeModels) {
+		if (cosmetic != null && excludeModels) cosmetic = AbstractCosmetic.stripHeavyFields(cosmetic);
+
+		List<Cosmetic> hats = new ArrayList<>(info.getHats());
+		Optional<ShoulderBuddies> shoulderBuddies = info.getShoulderBuddies();
+		Optional<? extends Cosmetic> backBling = info.getBackBling();
+		Optional<? extends Cosmetic> cape = info.getCape();
+
+		switch (position) {
+		case HAT:
+		case SECOND_HAT:
+			// the hats list leaves out empty slots, so which slot a lone hat is in is unknown
+			if (hats.size() == 1 || hats.size() > 2) return Optional.empty();
+			int slot = position == CosmeticPosition.HAT ? 0 : 1;
+
+			if (hats.isEmpty()) {
+				if (cosmetic != null) hats.add(cosmetic);
+			}
+			else if (cosmetic != null) {
+				hats.set(slot, cosmetic);
+			}
+			else {
+				hats.remove(slot);
+			}
+			break;
+		case LEFT_SHOULDER_BUDDY:
+			shoulderBuddies = shoulderBuddies(Optional.ofNullable(cosmetic), shoulderBuddies.flatMap(ShoulderBuddies::getRight));
+			break;
+		case RIGHT_SHOULDER_BUDDY:
+			shoulderBuddies = shoulderBuddies(shoulderBuddies.flatMap(ShoulderBuddies::getLeft), Optional.ofNullable(cosmetic));
+			break;
+		case BACK_BLING:
+			backBling = Optional.ofNullable(cosmetic);
+			break;
+		case CAPE:
+			// which cape is shown otherwise depends on the cape servers of the user, so only a cosmetica cape replacing
+			// another cosmetica cape is certain
+			if (cosmetic == null || !cape.filter(current -> "Cosmetica".equals(current.getOrigin())).isPresent()) return Optional.empty();
+			cape = Optional.of(cosmetic);
+			break;
+		}
+
+		return Optional.of(new UserInfoImpl(
+				info.getSkin(),
+				info.isSlim(),
+				info.getLore(),
+				info.getPlatform(),
+				info.getRole(),
+				info.isUpsideDown(),
+				info.getPrefix(),
+				info.getSuffix(),
+				info.getClient().orElse(null),
+				info.isOnline(),
+				hats,
+				shoulderBuddies,
+				backBling,
+				cape,
+				info.getIcon()
+		));
+	}
+
+	/**
+	 * @param info the user info.
+	 * @param lore the new lore string, as responded by the server.
+	 * @return the user info with the new lore.
+	 */
+	static UserInfo withLore(UserInfo info, String lore) {
+		return new UserInfoImpl(
+				info.getSkin(),
+				info.isSlim(),
+				lore,
+				info.getPlatform(),
+				info.getRole(),
+				info.isUpsideDown(),
+				info.getPrefix(),
+				info.getSuffix(),
+				info.getClient().orElse(null),
+				info.isOnline(),
+				info.getHats(),
+				info.getShoulderBuddies(),
+				info.getBackBling(),
+				info.getCape(),
+				info.getIcon()
+		);
+	}
+
+	/**
+	 * @param settings the user settings.
+	 * @param panorama the new panorama id.
+	 * @return the user settings with the new panorama.
+	 */
+	static UserSettings withPanorama(UserSettings settings, int panorama) {
+		return new UserSettingsImpl(
+				settings.getUUID(),
+				settings.doHats(),
+				settings.doShoulderBuddies(),
+				settings.doBackBlings(),
+				settings.doLore(),
+				settings.getIconSettings(),
+				settings.getJoinTime(),
+				settings.getRole(),
+				settings.getCountryCode(),
+				settings.hasPerRegionEffects(),
+				settings.hasPerRegionEffectsSet(),
+				panorama,
+				settings.doOnlineActivity(),
+				settings.getCapeServerSettings()
+		);
+	}
+
+	/**
+	 * @return whether user info of the user with these settings shows cosmetics at the given position.
+	 */
+	static boolean shows(UserSettings settings, CosmeticPosition position) {
+		switch (position) {
+		case HAT:
+		case SECOND_HAT:
+			return settings.doHats();
+		case LEFT_SHOULDER_BUDDY:
+		case RIGHT_SHOULDER_BUDDY:
+			return settings.doShoulderBuddies();
+		case BACK_BLING:
+			return settings.doBackBlings();
+		default:
+			return true;
+		}
+	}
+
+	private static Optional<ShoulderBuddies> shoulderBuddies(Optional<? extends Cosmetic> left, Optional<? extends Cosmetic> right) {
+		return left.isPresent() || right.isPresent() ? Optional.of(new ShoulderBuddiesImpl(left, right)) : Optional.empty();
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.impl;
+
+import cc.cosmetica.api.texture.DecodedTexture;
+import cc.cosmetica.api.texture.TextureService;
+import cc.cosmetica.util.FlightRecording;
+import cc.cosmetica.util.Yootil;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TextureServiceImpl implements TextureService {
+	public TextureServiceImpl(int workerThreads, long maxCacheBytes) {
+		if (workerThreads < 1) throw new IllegalArgumentException("Texture service must have at least one worker thread");
+
+		AtomicInteger threadCount = new AtomicInteger();
+
+		// when the queue is full the requesting thread decodes the image itself, which throttles whoever is flooding us.
+		// unlike CallerRunsPolicy, tasks submitted after shutdown are rejected rather than silently dropped
+		this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(256),
+				task -> {
+					Thread thread = new Thread(task, "Cosmetica Texture Decoder #" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				},
+				(task, executor) -> {
+					if (executor.isShutdown()) throw new RejectedExecutionException("Texture service has been shut down");
+					task.run();
+				});
+		this.maxCacheBytes = maxCacheBytes;
+	}
+
+	private final ExecutorService workers;
+	private final long maxCacheBytes;
+
+	// guarded by this
+	private final LinkedHashMap<String, DecodedTexture> cache = new LinkedHashMap<>(64, 0.75f, true);
+	private final Map<String, CompletableFuture<DecodedTexture>> decoding = new HashMap<>();
+	private long cachedBytes;
+
+	@Override
+	public CompletableFuture<DecodedTexture> decode(String base64Image) {
+		final String data = stripHeader(base64Image);
+		final String hash = hash(data);
+		CompletableFuture<DecodedTexture> future;
+
+		synchronized (this) {
+			DecodedTexture cached = this.cache.get(hash);
+			FlightRecording.cacheLookup("texture", hash, cached != null);
+			if (cached != null) return CompletableFuture.completedFuture(cached);
+
+			future = this.decoding.get(hash);
+			if (future != null) return future;
+
+			future = new CompletableFuture<>();
+			this.decoding.put(hash, future);
+		}
+
+		final CompletableFuture<DecodedTexture> result = future;
+
+		try {
+			this.workers.execute(() -> {
+				try {
+					DecodedTexture texture = decodeImage(hash, data);
+
+					synchronized (this) {
+						this.decoding.remove(hash);
+						this.store(texture);
+					}
+
+					result.complete(texture);
+				}
+				catch (Throwable t) {
+					this.fail(hash, result, t);
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			this.fail(hash, result, e);
+		}
+
+		return result;
+	}
+
+	@Override
+	public Optional<DecodedTexture> getIfCached(String base64Image) {
+		String hash = hash(stripHeader(base64Image));
+
+		synchronized (this) {
+			return Optional.ofNullable(this.cache.get(hash));
+		}
+	}
+
+	@Override
+	public synchronized long getCachedBytes() {
+		return this.cachedBytes;
+	}
+
+	@Override
+	public synchronized void clear() {
+		this.cache.clear();
+		this.cachedBytes = 0;
+	}
+
+	@Override
+	public void shutdown() {
+		this.workers.shutdown();
+	}
+
+	private void fail(String hash, CompletableFuture<DecodedTexture> result, Throwable cause) {
+		synchronized (this) {
+			this.decoding.remove(hash);
+		}
+
+		result.completeExceptionally(cause);
+	}
+
+	private void store(DecodedTexture texture) {
+		if (this.cache.put(texture.getHash(), texture) == null) {
+			this.cachedBytes += texture.getByteSize();
+		}
+
+		// evict least recently used. always keep the texture just decoded, even if it alone exceeds the limit
+		Iterator<DecodedTexture> iterator = this.cache.values().iterator();
+
+		while (this.cachedBytes > this.maxCacheBytes && this.cache.size() > 1) {
+			DecodedTexture eldest = iterator.next();
+			iterator.remove();
+			this.cachedBytes -= eldest.getByteSize();
+		}
+	}
+
+	private static String stripHeader(String base64Image) {
+		int comma = base64Image.indexOf(',');
+		return comma == -1 ? base64Image : base64Image.substring(comma + 1);
+	}
+
+	private static String hash(String data) {
+		return Yootil.hash(data.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static DecodedTexture decodeImage(String hash, String data) throws UncheckedIOException {
+		try {
+			byte[] encoded;
+
+			try {
+				encoded = Base64.getMimeDecoder().decode(data);
+			}
+			catch (IllegalArgumentException e) {
+				throw new IOException("Invalid base64 image", e);
+			}
+
+			BufferedImage image = ImageIO.read(new ByteArrayInputStream(encoded));
+
+			if (image == null) {
+				throw new IOException("Unsupported image format");
+			}
+
+			int width = image.getWidth();
+			int height = image.getHeight();
+			return new DecodedTexture(hash, width, height, image.getRGB(0, 0, width, height, null, 0, width));
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
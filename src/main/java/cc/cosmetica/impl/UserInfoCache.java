@@ -0,0 +1,305 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.impl;
+
+import cc.cosmetica.api.ServerResponse;
+import cc.cosmetica.api.UserInfo;
+import cc.cosmetica.api.cosmetic.Cosmetic;
+import cc.cosmetica.api.cosmetic.ShoulderBuddies;
+import cc.cosmetica.impl.cosmetic.AbstractCosmetic;
+import cc.cosmetica.util.FlightRecording;
+import cc.cosmetica.util.SafeURL;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiFunction;
+
+/**
+ * Caches user info by uuid for a single api instance. Only one response is kept per user, with the flags it was
+ * requested with, and requests with other flags are served from it where they are a projection of it:
+ * <ul>
+ *     <li>A response with models can serve a request excluding models, by stripping the models from its cosmetics.</li>
+ *     <li>A response including third party capes can serve a request for only cosmetica capes when the cape it holds is
+ *     from cosmetica, since that is the cape either request would receive.</li>
+ * </ul>
+ * When a response for other flags is stored, it replaces the one held unless the one held can serve it. Responses which
+ * are read often are {@linkplain CacheEntry refreshed in the background} with the flags they were requested with.
+ */
+class UserInfoCache {
+	UserInfoCache(long ttl, int maxEntries, Refresher refresher) {
+		this.ttl = ttl;
+		this.refresher = refresher;
+		this.entries = new LinkedHashMap<UUID, CachedUserInfo>(64, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<UUID, CachedUserInfo> eldest) {
+				return this.size() > maxEntries;
+			}
+		};
+	}
+
+	private final long ttl;
+	private final Refresher refresher;
+	private volatile long maxStaleness;
+	// guarded by entries
+	private final Map<UUID, CachedUserInfo> entries;
+
+	/**
+	 * @param maxStaleness how long after expiring responses may still be {@linkplain UserInfoCache#getStale served} in
+	 *                     place of errors, in milliseconds. Responses are kept for this long after expiring.
+	 */
+	void setMaxStaleness(long maxStaleness) {
+		this.maxStaleness = maxStaleness;
+	}
+
+	/**
+	 * Get the cached user info for the given flags.
+	 * @param uuid the uuid of the user.
+	 * @param noThirdParty whether only cosmetica capes are requested.
+	 * @param excludeModels whether models are excluded.
+	 * @param target the url the user info would otherwise be requested from.
+	 * @return the user info, if a fresh response which can serve these flags is cached.
+	 */
+	Optional<ServerResponse<UserInfo>> get(UUID uuid, boolean noThirdParty, boolean excludeModels, SafeURL target) {
+		long now = System.currentTimeMillis();
+		CachedUserInfo entry = this.entry(uuid, now);
+		if (entry != null && entry.isExpired(now, this.ttl)) entry = null;
+
+		Optional<UserInfo> result = entry == null ? Optional.empty() : entry.project(noThirdParty, excludeModels);
+		FlightRecording.cacheLookup("user-info", uuid, result.isPresent());
+
+		if (result.isPresent() && entry.read(now, this.ttl)) {
+			this.refresh(uuid, entry);
+		}
+
+		long age = entry == null ? 0 : now - entry.storedAt;
+		return result.map(info -> new ServerResponse<>(info, target, age, false));
+	}
+
+	/**
+	 * Get the cached user info for the given flags, even if it has expired, to serve in place of an error.
+	 * @param uuid the uuid of the user.
+	 * @param noThirdParty whether only cosmetica capes are requested.
+	 * @param excludeModels whether models are excluded.
+	 * @param target the url the user info was requested from.
+	 * @return the user info, marked stale, if a response which can serve these flags is cached and is no older than the
+	 * maximum staleness allows.
+	 */
+	Optional<ServerResponse<UserInfo>> getStale(UUID uuid, boolean noThirdParty, boolean excludeModels, SafeURL target) {
+		long now = System.currentTimeMillis();
+		CachedUserInfo entry = this.entry(uuid, now);
+		if (entry == null) return Optional.empty();
+
+		return entry.project(noThirdParty, excludeModels).map(info -> new ServerResponse<>(info, target, now - entry.storedAt, true));
+	}
+
+	/**
+	 * @return the entry for the user, unless it has been expired for longer than the maximum staleness.
+	 */
+	@Nullable
+	private CachedUserInfo entry(UUID uuid, long now) {
+		synchronized (this.entries) {
+			CachedUserInfo entry = this.entries.get(uuid);
+
+			if (entry != null && entry.isExpired(now, this.ttl + this.maxStaleness)) {
+				this.entries.remove(uuid);
+				return null;
+			}
+
+			return entry;
+		}
+	}
+
+	private void refresh(UUID uuid, CachedUserInfo entry) {
+		final CompletableFuture<ServerResponse<UserInfo>> refreshed;
+
+		try {
+			refreshed = this.refresher.refresh(uuid, entry.noThirdParty, entry.excludeModels);
+		}
+		catch (RejectedExecutionException e) {
+			// a later read will try again
+			entry.refreshFailed();
+			return;
+		}
+
+		refreshed.whenComplete((response, error) -> {
+			if (response != null && response.isSuccessful()) {
+				synchronized (this.entries) {
+					// unless it has since been replaced or invalidated
+					if (this.entries.get(uuid) == entry) {
+						this.entries.put(uuid, new CachedUserInfo(response.get(), entry.noThirdParty, entry.excludeModels, System.currentTimeMillis()));
+					}
+				}
+			}
+			else {
+				entry.refreshFailed();
+			}
+		});
+	}
+
+	/**
+	 * Store user info retrieved with the given flags, unless a fresh response which can already serve them is cached.
+	 * @param uuid the uuid of the user.
+	 * @param info the user info.
+	 * @param noThirdParty whether only cosmetica capes were requested.
+	 * @param excludeModels whether models were excluded.
+	 */
+	void put(UUID uuid, UserInfo info, boolean noThirdParty, boolean excludeModels) {
+		long now = System.currentTimeMillis();
+
+		synchronized (this.entries) {
+			CachedUserInfo existing = this.entries.get(uuid);
+
+			if (existing == null || existing.isExpired(now, this.ttl) || !existing.project(noThirdParty, excludeModels).isPresent()) {
+				this.entries.put(uuid, new CachedUserInfo(info, noThirdParty, excludeModels, now));
+			}
+		}
+	}
+
+	/**
+	 * Patch the cached user info of a user with the known effect of a write, keeping the time it was stored.
+	 * @param uuid the uuid of the user.
+	 * @param patch patches the user info, given whether it excludes models. Returns empty if the effect cannot be known,
+	 *              in which case the user info is invalidated instead.
+	 */
+	void patch(UUID uuid, BiFunction<UserInfo, Boolean, Optional<UserInfo>> patch) {
+		synchronized (this.entries) {
+			CachedUserInfo entry = this.entries.get(uuid);
+			if (entry == null) return;
+
+			Optional<UserInfo> patched = patch.apply(entry.value, entry.excludeModels);
+
+			if (patched.isPresent()) {
+				this.entries.put(uuid, new CachedUserInfo(patched.get(), entry.noThirdParty, entry.excludeModels, entry.storedAt));
+			}
+			else {
+				this.entries.remove(uuid);
+			}
+		}
+	}
+
+	/**
+	 * @return how long user info is cached for, in milliseconds.
+	 */
+	long getCacheTime() {
+		return this.ttl;
+	}
+
+	void invalidate(UUID uuid) {
+		synchronized (this.entries) {
+			this.entries.remove(uuid);
+		}
+	}
+
+	void clear() {
+		synchronized (this.entries) {
+			this.entries.clear();
+		}
+	}
+
+	int size() {
+		synchronized (this.entries) {
+			return this.entries.size();
+		}
+	}
+
+	/**
+	 * Strip the models from the cosmetics of user info, as though it were retrieved with models excluded.
+	 * @param info the user info.
+	 * @return the user info without models.
+	 */
+	static UserInfo withoutModels(UserInfo info) {
+		List<Cosmetic> hats = new ArrayList<>(info.getHats().size());
+
+		for (Cosmetic hat : info.getHats()) {
+			hats.add(AbstractCosmetic.stripHeavyFields(hat));
+		}
+
+		Optional<ShoulderBuddies> shoulderBuddies = info.getShoulderBuddies().map(sb -> new ShoulderBuddiesImpl(
+				sb.getLeft().map(AbstractCosmetic::stripHeavyFields),
+				sb.getRight().map(AbstractCosmetic::stripHeavyFields)
+		));
+
+		return new UserInfoImpl(
+				info.getSkin(),
+				info.isSlim(),
+				info.getLore(),
+				info.getPlatform(),
+				info.getRole(),
+				info.isUpsideDown(),
+				info.getPrefix(),
+				info.getSuffix(),
+				info.getClient().orElse(null),
+				info.isOnline(),
+				hats,
+				shoulderBuddies,
+				info.getBackBling().map(AbstractCosmetic::stripHeavyFields),
+				info.getCape().map(AbstractCosmetic::stripHeavyFields),
+				info.getIcon()
+		);
+	}
+
+	/**
+	 * Requests user info for a refresh in the background, bypassing the cache.
+	 */
+	interface Refresher {
+		CompletableFuture<ServerResponse<UserInfo>> refresh(UUID uuid, boolean noThirdParty, boolean excludeModels);
+	}
+
+	private static class CachedUserInfo extends CacheEntry<UserInfo> {
+		CachedUserInfo(UserInfo info, boolean noThirdParty, boolean excludeModels, long storedAt) {
+			super(info, storedAt);
+			this.noThirdParty = noThirdParty;
+			this.excludeModels = excludeModels;
+		}
+
+		private final boolean noThirdParty;
+		private final boolean excludeModels;
+		@Nullable
+		private volatile UserInfo withoutModels;
+
+		Optional<UserInfo> project(boolean noThirdParty, boolean excludeModels) {
+			if (this.excludeModels && !excludeModels) return Optional.empty();
+
+			if (noThirdParty && !this.noThirdParty) {
+				// without the cosmetica cape the user may have hidden behind another cape server, only a cosmetica cape is certain
+				if (!this.value.getCape().filter(cape -> "Cosmetica".equals(cape.getOrigin())).isPresent()) return Optional.empty();
+			}
+			else if (!noThirdParty && this.noThirdParty) {
+				return Optional.empty();
+			}
+
+			if (excludeModels && !this.excludeModels) {
+				UserInfo stripped = this.withoutModels;
+
+				if (stripped == null) {
+					this.withoutModels = stripped = UserInfoCache.withoutModels(this.value);
+				}
+
+				return Optional.of(stripped);
+			}
+
+			return Optional.of(this.value);
+		}
+	}
+}
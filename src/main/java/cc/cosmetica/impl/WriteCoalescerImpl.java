@@ -0,0 +1,81 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.impl;
+
+import cc.cosmetica.api.CosmeticPosition;
+import cc.cosmetica.api.CosmeticaAPI;
+import cc.cosmetica.api.ServerResponse;
+import cc.cosmetica.api.WriteCoalescer;
+import cc.cosmetica.api.settings.CapeDisplay;
+import cc.cosmetica.util.KeyedDebouncer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class WriteCoalescerImpl implements WriteCoalescer {
+	public WriteCoalescerImpl(CosmeticaAPI api, long delay) {
+		this.cosmetics = new KeyedDebouncer<>(delay, api.getRequestExecutor(), (waiting, latest) -> latest,
+				(position, cosmetic) -> api.setCosmetic(position, cosmetic.id, cosmetic.requireOfficial));
+		this.settings = new KeyedDebouncer<>(delay, api.getRequestExecutor(), WriteCoalescerImpl::merge,
+				(key, settings) -> api.updateUserSettings(settings));
+		this.capeServerSettings = new KeyedDebouncer<>(delay, api.getRequestExecutor(), WriteCoalescerImpl::merge,
+				(key, settings) -> api.setCapeServerSettings(settings));
+	}
+
+	private final KeyedDebouncer<CosmeticPosition, PendingCosmetic, ServerResponse<Boolean>> cosmetics;
+	// settings are merged into one request, so share a single key
+	private final KeyedDebouncer<Boolean, Map<String, Object>, ServerResponse<Boolean>> settings;
+	private final KeyedDebouncer<Boolean, Map<String, CapeDisplay>, ServerResponse<Map<String, CapeDisplay>>> capeServerSettings;
+
+	@Override
+	public CompletableFuture<ServerResponse<Boolean>> setCosmetic(CosmeticPosition position, String id, boolean requireOfficial) {
+		return this.cosmetics.submit(position, new PendingCosmetic(id, requireOfficial));
+	}
+
+	@Override
+	public CompletableFuture<ServerResponse<Boolean>> updateUserSettings(Map<String, Object> settings) {
+		return this.settings.submit(Boolean.TRUE, new LinkedHashMap<>(settings));
+	}
+
+	@Override
+	public CompletableFuture<ServerResponse<Map<String, CapeDisplay>>> setCapeServerSettings(Map<String, CapeDisplay> settings) {
+		return this.capeServerSettings.submit(Boolean.TRUE, new LinkedHashMap<>(settings));
+	}
+
+	@Override
+	public void flush() {
+		this.cosmetics.flush();
+		this.settings.flush();
+		this.capeServerSettings.flush();
+	}
+
+	private static <T> Map<String, T> merge(Map<String, T> waiting, Map<String, T> latest) {
+		waiting.putAll(latest);
+		return waiting;
+	}
+
+	private static class PendingCosmetic {
+		private PendingCosmetic(String id, boolean requireOfficial) {
+			this.id = id;
+			this.requireOfficial = requireOfficial;
+		}
+
+		private final String id;
+		private final boolean requireOfficial;
+	}
+}
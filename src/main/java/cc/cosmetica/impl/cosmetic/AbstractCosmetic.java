@@ -19,11 +19,16 @@ package cc.cosmetica.impl.cosmetic;
 import cc.cosmetica.api.cosmetic.Cosmetic;
 import cc.cosmetica.api.cosmetic.CosmeticType;
 import cc.cosmetica.api.cosmetic.UploadState;
+import cc.cosmetica.util.SlicedJson;
 import com.google.gson.JsonObject;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -54,17 +59,50 @@ public abstract class AbstractCosmetic implements Cosmetic {
 		return Objects.hash(this.getType(), this.getId());
 	}
 
+	/**
+	 * @return this cosmetic without the data of its {@linkplain AbstractCosmetic#HEAVY_FIELDS heavy fields}, as sent when models are excluded.
+	 */
+	Cosmetic withoutHeavyFields() {
+		return this;
+	}
+
+	/**
+	 * Strip a cosmetic of its model, texture and image, leaving them as empty strings as the api does when models are
+	 * excluded from a response.
+	 * @param cosmetic the cosmetic.
+	 * @return the cosmetic without its heavy fields. May be the same instance if it has none.
+	 */
+	public static Cosmetic stripHeavyFields(Cosmetic cosmetic) {
+		return cosmetic instanceof AbstractCosmetic ? ((AbstractCosmetic) cosmetic).withoutHeavyFields() : cosmetic;
+	}
+
 	/**
 	 * The UUID of an official cosmetic from cosmetica.
 	 */
 	private static final UUID OFFICIAL = UUID.fromString("00000000-0000-0000-0000-000000000000");
 
+	/**
+	 * The keys of heavy string fields in cosmetic json, which can be {@linkplain SlicedJson sliced} off by the response
+	 * parser and only decoded when requested.
+	 */
+	public static final Set<String> HEAVY_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("model", "texture")));
+
 	/**
 	 * Parse a {@link JsonObject} from the API representing a cosmetic into a an actual {@link Cosmetic} object.
 	 * @param json the json object representation.
 	 * @return an optional containing the parsed cosmetic object, or empty.
 	 */
 	public static Optional<? extends Cosmetic> parse(@Nullable JsonObject json) {
+		return parse(json, SlicedJson.NONE);
+	}
+
+	/**
+	 * Parse a {@link JsonObject} from the API representing a cosmetic into a an actual {@link Cosmetic} object.
+	 * @param json the json object representation.
+	 * @param document the sliced document the object was parsed from, from which to lazily read any {@linkplain AbstractCosmetic#HEAVY_FIELDS heavy fields}.
+	 * @return an optional containing the parsed cosmetic object, or empty.
+	 */
+	public static Optional<? extends Cosmetic> parse(@Nullable JsonObject json, SlicedJson document) {
 		if (json == null) {
 			return Optional.empty();
 		}
@@ -75,10 +113,10 @@ public abstract class AbstractCosmetic implements Cosmetic {
 			return SimpleCosmetic.parseAsSimple(json);
 		}
 		else if (type == CosmeticType.CAPE) {
-			return CapeImpl.parseAsCape(json);
+			return CapeImpl.parseAsCape(json, document);
 		}
 		else {
-			return ModelImpl.parseAsModel(json);
+			return ModelImpl.parseAsModel(json, document);
 		}
 	}
 
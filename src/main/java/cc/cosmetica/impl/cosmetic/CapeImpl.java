@@ -18,8 +18,11 @@ package cc.cosmetica.impl.cosmetic;
 
 import cc.cosmetica.api.*;
 import cc.cosmetica.api.cosmetic.Cape;
+import cc.cosmetica.api.cosmetic.Cosmetic;
 import cc.cosmetica.api.cosmetic.CosmeticType;
 import cc.cosmetica.api.cosmetic.UploadState;
+import cc.cosmetica.util.LazyString;
+import cc.cosmetica.util.SlicedJson;
 import cc.cosmetica.util.Yootil;
 import com.google.gson.JsonObject;
 import org.jetbrains.annotations.Nullable;
@@ -28,7 +31,7 @@ import java.util.Optional;
 import java.util.OptionalInt;
 
 class CapeImpl extends AbstractCosmetic implements Cape {
-	private CapeImpl(String id, String name, String origin, String image, boolean cosmeticaAlternative, int frameDelay,
+	private CapeImpl(String id, String name, String origin, LazyString image, boolean cosmeticaAlternative, int frameDelay,
 			 UploadState uploadState, String reason, long uploadTime, @Nullable User owner) {
 		this.id = id;
 		this.name = name;
@@ -46,7 +49,7 @@ class CapeImpl extends AbstractCosmetic implements Cape {
 	private final String id;
 	private final String name;
 	private final String origin;
-	private final String image;
+	private final LazyString image;
 	private final boolean cosmeticaAlternative;
 	private final int frameDelay;
 
@@ -72,7 +75,7 @@ class CapeImpl extends AbstractCosmetic implements Cape {
 
 	@Override
 	public String getImage() {
-		return this.image;
+		return this.image.get();
 	}
 
 	@Override
@@ -110,17 +113,23 @@ class CapeImpl extends AbstractCosmetic implements Cape {
 		return false;
 	}
 
+	@Override
+	Cosmetic withoutHeavyFields() {
+		return new CapeImpl(this.id, this.name, this.origin, LazyString.of(""), this.cosmeticaAlternative, this.frameDelay,
+				this.uploadState, this.reason, this.uploadTime, this.owner);
+	}
+
 	@Override
 	public CosmeticType<?> getType() {
 		return CosmeticType.CAPE;
 	}
 
-	static Optional<Cape> parseAsCape(@Nullable JsonObject data) {
+	static Optional<Cape> parseAsCape(@Nullable JsonObject data, SlicedJson document) {
 		if (data == null) return Optional.empty();
 
 		String id = data.get("id").getAsString();
 		String origin = data.get("origin").getAsString();
-		String image = data.get("image").getAsString();
+		LazyString image = document.getString(data.get("image"));
 		String name = data.get("name").getAsString();
 		int frameDelay = data.get("extraInfo").getAsInt();
 
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.impl.cosmetic;
+
+import cc.cosmetica.api.cosmetic.Model;
+import cc.cosmetica.api.cosmetic.ModelGeometry;
+import cc.cosmetica.util.FlightRecording;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Caches the parsed {@link ModelGeometry} of models by type and id, so each model's json is only parsed once.
+ */
+public final class GeometryCache {
+	private GeometryCache() {
+	}
+
+	private static final int MAX_ENTRIES = 512;
+
+	private static final Map<String, ModelGeometry> CACHE = new LinkedHashMap<String, ModelGeometry>(64, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ModelGeometry> eldest) {
+			return this.size() > MAX_ENTRIES;
+		}
+	};
+
+	/**
+	 * Get the geometry of the given model, parsing it if it is not cached.
+	 * @param model the model.
+	 * @return the geometry of the model, or empty if it is not cached and the model has no model json to parse.
+	 */
+	public static Optional<ModelGeometry> get(Model model) {
+		String key = model.getType().getUrlString() + ':' + model.getId();
+		ModelGeometry geometry;
+
+		synchronized (CACHE) {
+			geometry = CACHE.get(key);
+		}
+
+		FlightRecording.cacheLookup("geometry", key, geometry != null);
+
+		if (geometry == null) {
+			// models from responses excluding models have their json stripped
+			if (model.getModel().isEmpty()) return Optional.empty();
+
+			// parse outside the lock. at worst, two threads parse the same model at once
+			geometry = ModelGeometry.parse(model);
+
+			synchronized (CACHE) {
+				CACHE.put(key, geometry);
+			}
+		}
+
+		return Optional.of(geometry);
+	}
+
+	/**
+	 * Remove all cached geometry.
+	 */
+	public static void clear() {
+		synchronized (CACHE) {
+			CACHE.clear();
+		}
+	}
+}
@@ -18,9 +18,12 @@ package cc.cosmetica.impl.cosmetic;
 
 import cc.cosmetica.api.User;
 import cc.cosmetica.api.cosmetic.BoundingBox;
+import cc.cosmetica.api.cosmetic.Cosmetic;
 import cc.cosmetica.api.cosmetic.CosmeticType;
 import cc.cosmetica.api.cosmetic.Model;
 import cc.cosmetica.api.cosmetic.UploadState;
+import cc.cosmetica.util.LazyString;
+import cc.cosmetica.util.SlicedJson;
 import cc.cosmetica.util.Yootil;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
@@ -30,7 +33,7 @@ import java.util.Optional;
 
 class ModelImpl extends AbstractCosmetic implements Model {
 	private ModelImpl(CosmeticType<?> type, String id, String name, int flags, BoundingBox bounds,
-			  String model, String base64Texture, User owner, String origin,
+			  LazyString model, LazyString base64Texture, User owner, String origin,
 			  UploadState uploadState, String reason, long uploadTime, boolean usesUVRotations) {
 		this.id = id;
 		this.flags = flags;
@@ -53,8 +56,8 @@ class ModelImpl extends AbstractCosmetic implements Model {
 	private final int flags;
 	private final BoundingBox bounds;
 
-	private final String model;
-	private final String texture;
+	private final LazyString model;
+	private final LazyString texture;
 	private final User owner;
 	private final boolean usesUVRotations;
 	private final CosmeticType<?> type;
@@ -87,12 +90,12 @@ class ModelImpl extends AbstractCosmetic implements Model {
 
 	@Override
 	public String getModel() {
-		return this.model;
+		return this.model.get();
 	}
 
 	@Override
 	public String getTexture() {
-		return this.texture;
+		return this.texture.get();
 	}
 
 	@Override
@@ -145,7 +148,13 @@ class ModelImpl extends AbstractCosmetic implements Model {
 		return false;
 	}
 
-	static Optional<Model> parseAsModel(@Nullable JsonObject json) {
+	@Override
+	Cosmetic withoutHeavyFields() {
+		return new ModelImpl(this.type, this.id, this.name, this.flags, this.bounds, LazyString.of(""), LazyString.of(""), this.owner,
+				this.origin, this.uploadState, this.reason, this.uploadTime, this.usesUVRotations);
+	}
+
+	static Optional<Model> parseAsModel(@Nullable JsonObject json, SlicedJson document) {
 		if (json == null) {
 			return Optional.empty();
 		}
@@ -176,8 +185,8 @@ class ModelImpl extends AbstractCosmetic implements Model {
 				json.get("name").getAsString(),
 				flags,
 				bounds,
-				json.get("model").getAsString(),
-				json.get("texture").getAsString(),
+				document.getString(json.get("model")),
+				document.getString(json.get("texture")),
 				new User(Yootil.toUUID(json.get("owner").getAsString()), json.get("ownerName").getAsString()),
 				json.get("origin").getAsString(),
 				UploadState.getById(json.get("uploadState").getAsInt()),
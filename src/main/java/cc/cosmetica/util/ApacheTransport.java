@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cc.cosmetica.util;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An HTTP/1.1 transport backed by Apache HttpClient, keeping a pool of connections alive between requests.
+ */
+public class ApacheTransport implements Transport {
+	public ApacheTransport(int maxConnections, int maxConnectionsPerHost, DnsResolver dnsResolver) {
+		Registry<ConnectionSocketFactory> socketFactories = RegistryBuilder.<ConnectionSocketFactory>create()
+				.register("http", PlainConnectionSocketFactory.getSocketFactory())
+				.register("https", SSLConnectionSocketFactory.getSocketFactory())
+				.build();
+
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(socketFactories, dnsResolver);
+		connectionManager.setMaxTotal(maxConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+
+		this.client = HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.evictIdleConnections(30, TimeUnit.SECONDS)
+				.build();
+	}
+
+	private final CloseableHttpClient client;
+
+	@Override
+	public Response get(String url, int timeout) throws IOException {
+		return this.execute(new HttpGet(url), timeout);
+	}
+
+	@Override
+	public Response post(String url, String contentType, byte[] body, int timeout) throws IOException {
+		HttpPost post = new HttpPost(url);
+		post.setEntity(new ByteArrayEntity(body, ContentType.parse(contentType)));
+		return this.execute(post, timeout);
+	}
+
+	@Override
+	public void connect(String url, int timeout) throws IOException {
+		this.execute(new HttpHead(url), timeout);
+	}
+
+	private Response execute(HttpRequestBase request, int timeout) throws IOException {
+		request.setConfig(RequestConfig.custom()
+				.setConnectionRequestTimeout(timeout)
+				.setConnectTimeout(timeout)
+				.setSocketTimeout(timeout)
+				.build());
+
+		// reading the entity fully releases the connection back to the pool
+		try (CloseableHttpResponse response = this.client.execute(request)) {
+			HttpEntity entity = response.getEntity();
+			return new Response(response.getStatusLine().getStatusCode(), entity == null ? new byte[0] : EntityUtils.toByteArray(entity));
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "Apache HttpClient (HTTP/1.1)";
+	}
+}
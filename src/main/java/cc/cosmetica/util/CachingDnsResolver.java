@@ -0,0 +1,74 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cc.cosmetica.util;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A DNS resolver which caches successful lookups from the system resolver for a fixed time, so frequent requests to
+ * the same host do not each query the system resolver. Failed lookups are not cached.
+ */
+public class CachingDnsResolver implements DnsResolver {
+	/**
+	 * @param ttl how long to cache each lookup for, in milliseconds.
+	 */
+	public CachingDnsResolver(long ttl) {
+		this.ttl = ttl;
+	}
+
+	private final long ttl;
+	private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+	@Override
+	public InetAddress[] resolve(String host) throws UnknownHostException {
+		Entry entry = this.cache.get(host);
+		long now = System.currentTimeMillis();
+		boolean hit = entry != null && now < entry.expiry;
+		FlightRecording.cacheLookup("dns", host, hit);
+
+		if (!hit) {
+			entry = new Entry(SystemDefaultDnsResolver.INSTANCE.resolve(host), now + this.ttl);
+			this.cache.put(host, entry);
+		}
+
+		return entry.addresses.clone();
+	}
+
+	/**
+	 * Forget all cached lookups.
+	 */
+	public void clear() {
+		this.cache.clear();
+	}
+
+	private static class Entry {
+		private Entry(InetAddress[] addresses, long expiry) {
+			this.addresses = addresses;
+			this.expiry = expiry;
+		}
+
+		private final InetAddress[] addresses;
+		private final long expiry;
+	}
+}
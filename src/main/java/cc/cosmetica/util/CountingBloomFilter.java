@@ -0,0 +1,123 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.util;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * A counting bloom filter of uuids with 4 bit counters, two to a byte, so entries can be removed again. May report
+ * uuids which were never added as present, at around the false positive rate it was sized for while it holds no more
+ * than its expected number of entries, but never reports an added uuid as absent unless it is removed. Counters which
+ * reach their maximum stick there, and are never decremented. Not thread safe.
+ */
+public final class CountingBloomFilter {
+	/**
+	 * @param expectedEntries the number of uuids the filter is expected to hold at once.
+	 * @param falsePositiveRate the desired rate of false positives when holding that many entries, between 0 and 1.
+	 */
+	public CountingBloomFilter(int expectedEntries, double falsePositiveRate) {
+		if (expectedEntries < 1) throw new IllegalArgumentException("Expected entries must be positive, was " + expectedEntries);
+		if (falsePositiveRate <= 0 || falsePositiveRate >= 1) throw new IllegalArgumentException("False positive rate must be between 0 and 1, was " + falsePositiveRate);
+
+		long counters = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		if (counters > Integer.MAX_VALUE) throw new IllegalArgumentException("Filter for " + expectedEntries + " entries at rate " + falsePositiveRate + " is too large");
+
+		this.counters = (int) counters;
+		this.hashes = Math.max(1, (int) Math.round((double) counters / expectedEntries * Math.log(2)));
+		this.data = new byte[(this.counters + 1) / 2];
+	}
+
+	private final int counters;
+	private final int hashes;
+	private final byte[] data;
+
+	public void add(UUID uuid) {
+		long h1 = mix(uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits() * 0x9E3779B97F4A7C15L);
+		long h2 = mix(uuid.getLeastSignificantBits()) | 1;
+
+		for (int i = 0; i < this.hashes; i++) {
+			int index = this.index(h1 + i * h2);
+			int count = this.get(index);
+			if (count < MAX_COUNT) this.set(index, count + 1);
+		}
+	}
+
+	public boolean mightContain(UUID uuid) {
+		long h1 = mix(uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits() * 0x9E3779B97F4A7C15L);
+		long h2 = mix(uuid.getLeastSignificantBits()) | 1;
+
+		for (int i = 0; i < this.hashes; i++) {
+			if (this.get(this.index(h1 + i * h2)) == 0) return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Remove a uuid from the filter, if it might be present.
+	 * @param uuid the uuid to remove.
+	 * @return whether the uuid might have been present.
+	 */
+	public boolean remove(UUID uuid) {
+		if (!this.mightContain(uuid)) return false;
+
+		long h1 = mix(uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits() * 0x9E3779B97F4A7C15L);
+		long h2 = mix(uuid.getLeastSignificantBits()) | 1;
+
+		for (int i = 0; i < this.hashes; i++) {
+			int index = this.index(h1 + i * h2);
+			int count = this.get(index);
+			if (count < MAX_COUNT) this.set(index, count - 1);
+		}
+
+		return true;
+	}
+
+	public void clear() {
+		Arrays.fill(this.data, (byte) 0);
+	}
+
+	/**
+	 * @return the number of bytes the counters of this filter take up.
+	 */
+	public int getByteSize() {
+		return this.data.length;
+	}
+
+	private int index(long hash) {
+		return (int) ((hash >>> 1) % this.counters);
+	}
+
+	private int get(int index) {
+		return (this.data[index >> 1] >> ((index & 1) << 2)) & MAX_COUNT;
+	}
+
+	private void set(int index, int count) {
+		int shift = (index & 1) << 2;
+		this.data[index >> 1] = (byte) ((this.data[index >> 1] & ~(MAX_COUNT << shift)) | (count << shift));
+	}
+
+	private static final int MAX_COUNT = 0xF;
+
+	// the finaliser of splitmix64
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
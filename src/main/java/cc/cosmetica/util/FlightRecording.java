@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.util;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Emits the library's Java Flight Recorder events: {@code CosmeticaRequest} for each http request,
+ * {@code CosmeticaParse} for parsing each api response, and {@code CosmeticaCacheHit} / {@code CosmeticaCacheMiss}
+ * for lookups in the library's caches.<br>
+ * JFR is not available on Java 8, so this version does nothing. The Java 11 version of this class records the events.
+ */
+public final class FlightRecording {
+	private FlightRecording() {
+	}
+
+	/**
+	 * Begin timing a request.
+	 * @return the event to pass to {@link FlightRecording#commitRequest}, or null if the event is not being recorded.
+	 */
+	@Nullable
+	public static Object beginRequest() {
+		return null;
+	}
+
+	/**
+	 * Finish and record a request event.
+	 * @param event the event from {@link FlightRecording#beginRequest()}.
+	 * @param method the http method.
+	 * @param url the url requested. Only the path is recorded, so tokens in the query are not.
+	 * @param status the status code of the response, or -1 if no response was received.
+	 * @param bytes the size of the response body, in bytes.
+	 */
+	public static void commitRequest(@Nullable Object event, String method, String url, int status, long bytes) {
+	}
+
+	/**
+	 * Begin timing the parsing of a response.
+	 * @return the event to pass to {@link FlightRecording#commitParse}, or null if the event is not being recorded.
+	 */
+	@Nullable
+	public static Object beginParse() {
+		return null;
+	}
+
+	/**
+	 * Finish and record a parse event.
+	 * @param event the event from {@link FlightRecording#beginParse()}.
+	 * @param endpoint the api endpoint the response is from.
+	 * @param bytes the size of the response body, in bytes.
+	 * @param successful whether the response was parsed successfully.
+	 */
+	public static void commitParse(@Nullable Object event, String endpoint, long bytes, boolean successful) {
+	}
+
+	/**
+	 * Record a lookup in a cache.
+	 * @param cache the name of the cache.
+	 * @param key the key looked up. Only converted to a string if the event is recorded.
+	 * @param hit whether the key was found.
+	 */
+	public static void cacheLookup(String cache, Object key, boolean hit) {
+	}
+
+	/**
+	 * Record a lookup in a cache whose keys are in namespaces, recording the key as {@code namespace:key}.
+	 * @param cache the name of the cache.
+	 * @param namespace the namespace of the key.
+	 * @param key the key looked up within the namespace. Only converted to a string if the event is recorded.
+	 * @param hit whether the key was found.
+	 */
+	public static void cacheLookup(String cache, String namespace, Object key, boolean hit) {
+	}
+}
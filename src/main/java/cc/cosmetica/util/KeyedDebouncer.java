@@ -0,0 +1,182 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+
+/**
+ * Coalesces writes by key. Values submitted for a key are merged until none have been submitted for it for the debounce
+ * delay, and then the merged value is sent once. Everyone who submitted a value to it receives the result of that send.
+ * Only one send is in progress for each key at a time, so sends for a key reach the server in the order they were made.
+ * @param <K> the type of key.
+ * @param <V> the type of value written.
+ * @param <R> the result of a write.
+ */
+public final class KeyedDebouncer<K, V, R> {
+	/**
+	 * @param delay how long to wait after the last value submitted for a key before sending, in milliseconds.
+	 * @param executor the executor to send writes on.
+	 * @param merge merges a value submitted for a key into the value already waiting to be sent for it.
+	 * @param send sends the value for a key, returning the result.
+	 */
+	public KeyedDebouncer(long delay, Executor executor, BinaryOperator<V> merge, BiFunction<K, V, R> send) {
+		this.delay = delay;
+		this.executor = executor;
+		this.merge = merge;
+		this.send = send;
+	}
+
+	private final long delay;
+	private final Executor executor;
+	private final BinaryOperator<V> merge;
+	private final BiFunction<K, V, R> send;
+	// guarded by this
+	private final Map<K, Slot<V, R>> slots = new HashMap<>();
+
+	/**
+	 * Submit a value to be written for the given key, merged with any waiting to be sent for it.
+	 * @param key the key.
+	 * @param value the value.
+	 * @return the result of the send which includes this value. Completes exceptionally if the send throws, or the
+	 * executor rejects it.
+	 */
+	public synchronized CompletableFuture<R> submit(K key, V value) {
+		Slot<V, R> slot = this.slots.computeIfAbsent(key, k -> new Slot<>());
+
+		if (slot.value == null) {
+			slot.value = value;
+			slot.result = new CompletableFuture<>();
+		}
+		else {
+			slot.value = this.merge.apply(slot.value, value);
+		}
+
+		if (slot.timer != null) slot.timer.cancel(false);
+		slot.timer = SCHEDULER.schedule(() -> this.fire(key), this.delay, TimeUnit.MILLISECONDS);
+		return slot.result;
+	}
+
+	/**
+	 * Send every waiting value now, without waiting for the rest of its debounce delay.
+	 */
+	public void flush() {
+		List<K> keys;
+
+		synchronized (this) {
+			keys = new ArrayList<>(this.slots.keySet());
+		}
+
+		for (K key : keys) {
+			this.fire(key);
+		}
+	}
+
+	private void fire(K key) {
+		V value;
+		CompletableFuture<R> result;
+
+		synchronized (this) {
+			Slot<V, R> slot = this.slots.get(key);
+			if (slot == null || slot.value == null) return;
+
+			if (slot.timer != null) {
+				slot.timer.cancel(false);
+				slot.timer = null;
+			}
+
+			// sent once the current send finishes
+			if (slot.sending) return;
+
+			value = slot.value;
+			result = slot.result;
+			slot.value = null;
+			slot.result = null;
+			slot.sending = true;
+		}
+
+		try {
+			this.executor.execute(() -> {
+				try {
+					result.complete(this.send.apply(key, value));
+				}
+				catch (RuntimeException e) {
+					result.completeExceptionally(e);
+				}
+				finally {
+					this.sent(key);
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			// such as the executor having been shut down
+			result.completeExceptionally(e);
+			this.sent(key);
+		}
+	}
+
+	private void sent(K key) {
+		boolean sendNext;
+
+		synchronized (this) {
+			Slot<V, R> slot = this.slots.get(key);
+			slot.sending = false;
+
+			if (slot.value == null) {
+				this.slots.remove(key);
+				return;
+			}
+
+			// a value which finished debouncing during the send
+			sendNext = slot.timer == null;
+		}
+
+		if (sendNext) this.fire(key);
+	}
+
+	private static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(1, task -> {
+		Thread thread = new Thread(task, "Cosmetica Write Debouncer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	static {
+		SCHEDULER.setRemoveOnCancelPolicy(true);
+	}
+
+	private static class Slot<V, R> {
+		@Nullable
+		private V value;
+		@Nullable
+		private CompletableFuture<R> result;
+		@Nullable
+		private ScheduledFuture<?> timer;
+		private boolean sending;
+	}
+}
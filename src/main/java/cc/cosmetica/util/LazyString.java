@@ -0,0 +1,173 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * A string which may be held as the raw bytes of a JSON string literal (quotes and escapes included), and is only
+ * decoded into a {@link String} the first time it is requested.
+ */
+public final class LazyString implements Supplier<String> {
+	private LazyString(@Nullable ByteBuffer raw, @Nullable String value) {
+		this.raw = raw;
+		this.value = value;
+	}
+
+	@Nullable
+	private volatile ByteBuffer raw;
+	@Nullable
+	private volatile String value;
+
+	/**
+	 * Get the string, decoding it if this has not already been done.
+	 * @return the decoded string.
+	 */
+	@Override
+	public String get() {
+		String value = this.value;
+
+		if (value == null) {
+			ByteBuffer raw = this.raw;
+
+			// another thread may have decoded it in the meantime
+			if (raw == null) {
+				return this.value;
+			}
+
+			value = decode(raw.duplicate());
+			this.value = value;
+			this.raw = null;
+		}
+
+		return value;
+	}
+
+	/**
+	 * @return whether this string has been decoded already.
+	 */
+	public boolean isDecoded() {
+		return this.value != null;
+	}
+
+	/**
+	 * Get the raw JSON string literal this string would be decoded from, without decoding it.
+	 * @return a read-only view of the raw literal, quotes included, or empty if this string is already decoded.
+	 */
+	public ByteBuffer getRaw() {
+		ByteBuffer raw = this.raw;
+		return raw == null ? ByteBuffer.allocate(0) : raw.asReadOnlyBuffer();
+	}
+
+	@Override
+	public String toString() {
+		return this.get();
+	}
+
+	/**
+	 * Create a lazy string that has already been decoded.
+	 * @param value the string.
+	 * @return a lazy string of the given value.
+	 */
+	public static LazyString of(String value) {
+		return new LazyString(null, value);
+	}
+
+	/**
+	 * Create a lazy string from the raw bytes of a JSON string literal.
+	 * @param raw the UTF-8 bytes of the literal, including the surrounding quotes. The buffer's position and limit mark
+	 *            the literal. The buffer is retained until the string is decoded, so must not be modified.
+	 * @return a lazy string that will decode the given literal when first requested.
+	 */
+	public static LazyString ofRaw(ByteBuffer raw) {
+		return new LazyString(raw, null);
+	}
+
+	private static String decode(ByteBuffer raw) {
+		// strip the surrounding quotes
+		int start = raw.position() + 1;
+		int end = raw.limit() - 1;
+		boolean plain = true;
+
+		for (int i = start; i < end; i++) {
+			byte b = raw.get(i);
+
+			if (b == '\\' || b < 0) {
+				plain = false;
+				break;
+			}
+		}
+
+		byte[] bytes = new byte[end - start];
+		((Buffer) raw).position(start);
+		raw.get(bytes);
+
+		if (plain) {
+			return new String(bytes, StandardCharsets.ISO_8859_1);
+		}
+
+		return unescape(new String(bytes, StandardCharsets.UTF_8));
+	}
+
+	private static String unescape(String escaped) {
+		StringBuilder result = new StringBuilder(escaped.length());
+		int length = escaped.length();
+
+		for (int i = 0; i < length; i++) {
+			char c = escaped.charAt(i);
+
+			if (c != '\\' || i + 1 == length) {
+				result.append(c);
+				continue;
+			}
+
+			c = escaped.charAt(++i);
+
+			switch (c) {
+			case 'b':
+				result.append('\b');
+				break;
+			case 'f':
+				result.append('\f');
+				break;
+			case 'n':
+				result.append('\n');
+				break;
+			case 'r':
+				result.append('\r');
+				break;
+			case 't':
+				result.append('\t');
+				break;
+			case 'u':
+				result.append((char) Integer.parseInt(escaped.substring(i + 1, i + 5), 16));
+				i += 4;
+				break;
+			default: // \" \\ \/
+				result.append(c);
+				break;
+			}
+		}
+
+		return result.toString();
+	}
+}
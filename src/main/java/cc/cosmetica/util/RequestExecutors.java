@@ -0,0 +1,64 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cc.cosmetica.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates executors to run blocking API requests on. On Java 21 and above, this class is replaced by a version which
+ * runs each request on its own virtual thread.
+ */
+public final class RequestExecutors {
+	private RequestExecutors() {
+	}
+
+	/**
+	 * The maximum number of requests a platform thread executor will run at once. Further requests wait in a queue.
+	 */
+	public static final int PLATFORM_THREADS = 16;
+
+	/**
+	 * Create an executor to run blocking requests on. Threads are daemon threads, and idle threads time out.
+	 * @param name the name of the executor, used for thread names.
+	 * @return the executor.
+	 */
+	public static ExecutorService create(String name) {
+		AtomicInteger threadCount = new AtomicInteger();
+
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(PLATFORM_THREADS, PLATFORM_THREADS, 30, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(),
+				task -> {
+					Thread thread = new Thread(task, name + " #" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * @return whether executors from this class use virtual threads.
+	 */
+	public static boolean isVirtual() {
+		return false;
+	}
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.util;
+
+import cc.cosmetica.api.RequestPriority;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Limits how many requests are in flight at once, queueing the rest by {@link RequestPriority}. Each priority has its
+ * own bounded queue, and freed slots are handed out across the queues by smooth weighted round robin on the
+ * {@linkplain RequestPriority#getWeight() weights} of the priorities.
+ */
+public final class RequestScheduler {
+	/**
+	 * @param maxInFlight the maximum number of requests to send at once.
+	 * @param queueCapacity the maximum number of requests which may wait in the queue of each priority.
+	 */
+	public RequestScheduler(int maxInFlight, int queueCapacity) {
+		if (maxInFlight < 1) throw new IllegalArgumentException("Must allow at least one request in flight, was " + maxInFlight);
+
+		this.maxInFlight = maxInFlight;
+		this.queueCapacity = queueCapacity;
+
+		for (int i = 0; i < PRIORITIES.length; i++) {
+			this.queues.add(new ArrayDeque<>());
+		}
+	}
+
+	private final int maxInFlight;
+	private final int queueCapacity;
+	private final ReentrantLock lock = new ReentrantLock();
+	// guarded by lock
+	private final List<ArrayDeque<Ticket>> queues = new ArrayList<>(PRIORITIES.length);
+	private final int[] currentWeights = new int[PRIORITIES.length];
+	private int inFlight;
+	private int queued;
+
+	/**
+	 * Send a request once a slot is available for it.
+	 * @param priority the priority of the request.
+	 * @param request the request.
+	 * @return the result of the request.
+	 * @throws IOException if the request fails, the queue for the priority is full, or the thread is interrupted while queued.
+	 */
+	public <T> T execute(RequestPriority priority, IORequest<T> request) throws IOException {
+		this.acquire(priority);
+
+		try {
+			return request.send();
+		}
+		finally {
+			this.release();
+		}
+	}
+
+	private void acquire(RequestPriority priority) throws IOException {
+		this.lock.lock();
+
+		try {
+			if (this.inFlight < this.maxInFlight && this.queued == 0) {
+				this.inFlight++;
+				return;
+			}
+
+			ArrayDeque<Ticket> queue = this.queues.get(priority.ordinal());
+
+			if (queue.size() >= this.queueCapacity) {
+				throw new IOException("Too many " + priority + " priority requests queued (" + this.queueCapacity + ")");
+			}
+
+			Ticket ticket = new Ticket(this.lock.newCondition());
+			queue.add(ticket);
+			this.queued++;
+
+			while (!ticket.granted) {
+				try {
+					ticket.condition.await();
+				}
+				catch (InterruptedException e) {
+					if (ticket.granted) {
+						// the slot was handed over as we were interrupted. pass it on
+						this.dispatch();
+					}
+					else {
+						queue.remove(ticket);
+						this.queued--;
+					}
+
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while queued to send a request");
+				}
+			}
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	private void release() {
+		this.lock.lock();
+
+		try {
+			this.dispatch();
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Hand the slot of a finished request to the next queued request, or free it if none are queued.
+	 */
+	private void dispatch() {
+		int best = -1;
+		int total = 0;
+
+		for (int i = 0; i < PRIORITIES.length; i++) {
+			if (this.queues.get(i).isEmpty()) continue;
+
+			this.currentWeights[i] += PRIORITIES[i].getWeight();
+			total += PRIORITIES[i].getWeight();
+
+			if (best == -1 || this.currentWeights[i] > this.currentWeights[best]) {
+				best = i;
+			}
+		}
+
+		if (best == -1) {
+			this.inFlight--;
+			return;
+		}
+
+		this.currentWeights[best] -= total;
+
+		Ticket next = this.queues.get(best).poll();
+		this.queued--;
+		next.granted = true;
+		next.condition.signal();
+	}
+
+	/**
+	 * @return the number of requests currently in flight.
+	 */
+	public int getInFlight() {
+		this.lock.lock();
+
+		try {
+			return this.inFlight;
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @param priority the priority.
+	 * @return the number of requests of that priority waiting to be sent.
+	 */
+	public int getQueued(RequestPriority priority) {
+		this.lock.lock();
+
+		try {
+			return this.queues.get(priority.ordinal()).size();
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	private static final RequestPriority[] PRIORITIES = RequestPriority.values();
+
+	/**
+	 * How many requests the default scheduler sends at once, matching the per-host limit of the pooled transport.
+	 */
+	public static final int DEFAULT_MAX_IN_FLIGHT = 32;
+	/**
+	 * How many requests of each priority the default scheduler queues before rejecting more.
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+	private static volatile RequestScheduler defaultScheduler;
+	private static final ThreadLocal<RequestPriority> PRIORITY_HINT = new ThreadLocal<>();
+
+	/**
+	 * @return the scheduler {@link Response} sends requests through.
+	 */
+	public static RequestScheduler getDefault() {
+		if (defaultScheduler == null) {
+			synchronized (RequestScheduler.class) {
+				if (defaultScheduler == null) {
+					defaultScheduler = new RequestScheduler(DEFAULT_MAX_IN_FLIGHT, DEFAULT_QUEUE_CAPACITY);
+				}
+			}
+		}
+
+		return defaultScheduler;
+	}
+
+	/**
+	 * @param scheduler the scheduler {@link Response} should send requests through.
+	 */
+	public static void setDefault(RequestScheduler scheduler) {
+		defaultScheduler = scheduler;
+	}
+
+	/**
+	 * Run the given code with a priority hint set on this thread, which api requests made by it use in place of the
+	 * default priority for their endpoint.
+	 * @param priority the priority.
+	 * @param code the code to run.
+	 * @return the result of the code.
+	 */
+	public static <T> T withPriority(RequestPriority priority, Supplier<T> code) {
+		RequestPriority previous = PRIORITY_HINT.get();
+		PRIORITY_HINT.set(priority);
+
+		try {
+			return code.get();
+		}
+		finally {
+			if (previous == null) PRIORITY_HINT.remove();
+			else PRIORITY_HINT.set(previous);
+		}
+	}
+
+	/**
+	 * @return the priority hint set on this thread by {@link RequestScheduler#withPriority(RequestPriority, Supplier)}, if any.
+	 */
+	@Nullable
+	public static RequestPriority getPriorityHint() {
+		return PRIORITY_HINT.get();
+	}
+
+	@FunctionalInterface
+	public interface IORequest<T> {
+		T send() throws IOException;
+	}
+
+	private static class Ticket {
+		private Ticket(Condition condition) {
+			this.condition = condition;
+		}
+
+		private final Condition condition;
+		private boolean granted;
+	}
+}
@@ -17,6 +17,7 @@
 package cc.cosmetica.util;
 
 import cc.cosmetica.api.FatalServerErrorException;
+import cc.cosmetica.api.RequestPriority;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -26,16 +27,9 @@ import org.apache.http.Consts;
 import org.apache.http.HttpEntity;
 import org.apache.http.NameValuePair;
 import org.apache.http.ParseException;
-import org.apache.http.StatusLine;
-import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.util.EntityUtils;
 import org.jetbrains.annotations.Nullable;
@@ -46,24 +40,22 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.OptionalInt;
+import java.util.Set;
 
+/**
+ * A buffered response from a {@link Transport}: the status code and the full body.
+ */
 public class Response implements Closeable {
-	private Response(CloseableHttpClient client, CloseableHttpResponse response) {
-		this.client = client;
-		this.response = response;
-		this.status = this.response.getStatusLine();
+	public Response(int status, byte[] body) {
+		this.status = status;
+		this.body = body;
 	}
 
-	private final CloseableHttpClient client;
-	private final CloseableHttpResponse response;
-	private final StatusLine status;
-
-	public StatusLine getStatus() {
-		return this.status;
-	}
+	private final int status;
+	private final byte[] body;
 
 	public int getStatusCode() {
-		return this.status.getStatusCode();
+		return this.status;
 	}
 
 	public OptionalInt getError() {
@@ -76,40 +68,41 @@ public class Response implements Closeable {
 		}
 	}
 
-	@Nullable
-	public HttpEntity getEntity() {
-		return this.response.getEntity();
-	}
-
 	public String getAsString() throws IOException {
-		HttpEntity entity = this.getEntity();
-		return entity == null ? "" : EntityUtils.toString(entity, StandardCharsets.UTF_8);
+		return new String(this.body, StandardCharsets.UTF_8);
 	}
 
 	public byte[] getAsByteArray() throws IOException {
-		HttpEntity entity = this.getEntity();
-		return entity == null ? new byte[0] : EntityUtils.toByteArray(this.getEntity());
+		return this.body;
 	}
 
 	public JsonObject getAsJson() throws IOException, JsonParseException {
-		String s = EntityUtils.toString(this.getEntity(), StandardCharsets.UTF_8).trim();
-		return new JsonParser().parse(s).getAsJsonObject();
+		return new JsonParser().parse(this.getAsString().trim()).getAsJsonObject();
 	}
 
 	public JsonArray getAsJsonArray() throws IOException, JsonParseException {
-		String s = EntityUtils.toString(this.getEntity(), StandardCharsets.UTF_8).trim();
-		return new JsonParser().parse(s).getAsJsonArray();
+		return new JsonParser().parse(this.getAsString().trim()).getAsJsonArray();
 	}
 
 	public JsonElement getAsJsonElement() throws IOException, JsonParseException {
-		String s = EntityUtils.toString(this.getEntity(), StandardCharsets.UTF_8).trim();
-		return new JsonParser().parse(s);
+		return new JsonParser().parse(this.getAsString().trim());
 	}
 
+	/**
+	 * Parse the response as json, cutting out the string values of the given keys to be decoded lazily.
+	 * @param slicedKeys the keys whose string values should be left undecoded.
+	 * @return the sliced json.
+	 * @see SlicedJson
+	 */
+	public SlicedJson getAsSlicedJson(Set<String> slicedKeys) throws IOException, JsonParseException {
+		return SlicedJson.parse(this.body, slicedKeys);
+	}
+
+	/**
+	 * Does nothing, as the response is already fully read. Connections are released by the transport.
+	 */
 	@Override
-	public void close() throws IOException {
-		this.response.close();
-		this.client.close();
+	public void close() {
 	}
 
 	/**
@@ -154,24 +147,43 @@ public class Response implements Closeable {
 	 * @apiNote the safe url will be included in a {@link FatalServerErrorException} instance.
 	 */
 	public static Response get(SafeURL request, int timeout) throws ParseException, IOException, FatalServerErrorException {
-		return _get(request.url(), timeout).testForFatalError(request);
+		return get(request, timeout, defaultPriority());
+	}
+
+	/**
+	 * Open a request with the given timeout and priority to a remote url and store the response data.
+	 * @param request the url to request to.
+	 * @param timeout the request timeout, in milliseconds.
+	 * @param priority the priority to queue the request with if too many requests are in flight.
+	 * @return the opened {@link Response} containing the response data from the given URL.
+	 * @throws IOException if an IO error occurs, or the queue for the priority is full.
+	 * @throws ParseException if a parse exception occurs.
+	 * @throws FatalServerErrorException if the server response code is 5XX.
+	 * @apiNote the safe url will be included in a {@link FatalServerErrorException} instance.
+	 */
+	public static Response get(SafeURL request, int timeout, RequestPriority priority) throws ParseException, IOException, FatalServerErrorException {
+		return _get(request.url(), timeout, priority).testForFatalError(request);
 	}
 
-	private static Response _get(String request, int timeout) throws ParseException, IOException {
-		RequestConfig requestConfig = RequestConfig.custom()
-				.setConnectionRequestTimeout(timeout)
-				.setConnectTimeout(timeout)
-				.setSocketTimeout(timeout)
-				.build();
+	private static Response _get(String request, int timeout, RequestPriority priority) throws ParseException, IOException {
+		Object event = FlightRecording.beginRequest();
+		Response response = null;
 
-		CloseableHttpClient client = HttpClients.custom()
-				.setDefaultRequestConfig(requestConfig)
-				.build();
+		try {
+			return response = RequestScheduler.getDefault().execute(priority, () -> Transports.getDefault().get(request, timeout));
+		}
+		finally {
+			recordRequest(event, "GET", request, response);
+		}
+	}
 
-		final HttpGet get = new HttpGet(request);
+	private static RequestPriority defaultPriority() {
+		RequestPriority hint = RequestScheduler.getPriorityHint();
+		return hint == null ? RequestPriority.NORMAL : hint;
+	}
 
-		CloseableHttpResponse response = client.execute(get);
-		return new Response(client, response);
+	private static void recordRequest(@Nullable Object event, String method, String url, @Nullable Response response) {
+		if (event != null) FlightRecording.commitRequest(event, method, url, response == null ? -1 : response.status, response == null ? 0 : response.body.length);
 	}
 
 	public static PostBuilder post(SafeURL request) {
@@ -213,25 +225,23 @@ public class Response implements Closeable {
 
 		private final SafeURL url;
 		private int timeout = 20 * 1000;
+		private RequestPriority priority = defaultPriority();
 
 		public Response submit() throws ParseException, IOException, FatalServerErrorException {
-			RequestConfig requestConfig = RequestConfig.custom()
-					.setConnectionRequestTimeout(this.timeout)
-					.setConnectTimeout(this.timeout)
-					.setSocketTimeout(this.timeout)
-					.build();
-
-			CloseableHttpClient client = HttpClients.custom()
-					.setDefaultRequestConfig(requestConfig)
-					.build();
-
-			final HttpPost post = new HttpPost(this.url.url());
-			post.setEntity(getEntity());
+			HttpEntity entity = this.getEntity();
+			Object event = FlightRecording.beginRequest();
+			Response response = null;
 
-			CloseableHttpResponse response = client.execute(post);
+			try {
+				byte[] body = EntityUtils.toByteArray(entity);
+				response = RequestScheduler.getDefault().execute(this.priority, () -> Transports.getDefault().post(this.url.url(), entity.getContentType().getValue(), body, this.timeout));
+			}
+			finally {
+				recordRequest(event, "POST", this.url.url(), response);
+			}
 
 			// validate
-			return new Response(client, response).testForFatalError(this.url);
+			return response.testForFatalError(this.url);
 		}
 
 		abstract public PostBuilder set(String key, String value);
@@ -250,6 +260,16 @@ public class Response implements Closeable {
 			return this;
 		}
 
+		/**
+		 * Sets the priority to queue the request with if too many requests are in flight.
+		 * @param priority the priority.
+		 * @return this
+		 */
+		public PostBuilder setPriority(RequestPriority priority) {
+			this.priority = priority;
+			return this;
+		}
+
 		abstract protected HttpEntity getEntity();
 	}
 
@@ -23,16 +23,17 @@ import java.util.Objects;
  */
 public final class SafeURL {
 	private final String url;
-	private final String safeUrl;
+	private final int safeLength;
+	private String safeUrl;
 
-	private SafeURL(String url, String safeUrl) {
+	private SafeURL(String url, int safeLength) {
 		this.url = url;
-		this.safeUrl = safeUrl;
+		this.safeLength = safeLength;
 	}
 
 	@Override
 	public String toString() {
-		return "SafeURL{" + this.safeUrl + "}";
+		return "SafeURL{" + this.safeUrl() + "}";
 	}
 
 	public String url() {
@@ -40,6 +41,14 @@ public final class SafeURL {
 	}
 
 	public String safeUrl() {
+		// the safe url is the url with the token cut off the end, so is only created if needed
+		String safeUrl = this.safeUrl;
+
+		if (safeUrl == null) {
+			safeUrl = this.safeLength == this.url.length() ? this.url : this.url.substring(0, this.safeLength);
+			this.safeUrl = safeUrl;
+		}
+
 		return safeUrl;
 	}
 
@@ -49,24 +58,32 @@ public final class SafeURL {
 		if (obj == null || obj.getClass() != this.getClass()) return false;
 		SafeURL that = (SafeURL) obj;
 		return Objects.equals(this.url, that.url) &&
-				Objects.equals(this.safeUrl, that.safeUrl);
+				this.safeLength == that.safeLength;
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(url, safeUrl);
+		return Objects.hash(url, safeLength);
 	}
 
 	public static SafeURL of(String baseUrl, String token) {
-		return new SafeURL(baseUrl + (baseUrl.contains("?") ? "&" : "?") + "token=" + token, baseUrl);
+		return new SafeURL(baseUrl + (baseUrl.contains("?") ? "&" : "?") + "token=" + token, baseUrl.length());
 	}
 
 	public static SafeURL of(String baseUrl) {
-		return new SafeURL(baseUrl + (baseUrl.contains("?") ? "&" : "?") + "token=", baseUrl);
+		return new SafeURL(baseUrl + (baseUrl.contains("?") ? "&" : "?") + "token=", baseUrl.length());
 	}
 
 	public static SafeURL direct(String safeRequest) {
-		return new SafeURL(safeRequest, safeRequest);
+		return new SafeURL(safeRequest, safeRequest.length());
+	}
+
+	/**
+	 * @param url the full url.
+	 * @param safeLength the length of the start of the url which is safe to show, that is, without the token.
+	 */
+	static SafeURL split(String url, int safeLength) {
+		return new SafeURL(url, safeLength);
 	}
 
 	public static SafeURL dummy() {
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.util;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A JSON document which has had the string values of certain (heavy) keys cut out before parsing. Each cut value is
+ * replaced in the document by a number indexing the raw slice it was cut into, which can then be
+ * {@linkplain SlicedJson#getString(JsonElement) decoded lazily}.<br>
+ * Numeric values of the sliced keys are cut out as well (as the string of the number), so in a document with slices,
+ * a number under a sliced key is always a slice index.
+ */
+public final class SlicedJson {
+	private SlicedJson(JsonElement json, List<ByteBuffer> slices) {
+		this.json = json;
+		this.slices = slices;
+	}
+
+	private final JsonElement json;
+	private final List<ByteBuffer> slices;
+
+	/**
+	 * @return the parsed document, with sliced values replaced by their slice index.
+	 */
+	public JsonElement getJson() {
+		return this.json;
+	}
+
+	/**
+	 * Read a string value from this document.
+	 * @param element the value of a sliced key in this document. May be a slice index left in place of a sliced value, or a
+	 *                regular json string. Numbers are only read as slice indices if this document has slices, so values
+	 *                of keys which were not sliced must not be read through this method.
+	 * @return the string, which will be decoded on first access if it was sliced.
+	 */
+	public LazyString getString(JsonElement element) {
+		if (!this.slices.isEmpty() && element.isJsonPrimitive() && element.getAsJsonPrimitive().isNumber()) {
+			return LazyString.ofRaw(this.slices.get(element.getAsInt()));
+		}
+
+		return LazyString.of(element.getAsString());
+	}
+
+	/**
+	 * A sliced json with no slices. Reading strings through this will give eagerly decoded values.
+	 */
+	public static final SlicedJson NONE = new SlicedJson(JsonNull.INSTANCE, Collections.emptyList());
+
+	/**
+	 * Create a sliced json from a document and slices which were stored separately, such as in a file.
+	 * @param json the document, with sliced values replaced by their slice index.
+	 * @param slices the raw slices, each a quoted json string literal.
+	 * @return the sliced json.
+	 */
+	public static SlicedJson of(JsonElement json, List<ByteBuffer> slices) {
+		return new SlicedJson(json, slices);
+	}
+
+	/**
+	 * Parse the given JSON document, cutting out the string values of the given keys wherever they appear.
+	 * Each cut value is copied into its own array, so the document can be discarded once parsed.
+	 * @param body the UTF-8 bytes of the document.
+	 * @param keys the keys whose string values to cut out. Keys must not require escaping.
+	 * @return the sliced json.
+	 * @throws JsonParseException if the document is not valid JSON.
+	 */
+	public static SlicedJson parse(byte[] body, Set<String> keys) throws JsonParseException {
+		byte[][] keyBytes = new byte[keys.size()][];
+		int k = 0;
+
+		for (String key : keys) {
+			keyBytes[k++] = key.getBytes(StandardCharsets.UTF_8);
+		}
+
+		final int length = body.length;
+		List<ByteBuffer> slices = new ArrayList<>();
+		ByteArrayOutputStream stripped = null;
+		int copyFrom = 0;
+		int i = 0;
+
+		while (i < length) {
+			if (body[i] != '"') {
+				i++;
+				continue;
+			}
+
+			int keyStart = i;
+			i = skipString(body, i);
+
+			// only look at strings which are keys
+			int colon = skipWhitespace(body, i);
+			if (colon >= length || body[colon] != ':' || !matches(body, keyStart + 1, i - 1, keyBytes)) continue;
+
+			int valueStart = skipWhitespace(body, colon + 1);
+			if (valueStart >= length) continue;
+
+			final int valueEnd;
+			final ByteBuffer slice;
+
+			if (body[valueStart] == '"') {
+				valueEnd = skipString(body, valueStart);
+				slice = ByteBuffer.wrap(Arrays.copyOfRange(body, valueStart, valueEnd));
+			}
+			else if (isNumberByte(body[valueStart])) {
+				// so that a number here can never be mistaken for a slice index
+				valueEnd = skipNumber(body, valueStart);
+				byte[] quoted = new byte[valueEnd - valueStart + 2];
+				quoted[0] = quoted[quoted.length - 1] = '"';
+				System.arraycopy(body, valueStart, quoted, 1, valueEnd - valueStart);
+				slice = ByteBuffer.wrap(quoted);
+			}
+			else {
+				continue;
+			}
+
+			if (stripped == null) {
+				stripped = new ByteArrayOutputStream(length / 4);
+			}
+
+			stripped.write(body, copyFrom, valueStart - copyFrom);
+			byte[] index = Integer.toString(slices.size()).getBytes(StandardCharsets.US_ASCII);
+			stripped.write(index, 0, index.length);
+			slices.add(slice);
+
+			copyFrom = i = valueEnd;
+		}
+
+		byte[] document = body;
+
+		if (stripped != null) {
+			stripped.write(body, copyFrom, length - copyFrom);
+			document = stripped.toByteArray();
+		}
+
+		JsonElement json = new JsonParser().parse(new InputStreamReader(new ByteArrayInputStream(document), StandardCharsets.UTF_8));
+		return new SlicedJson(json, slices);
+	}
+
+	/**
+	 * @return the index after the closing quote of the string starting at the given index.
+	 */
+	private static int skipString(byte[] body, int openingQuote) {
+		int i = openingQuote + 1;
+
+		while (i < body.length) {
+			byte b = body[i++];
+
+			if (b == '\\') {
+				i++;
+			} else if (b == '"') {
+				break;
+			}
+		}
+
+		return Math.min(i, body.length);
+	}
+
+	private static int skipNumber(byte[] body, int i) {
+		while (i < body.length && isNumberByte(body[i])) {
+			i++;
+		}
+
+		return i;
+	}
+
+	private static boolean isNumberByte(byte b) {
+		return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E';
+	}
+
+	private static int skipWhitespace(byte[] body, int i) {
+		while (i < body.length && (body[i] == ' ' || body[i] == '\n' || body[i] == '\r' || body[i] == '\t')) {
+			i++;
+		}
+
+		return i;
+	}
+
+	private static boolean matches(byte[] body, int start, int end, byte[][] keys) {
+		int length = end - start;
+
+		outer:
+		for (byte[] key : keys) {
+			if (key.length != length) continue;
+
+			for (int i = 0; i < length; i++) {
+				if (body[start + i] != key[i]) continue outer;
+			}
+
+			return true;
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cc.cosmetica.util;
+
+import java.io.IOException;
+
+/**
+ * The HTTP client requests are sent through. Implementations should reuse connections between requests, and must be
+ * thread safe.
+ */
+public interface Transport {
+	/**
+	 * Send a GET request and read the full response.
+	 * @param url the url to request.
+	 * @param timeout the request timeout, in milliseconds.
+	 * @return the response.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	Response get(String url, int timeout) throws IOException;
+
+	/**
+	 * Send a POST request and read the full response.
+	 * @param url the url to request.
+	 * @param contentType the content type of the body.
+	 * @param body the body of the request.
+	 * @param timeout the request timeout, in milliseconds.
+	 * @return the response.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	Response post(String url, String contentType, byte[] body, int timeout) throws IOException;
+
+	/**
+	 * Open a connection to the host of the given url ahead of time, if none is open, by sending it a HEAD request.
+	 * Resolving the host and the TCP and TLS handshakes are then done before the first real request.
+	 * @param url the url to send the request to.
+	 * @param timeout the request timeout, in milliseconds.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	void connect(String url, int timeout) throws IOException;
+
+	/**
+	 * @return a name for this transport, for debugging.
+	 */
+	String getName();
+}
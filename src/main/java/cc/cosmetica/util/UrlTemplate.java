@@ -0,0 +1,178 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A url path and query with placeholders, split into its static segments once so building a url for a request only
+ * appends to reusable buffers. For example: {@code UrlTemplate.of("/get/cosmetic?type={}&id={}")}.<br>
+ * Parameters are written in order with a {@link Builder}, which then produces the token-bearing url and its safe form
+ * together as a single string.
+ */
+public final class UrlTemplate {
+	private UrlTemplate(String[] segments) {
+		this.segments = segments;
+		this.hasQuery = String.join("", segments).indexOf('?') != -1;
+	}
+
+	private final String[] segments;
+	private final boolean hasQuery;
+
+	/**
+	 * @return the number of parameters this template takes.
+	 */
+	public int getParameterCount() {
+		return this.segments.length - 1;
+	}
+
+	/**
+	 * Start building a url from this template. The builder is reused by each call on the same thread, so it must be
+	 * built before this thread begins another.
+	 * @return the builder, with the first static segment written.
+	 */
+	public Builder begin() {
+		return BUILDER.get().reset(this);
+	}
+
+	/**
+	 * Compile a url template.
+	 * @param pattern the path and query of the url, with {@code {}} in place of each parameter.
+	 * @return the template.
+	 */
+	public static UrlTemplate of(String pattern) {
+		List<String> segments = new ArrayList<>();
+		int start = 0;
+		int placeholder;
+
+		while ((placeholder = pattern.indexOf("{}", start)) != -1) {
+			segments.add(pattern.substring(start, placeholder));
+			start = placeholder + 2;
+		}
+
+		segments.add(pattern.substring(start));
+		return new UrlTemplate(segments.toArray(new String[0]));
+	}
+
+	private static final ThreadLocal<Builder> BUILDER = ThreadLocal.withInitial(Builder::new);
+
+	/**
+	 * Writes the parameters of a {@link UrlTemplate} in order, followed by any extra query parameters.
+	 */
+	public static final class Builder {
+		private Builder() {
+		}
+
+		private final StringBuilder path = new StringBuilder(128);
+		private final StringBuilder url = new StringBuilder(256);
+		private UrlTemplate template;
+		private int parameter;
+		private boolean hasQuery;
+
+		private Builder reset(UrlTemplate template) {
+			this.template = template;
+			this.parameter = 0;
+			this.hasQuery = template.hasQuery;
+			this.path.setLength(0);
+			this.path.append(template.segments[0]);
+			return this;
+		}
+
+		private StringBuilder next() throws IllegalStateException {
+			if (this.parameter >= this.template.getParameterCount()) throw new IllegalStateException("Too many parameters for url template " + String.join("{}", this.template.segments));
+			return this.path;
+		}
+
+		private Builder endParameter() {
+			this.path.append(this.template.segments[++this.parameter]);
+			return this;
+		}
+
+		/**
+		 * Write the next parameter. It is not encoded, so must already be url-safe.
+		 * @param value the value of the parameter.
+		 * @return this builder.
+		 */
+		public Builder param(String value) throws IllegalStateException {
+			this.next().append(value);
+			return this.endParameter();
+		}
+
+		/**
+		 * Write the next parameter.
+		 * @param value the value of the parameter.
+		 * @return this builder.
+		 */
+		public Builder param(long value) throws IllegalStateException {
+			this.next().append(value);
+			return this.endParameter();
+		}
+
+		/**
+		 * Add a query parameter after the template's own.
+		 * @param key the key of the parameter.
+		 * @param value the value of the parameter. It is not encoded, so must already be url-safe.
+		 * @return this builder.
+		 */
+		public Builder query(String key, Object value) {
+			this.separator(this.path).append(key).append('=').append(value);
+			return this;
+		}
+
+		/**
+		 * Add a query parameter without a value, if it is set.
+		 * @param flag the name of the flag.
+		 * @param set whether to add the flag.
+		 * @return this builder.
+		 */
+		public Builder flag(String flag, boolean set) {
+			if (set) this.separator(this.path).append(flag);
+			return this;
+		}
+
+		private StringBuilder separator(StringBuilder builder) {
+			builder.append(this.hasQuery ? '&' : '?');
+			this.hasQuery = true;
+			return builder;
+		}
+
+		/**
+		 * Build the url on the given host, with a timestamp and token.
+		 * @param host the host, including the scheme.
+		 * @param timestamp the timestamp to send.
+		 * @param token the token to send, or null to omit the token parameter entirely. An empty token is sent as an empty parameter.
+		 * @return the url, whose safe form leaves out the token.
+		 * @throws IllegalStateException if not every parameter of the template has been written.
+		 */
+		public SafeURL build(String host, long timestamp, @Nullable String token) throws IllegalStateException {
+			if (this.parameter != this.template.getParameterCount()) throw new IllegalStateException("Missing parameters for url template " + String.join("{}", this.template.segments));
+
+			StringBuilder url = this.url;
+			url.setLength(0);
+			url.append(host).append(this.path);
+			this.separator(url).append("timestamp=").append(timestamp);
+
+			int safeLength = url.length();
+			if (token != null) url.append("&token=").append(token);
+
+			return SafeURL.split(url.toString(), safeLength);
+		}
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Emits the library's Java Flight Recorder events: {@code CosmeticaRequest} for each http request,
+ * {@code CosmeticaParse} for parsing each api response, and {@code CosmeticaCacheHit} / {@code CosmeticaCacheMiss}
+ * for lookups in the library's caches.<br>
+ * This is the Java 11 version, which records the events. When an event is disabled, it costs an allocation the JIT
+ * can usually remove and a flag check.
+ */
+public final class FlightRecording {
+	private FlightRecording() {
+	}
+
+	@Nullable
+	public static Object beginRequest() {
+		RequestEvent event = new RequestEvent();
+		if (!event.isEnabled()) return null;
+
+		event.begin();
+		return event;
+	}
+
+	public static void commitRequest(@Nullable Object event, String method, String url, int status, long bytes) {
+		if (event == null) return;
+
+		RequestEvent request = (RequestEvent) event;
+		request.end();
+
+		if (request.shouldCommit()) {
+			int query = url.indexOf('?');
+
+			request.method = method;
+			request.endpoint = query == -1 ? url : url.substring(0, query);
+			request.status = status;
+			request.bytes = bytes;
+			request.commit();
+		}
+	}
+
+	@Nullable
+	public static Object beginParse() {
+		ParseEvent event = new ParseEvent();
+		if (!event.isEnabled()) return null;
+
+		event.begin();
+		return event;
+	}
+
+	public static void commitParse(@Nullable Object event, String endpoint, long bytes, boolean successful) {
+		if (event == null) return;
+
+		ParseEvent parse = (ParseEvent) event;
+		parse.end();
+
+		if (parse.shouldCommit()) {
+			parse.endpoint = endpoint;
+			parse.bytes = bytes;
+			parse.successful = successful;
+			parse.commit();
+		}
+	}
+
+	public static void cacheLookup(String cache, Object key, boolean hit) {
+		cacheLookup(cache, null, key, hit);
+	}
+
+	public static void cacheLookup(String cache, @Nullable String namespace, Object key, boolean hit) {
+		if (hit) {
+			CacheHitEvent event = new CacheHitEvent();
+
+			if (event.shouldCommit()) {
+				event.cache = cache;
+				event.key = keyString(namespace, key);
+				event.commit();
+			}
+		}
+		else {
+			CacheMissEvent event = new CacheMissEvent();
+
+			if (event.shouldCommit()) {
+				event.cache = cache;
+				event.key = keyString(namespace, key);
+				event.commit();
+			}
+		}
+	}
+
+	private static String keyString(@Nullable String namespace, Object key) {
+		return namespace == null ? String.valueOf(key) : namespace + ':' + key;
+	}
+
+	@Name("cc.cosmetica.CosmeticaRequest")
+	@Label("Cosmetica Request")
+	@Description("An http request made by the Cosmetica API")
+	@Category("Cosmetica")
+	static class RequestEvent extends Event {
+		@Label("Method")
+		String method;
+
+		@Label("Endpoint")
+		@Description("The url requested, without its query")
+		String endpoint;
+
+		@Label("Status")
+		@Description("The http status code, or -1 if no response was received")
+		int status;
+
+		@Label("Response Size")
+		@DataAmount
+		long bytes;
+	}
+
+	@Name("cc.cosmetica.CosmeticaParse")
+	@Label("Cosmetica Parse")
+	@Description("Parsing a response from the Cosmetica API")
+	@Category("Cosmetica")
+	static class ParseEvent extends Event {
+		@Label("Endpoint")
+		String endpoint;
+
+		@Label("Response Size")
+		@DataAmount
+		long bytes;
+
+		@Label("Successful")
+		boolean successful;
+	}
+
+	@Name("cc.cosmetica.CosmeticaCacheHit")
+	@Label("Cosmetica Cache Hit")
+	@Category("Cosmetica")
+	@StackTrace(false)
+	static class CacheHitEvent extends Event {
+		@Label("Cache")
+		String cache;
+
+		@Label("Key")
+		String key;
+	}
+
+	@Name("cc.cosmetica.CosmeticaCacheMiss")
+	@Label("Cosmetica Cache Miss")
+	@Category("Cosmetica")
+	@StackTrace(false)
+	static class CacheMissEvent extends Event {
+		@Label("Cache")
+		String cache;
+
+		@Label("Key")
+		String key;
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cc.cosmetica.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * A transport backed by {@link HttpClient}, which negotiates HTTP/2 where the server supports it. Concurrent requests
+ * to the same host then share a single multiplexed connection.<br>
+ * HttpClient has no pluggable DNS resolver, so lookups rely on the JVM's own address cache
+ * (see the {@code networkaddress.cache.ttl} security property).
+ */
+final class JavaHttpTransport implements Transport {
+	JavaHttpTransport() {
+		this.client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.followRedirects(HttpClient.Redirect.NORMAL)
+				.connectTimeout(Duration.ofSeconds(20))
+				.build();
+	}
+
+	private final HttpClient client;
+
+	@Override
+	public Response get(String url, int timeout) throws IOException {
+		return this.send(HttpRequest.newBuilder(URI.create(url))
+				.timeout(Duration.ofMillis(timeout))
+				.GET()
+				.build());
+	}
+
+	@Override
+	public Response post(String url, String contentType, byte[] body, int timeout) throws IOException {
+		return this.send(HttpRequest.newBuilder(URI.create(url))
+				.timeout(Duration.ofMillis(timeout))
+				.header("Content-Type", contentType)
+				.POST(HttpRequest.BodyPublishers.ofByteArray(body))
+				.build());
+	}
+
+	@Override
+	public void connect(String url, int timeout) throws IOException {
+		this.send(HttpRequest.newBuilder(URI.create(url))
+				.timeout(Duration.ofMillis(timeout))
+				.method("HEAD", HttpRequest.BodyPublishers.noBody())
+				.build());
+	}
+
+	private Response send(HttpRequest request) throws IOException {
+		try {
+			HttpResponse<byte[]> response = this.client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+			return new Response(response.statusCode(), response.body());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for " + request.uri().getHost());
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "java.net.http (HTTP/2)";
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cc.cosmetica.util;
+
+import java.util.Optional;
+
+/**
+ * Provides the transports requests can be sent through. This is the Java 11 version, which additionally provides an
+ * HTTP/2 transport backed by {@link java.net.http.HttpClient}.
+ */
+public final class Transports {
+	private Transports() {
+	}
+
+	/**
+	 * How long the Apache HttpClient transport caches DNS lookups for, in milliseconds.
+	 */
+	public static final long DNS_CACHE_TTL = 5 * 60 * 1000;
+
+	private static volatile Transport apache;
+	private static volatile Transport http2;
+	private static volatile Transport defaultTransport;
+
+	/**
+	 * @return the pooled Apache HttpClient transport, shared by everything using it.
+	 */
+	public static Transport apache() {
+		if (apache == null) {
+			synchronized (Transports.class) {
+				if (apache == null) {
+					apache = new ApacheTransport(64, 32, new CachingDnsResolver(DNS_CACHE_TTL));
+				}
+			}
+		}
+
+		return apache;
+	}
+
+	/**
+	 * @return the shared HTTP/2 transport.
+	 */
+	public static Optional<Transport> http2() {
+		if (http2 == null) {
+			synchronized (Transports.class) {
+				if (http2 == null) {
+					http2 = new JavaHttpTransport();
+				}
+			}
+		}
+
+		return Optional.of(http2);
+	}
+
+	/**
+	 * @return the transport {@link Response} sends requests through.
+	 */
+	public static Transport getDefault() {
+		Transport transport = defaultTransport;
+		return transport == null ? apache() : transport;
+	}
+
+	/**
+	 * @param transport the transport {@link Response} should send requests through, or null to use the pooled Apache HttpClient transport.
+	 */
+	public static void setDefault(Transport transport) {
+		defaultTransport = transport;
+	}
+}
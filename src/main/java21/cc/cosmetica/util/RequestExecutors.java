@@ -0,0 +1,51 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cc.cosmetica.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates executors to run blocking API requests on. This is the Java 21 version, which runs each request on its own
+ * virtual thread, so thousands of concurrent requests need no thread pool sizing.
+ */
+public final class RequestExecutors {
+	private RequestExecutors() {
+	}
+
+	/**
+	 * Unused on Java 21, where requests are not limited by the number of platform threads.
+	 */
+	public static final int PLATFORM_THREADS = 16;
+
+	/**
+	 * Create an executor to run blocking requests on. Each task runs on a new virtual thread.
+	 * @param name the name of the executor, used for thread names.
+	 * @return the executor.
+	 */
+	public static ExecutorService create(String name) {
+		return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + " #", 1).factory());
+	}
+
+	/**
+	 * @return whether executors from this class use virtual threads.
+	 */
+	public static boolean isVirtual() {
+		return true;
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.impl;
+
+import cc.cosmetica.api.UserInfo;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.UUID;
+
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Tests for remembering users with nothing in a {@link NegativeUserInfoCache}.
+ */
+public class NegativeUserInfoCacheTest {
+	private static final UserInfo NOTHING = user(null, false, "");
+
+	@Test
+	public void testRecordsOnlyUsersWithNothing() {
+		NegativeUserInfoCache cache = new NegativeUserInfoCache(60 * 1000, 100, 0.01);
+		UUID nothing = UUID.randomUUID();
+		UUID lore = UUID.randomUUID();
+		UUID skin = UUID.randomUUID();
+		UUID slim = UUID.randomUUID();
+
+		cache.record(nothing, NOTHING);
+		cache.record(lore, user(null, false, "Has lore"));
+		cache.record(skin, user("data:image/png;base64,AAAA", false, ""));
+		cache.record(slim, user(null, true, ""));
+
+		assertTrue(cache.get(nothing).isPresent());
+		assertFalse(cache.get(lore).isPresent());
+		assertFalse(cache.get(skin).isPresent());
+		assertFalse(cache.get(slim).isPresent());
+	}
+
+	@Test
+	public void testRecordingTwiceIsUndoneByOneInvalidation() {
+		NegativeUserInfoCache cache = new NegativeUserInfoCache(60 * 1000, 100, 0.01);
+		UUID uuid = UUID.randomUUID();
+
+		// as concurrent lookups of the same user would
+		cache.record(uuid, NOTHING);
+		cache.record(uuid, NOTHING);
+		cache.invalidate(uuid);
+
+		assertFalse(cache.get(uuid).isPresent());
+	}
+
+	@Test
+	public void testRotation() throws InterruptedException {
+		// generations of 200ms
+		NegativeUserInfoCache cache = new NegativeUserInfoCache(400, 100, 0.01);
+		UUID uuid = UUID.randomUUID();
+		cache.record(uuid, NOTHING);
+
+		// remembered in the previous generation
+		Thread.sleep(250);
+		assertTrue(cache.get(uuid).isPresent());
+
+		// dropped with it
+		Thread.sleep(250);
+		assertFalse(cache.get(uuid).isPresent());
+
+		// recorded again while in the previous generation, it is not recorded twice, so one invalidation still removes it
+		UUID other = UUID.randomUUID();
+		cache.record(other, NOTHING);
+		Thread.sleep(250);
+		cache.record(other, NOTHING);
+		cache.invalidate(other);
+		assertFalse(cache.get(other).isPresent());
+	}
+
+	@Test
+	public void testIdleCacheExpiresBothGenerations() throws InterruptedException {
+		NegativeUserInfoCache cache = new NegativeUserInfoCache(400, 100, 0.01);
+		UUID uuid = UUID.randomUUID();
+		cache.record(uuid, NOTHING);
+
+		Thread.sleep(450);
+		assertFalse(cache.get(uuid).isPresent());
+	}
+
+	private static UserInfo user(String skin, boolean slim, String lore) {
+		return new UserInfoImpl(skin, slim, lore, "java", "none", false, "", "", null, false,
+				Collections.emptyList(), Optional.empty(), Optional.empty(), Optional.empty(), "");
+	}
+}
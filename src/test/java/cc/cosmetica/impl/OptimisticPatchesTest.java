@@ -0,0 +1,167 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.impl;
+
+import cc.cosmetica.api.CosmeticPosition;
+import cc.cosmetica.api.UserInfo;
+import cc.cosmetica.api.cosmetic.Cosmetic;
+import cc.cosmetica.api.cosmetic.Model;
+import cc.cosmetica.api.cosmetic.ShoulderBuddies;
+import cc.cosmetica.impl.cosmetic.AbstractCosmetic;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Tests for patching cached user info with the known effects of writes in {@link OptimisticPatches}.
+ */
+public class OptimisticPatchesTest {
+	private static final Cosmetic FIRST = model("Hat", "first");
+	private static final Cosmetic SECOND = model("Hat", "second");
+	private static final Cosmetic NEW = model("Hat", "new");
+
+	@Test
+	public void testHatsWithBothSlotsEmpty() {
+		UserInfo info = user(Collections.emptyList(), Optional.empty());
+
+		assertEquals(Collections.singletonList(NEW), hats(info, CosmeticPosition.HAT, NEW));
+		assertEquals(Collections.singletonList(NEW), hats(info, CosmeticPosition.SECOND_HAT, NEW));
+		assertEquals(Collections.emptyList(), hats(info, CosmeticPosition.HAT, null));
+		assertEquals(Collections.emptyList(), hats(info, CosmeticPosition.SECOND_HAT, null));
+	}
+
+	@Test
+	public void testHatsWithBothSlotsFilled() {
+		UserInfo info = user(Arrays.asList(FIRST, SECOND), Optional.empty());
+
+		assertEquals(Arrays.asList(NEW, SECOND), hats(info, CosmeticPosition.HAT, NEW));
+		assertEquals(Arrays.asList(FIRST, NEW), hats(info, CosmeticPosition.SECOND_HAT, NEW));
+		assertEquals(Collections.singletonList(SECOND), hats(info, CosmeticPosition.HAT, null));
+		assertEquals(Collections.singletonList(FIRST), hats(info, CosmeticPosition.SECOND_HAT, null));
+	}
+
+	@Test
+	public void testLoneHatIsAmbiguous() {
+		// the hat may be in either slot, so no change to either slot is certain
+		UserInfo info = user(Collections.singletonList(FIRST), Optional.empty());
+
+		for (CosmeticPosition position : new CosmeticPosition[] {CosmeticPosition.HAT, CosmeticPosition.SECOND_HAT}) {
+			assertFalse(OptimisticPatches.withCosmetic(info, position, NEW, false).isPresent());
+			assertFalse(OptimisticPatches.withCosmetic(info, position, null, false).isPresent());
+		}
+	}
+
+	@Test
+	public void testModelsAreStrippedWhenExcluded() {
+		UserInfo info = user(Collections.emptyList(), Optional.empty());
+
+		Model stripped = (Model) OptimisticPatches.withCosmetic(info, CosmeticPosition.HAT, NEW, true).get().getHats().get(0);
+		assertEquals("", stripped.getModel());
+		assertEquals("new", stripped.getId());
+
+		Model full = (Model) OptimisticPatches.withCosmetic(info, CosmeticPosition.HAT, NEW, false).get().getHats().get(0);
+		assertEquals("{}", full.getModel());
+	}
+
+	@Test
+	public void testShoulderBuddies() {
+		Cosmetic left = model("Shoulder Buddy", "left");
+		Cosmetic right = model("Shoulder Buddy", "right");
+		UserInfo info = user(Collections.emptyList(), Optional.empty());
+
+		UserInfo withLeft = OptimisticPatches.withCosmetic(info, CosmeticPosition.LEFT_SHOULDER_BUDDY, left, false).get();
+		UserInfo withBoth = OptimisticPatches.withCosmetic(withLeft, CosmeticPosition.RIGHT_SHOULDER_BUDDY, right, false).get();
+		ShoulderBuddies buddies = withBoth.getShoulderBuddies().get();
+		assertSame(left, buddies.getLeft().get());
+		assertSame(right, buddies.getRight().get());
+
+		UserInfo withRight = OptimisticPatches.withCosmetic(withBoth, CosmeticPosition.LEFT_SHOULDER_BUDDY, null, false).get();
+		assertFalse(withRight.getShoulderBuddies().get().getLeft().isPresent());
+
+		// removing both leaves none at all
+		UserInfo without = OptimisticPatches.withCosmetic(withRight, CosmeticPosition.RIGHT_SHOULDER_BUDDY, null, false).get();
+		assertFalse(without.getShoulderBuddies().isPresent());
+	}
+
+	@Test
+	public void testBackBling() {
+		Cosmetic backBling = model("Back Bling", "bling");
+		UserInfo info = OptimisticPatches.withCosmetic(user(Collections.emptyList(), Optional.empty()), CosmeticPosition.BACK_BLING, backBling, false).get();
+
+		assertSame(backBling, info.getBackBling().get());
+		assertFalse(OptimisticPatches.withCosmetic(info, CosmeticPosition.BACK_BLING, null, false).get().getBackBling().isPresent());
+	}
+
+	@Test
+	public void testCape() {
+		Cosmetic cape = cape("new", "Cosmetica");
+
+		// only replacing a cosmetica cape with another is certain
+		UserInfo cosmetica = user(Collections.emptyList(), Optional.of(cape("old", "Cosmetica")));
+		assertSame(cape, OptimisticPatches.withCosmetic(cosmetica, CosmeticPosition.CAPE, cape, false).get().getCape().get());
+		assertFalse(OptimisticPatches.withCosmetic(cosmetica, CosmeticPosition.CAPE, null, false).isPresent());
+
+		assertFalse(OptimisticPatches.withCosmetic(user(Collections.emptyList(), Optional.of(cape("old", "OptiFine"))), CosmeticPosition.CAPE, cape, false).isPresent());
+		assertFalse(OptimisticPatches.withCosmetic(user(Collections.emptyList(), Optional.empty()), CosmeticPosition.CAPE, cape, false).isPresent());
+	}
+
+	@Test
+	public void testOtherFieldsAreKept() {
+		UserInfo info = user(Arrays.asList(FIRST, SECOND), Optional.of(cape("old", "Cosmetica")));
+		UserInfo patched = OptimisticPatches.withLore(OptimisticPatches.withCosmetic(info, CosmeticPosition.HAT, NEW, false).get(), "New Lore");
+
+		assertEquals("New Lore", patched.getLore());
+		assertEquals(info.getRole(), patched.getRole());
+		assertEquals(info.getPrefix(), patched.getPrefix());
+		assertTrue(patched.isOnline());
+		assertSame(info.getCape().get(), patched.getCape().get());
+	}
+
+	private static List<? extends Cosmetic> hats(UserInfo info, CosmeticPosition position, Cosmetic cosmetic) {
+		return OptimisticPatches.withCosmetic(info, position, cosmetic, false).get().getHats();
+	}
+
+	private static UserInfo user(List<Cosmetic> hats, Optional<Cosmetic> cape) {
+		return new UserInfoImpl(null, false, "Lore", "java", "default", false, "[", "]", null, true,
+				hats, Optional.empty(), Optional.empty(), cape, "");
+	}
+
+	private static Cosmetic model(String type, String id) {
+		return parse("{\"type\":\"" + type + "\",\"id\":\"" + id + "\",\"extraInfo\":0,\"bounds\":[[0,0,0],[1,1,1]],\"name\":\"Model\",\"model\":\"{}\","
+				+ "\"texture\":\"data:image/png;base64,AAAA\",\"owner\":\"8ea1da2f0efa40449e6f4a3bf4e8a9a5\",\"ownerName\":\"V\","
+				+ "\"origin\":\"Cosmetica\",\"uploadState\":2,\"reason\":\"\",\"uploaded\":1,\"usesUvRotations\":false}");
+	}
+
+	private static Cosmetic cape(String id, String origin) {
+		return parse("{\"type\":\"Cape\",\"extraInfo\":100,\"name\":\"Cape\",\"id\":\"" + id + "\",\"origin\":\"" + origin + "\","
+				+ "\"owner\":\"8ea1da2f0efa40449e6f4a3bf4e8a9a5\",\"ownerName\":\"V\",\"uploadState\":1,\"reason\":\"\",\"uploaded\":5,"
+				+ "\"isCosmeticaAlternative\":false,\"image\":\"data:image/png;base64,AAAA\"}");
+	}
+
+	private static Cosmetic parse(String json) {
+		return AbstractCosmetic.parse(new JsonParser().parse(json).getAsJsonObject()).get();
+	}
+}
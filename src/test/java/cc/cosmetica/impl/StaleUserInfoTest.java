@@ -0,0 +1,122 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.impl;
+
+import cc.cosmetica.api.CosmeticaAPIException;
+import cc.cosmetica.api.FatalServerErrorException;
+import cc.cosmetica.api.ServerResponse;
+import cc.cosmetica.api.UserInfo;
+import cc.cosmetica.test.StubApiServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.UncheckedIOException;
+import java.util.UUID;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Tests for serving stale user info in place of errors, against a stand-in api server.
+ */
+public class StaleUserInfoTest {
+	private static final UUID USER = UUID.fromString("8ea1da2f-0efa-4044-9e6f-4a3bf4e8a9a5");
+	private static final String USER_INFO = "{\"skin\":null,\"slim\":false,\"lore\":\"Stale\",\"platform\":\"java\",\"role\":\"default\","
+			+ "\"upsideDown\":false,\"prefix\":\"\",\"suffix\":\"\",\"icon\":{\"client\":null,\"online\":true,\"icon\":\"\"}}";
+
+	private StubApiServer stub;
+	private CosmeticaWebAPI api;
+
+	@Before
+	public void start() throws Exception {
+		this.stub = new StubApiServer().respond("/v2/get/info", USER_INFO);
+		this.api = CosmeticaWebAPI.onHost(this.stub.getUrl());
+		this.api.setUserInfoCacheTime(200);
+		this.api.setMaxStaleness(60 * 1000);
+
+		ServerResponse<UserInfo> fresh = this.getUserInfo();
+		assertTrue(fresh.isSuccessful());
+		assertFalse(fresh.isStale());
+	}
+
+	@After
+	public void stop() {
+		this.stub.close();
+	}
+
+	@Test
+	public void testServerErrorServesStale() throws InterruptedException {
+		Thread.sleep(300);
+		this.stub.fail("/v2/get/info", 502, "<html>Bad Gateway</html>");
+
+		ServerResponse<UserInfo> response = this.getUserInfo();
+		assertTrue(response.isSuccessful());
+		assertTrue(response.isStale());
+		assertEquals("Stale", response.get().getLore());
+		assertTrue("age " + response.getAge(), response.getAge() >= 300 && response.getAge() < 10 * 1000);
+	}
+
+	@Test
+	public void testUnreachableServerServesStale() throws InterruptedException {
+		Thread.sleep(300);
+		this.stub.close();
+
+		ServerResponse<UserInfo> response = this.getUserInfo();
+		assertTrue(response.isSuccessful());
+		assertTrue(response.isStale());
+		assertTrue("age " + response.getAge(), response.getAge() >= 300 && response.getAge() < 10 * 1000);
+	}
+
+	@Test
+	public void testApiErrorIsPassedThrough() throws InterruptedException {
+		Thread.sleep(300);
+
+		// the server answered, so the error stands
+		this.stub.respond("/v2/get/info", "{\"error\":\"Banned\"}");
+		ServerResponse<UserInfo> response = this.getUserInfo();
+		assertFalse(response.isSuccessful());
+		assertTrue(response.getException() instanceof CosmeticaAPIException);
+
+		// even as the body of a server error
+		this.stub.fail("/v2/get/info", 500, "{\"error\":\"Banned\"}");
+		response = this.getUserInfo();
+		assertFalse(response.isSuccessful());
+		assertTrue(response.getException() instanceof CosmeticaAPIException);
+	}
+
+	@Test
+	public void testTooStaleIsDropped() throws InterruptedException {
+		this.api.setMaxStaleness(200);
+		Thread.sleep(500);
+		this.stub.fail("/v2/get/info", 503, "<html>Unavailable</html>");
+
+		ServerResponse<UserInfo> response = this.getUserInfo();
+		assertFalse(response.isSuccessful());
+		assertTrue(response.getException() instanceof FatalServerErrorException);
+
+		this.stub.close();
+		response = this.getUserInfo();
+		assertFalse(response.isSuccessful());
+		assertTrue(response.getException() instanceof UncheckedIOException);
+	}
+
+	private ServerResponse<UserInfo> getUserInfo() {
+		return this.api.getUserInfo(USER, null, false, false, false);
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.impl;
+
+import cc.cosmetica.api.ServerResponse;
+import cc.cosmetica.api.UserInfo;
+import cc.cosmetica.api.cosmetic.Cosmetic;
+import cc.cosmetica.api.cosmetic.Model;
+import cc.cosmetica.impl.cosmetic.AbstractCosmetic;
+import cc.cosmetica.util.SafeURL;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotSame;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Tests for which requests a {@link UserInfoCache} can serve from the response it holds, and refreshing it ahead of expiry.
+ */
+public class UserInfoCacheTest {
+	private static final UUID USER = UUID.fromString("8ea1da2f-0efa-4044-9e6f-4a3bf4e8a9a5");
+	private static final SafeURL TARGET = SafeURL.direct("https://example.com/v2/get/info");
+
+	@Test
+	public void testProjections() {
+		// stored noThirdParty, stored excludeModels, requested noThirdParty, requested excludeModels, served with a cosmetica cape, served with a third party cape
+		boolean[][] matrix = {
+				{false, false, false, false, true, true},
+				{false, false, false, true, true, true},
+				{false, false, true, false, true, false},
+				{false, false, true, true, true, false},
+				{false, true, false, false, false, false},
+				{false, true, false, true, true, true},
+				{false, true, true, false, false, false},
+				{false, true, true, true, true, false},
+				{true, false, false, false, false, false},
+				{true, false, false, true, false, false},
+				{true, false, true, false, true, true},
+				{true, false, true, true, true, true},
+				{true, true, false, false, false, false},
+				{true, true, false, true, false, false},
+				{true, true, true, false, false, false},
+				{true, true, true, true, true, true},
+		};
+
+		for (boolean[] row : matrix) {
+			for (String origin : new String[] {"Cosmetica", "OptiFine"}) {
+				UserInfoCache cache = cache();
+				cache.put(USER, user(origin), row[0], row[1]);
+
+				boolean expected = "Cosmetica".equals(origin) ? row[4] : row[5];
+				Optional<?> result = cache.get(USER, row[2], row[3], TARGET);
+				assertEquals("stored " + row[0] + "/" + row[1] + ", requested " + row[2] + "/" + row[3] + " with " + origin + " cape", expected, result.isPresent());
+			}
+		}
+	}
+
+	@Test
+	public void testProjectionStripsModels() {
+		UserInfoCache cache = cache();
+		cache.put(USER, user("Cosmetica"), false, false);
+
+		UserInfo stripped = cache.get(USER, false, true, TARGET).get().get();
+		assertEquals("", ((Model) stripped.getHats().get(0)).getModel());
+	}
+
+	@Test
+	public void testResponseWhichCannotBeProjectedIsStored() {
+		UserInfoCache cache = cache();
+		cache.put(USER, user("OptiFine"), false, false);
+
+		// the third party cape cannot be projected away, so the response requested without it replaces the entry
+		cache.put(USER, user(null), true, false);
+		assertTrue(cache.get(USER, true, false, TARGET).isPresent());
+	}
+
+	@Test
+	public void testHotEntryIsRefreshedAhead() throws InterruptedException {
+		AtomicInteger refreshes = new AtomicInteger();
+		UserInfo refreshed = user(null);
+		UserInfoCache cache = new UserInfoCache(1000, 16, (uuid, noThirdParty, excludeModels) -> {
+			refreshes.incrementAndGet();
+			assertTrue(noThirdParty);
+			return CompletableFuture.completedFuture(new ServerResponse<>(refreshed, TARGET));
+		});
+		cache.put(USER, user("Cosmetica"), true, false);
+
+		// within the last 15% of its life, the second read makes it hot
+		Thread.sleep(900);
+		assertNotSame(refreshed, cache.get(USER, true, false, TARGET).get().get());
+		assertEquals(0, refreshes.get());
+		assertNotSame(refreshed, cache.get(USER, true, false, TARGET).get().get());
+		assertEquals(1, refreshes.get());
+
+		// replaced with the refreshed response, stored afresh
+		ServerResponse<UserInfo> response = cache.get(USER, true, false, TARGET).get();
+		assertSame(refreshed, response.get());
+		assertTrue(response.getAge() < 500);
+	}
+
+	@Test
+	public void testRejectedRefreshIsRetried() throws InterruptedException {
+		AtomicInteger refreshes = new AtomicInteger();
+		UserInfoCache cache = new UserInfoCache(1000, 16, (uuid, noThirdParty, excludeModels) -> {
+			refreshes.incrementAndGet();
+			throw new RejectedExecutionException("shut down");
+		});
+		UserInfo info = user("Cosmetica");
+		cache.put(USER, info, false, false);
+
+		Thread.sleep(900);
+
+		// the rejection neither escapes nor stops later reads from refreshing it
+		for (int i = 0; i < 3; i++) {
+			assertSame(info, cache.get(USER, false, false, TARGET).get().get());
+		}
+
+		assertEquals(2, refreshes.get());
+	}
+
+	private static UserInfoCache cache() {
+		return new UserInfoCache(60 * 1000, 16, (uuid, noThirdParty, excludeModels) -> new CompletableFuture<>());
+	}
+
+	private static UserInfo user(String capeOrigin) {
+		Optional<Cosmetic> cape = capeOrigin == null ? Optional.empty() : Optional.of(parse("{\"type\":\"Cape\",\"extraInfo\":100,\"name\":\"Cape\",\"id\":\"c\","
+				+ "\"origin\":\"" + capeOrigin + "\",\"owner\":\"8ea1da2f0efa40449e6f4a3bf4e8a9a5\",\"ownerName\":\"V\",\"uploadState\":1,\"reason\":\"\","
+				+ "\"uploaded\":5,\"isCosmeticaAlternative\":false,\"image\":\"data:image/png;base64,AAAA\"}"));
+		Cosmetic hat = parse("{\"type\":\"Hat\",\"id\":\"h\",\"extraInfo\":0,\"bounds\":[[0,0,0],[1,1,1]],\"name\":\"Hat\",\"model\":\"{}\","
+				+ "\"texture\":\"data:image/png;base64,AAAA\",\"owner\":\"8ea1da2f0efa40449e6f4a3bf4e8a9a5\",\"ownerName\":\"V\","
+				+ "\"origin\":\"Cosmetica\",\"uploadState\":2,\"reason\":\"\",\"uploaded\":1,\"usesUvRotations\":false}");
+
+		return new UserInfoImpl(null, false, "", "java", "default", false, "", "", null, true,
+				Collections.singletonList(hat), Optional.empty(), Optional.empty(), cape, "");
+	}
+
+	private static Cosmetic parse(String json) {
+		return AbstractCosmetic.parse(new JsonParser().parse(json).getAsJsonObject()).get();
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.test;
+
+import cc.cosmetica.api.texture.AnimatedTexture;
+import cc.cosmetica.api.texture.DecodedTexture;
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+/**
+ * Tests for slicing an {@link AnimatedTexture} into frames and picking the frame to show at a given time.
+ */
+public class AnimatedTextureTest {
+	@Test
+	public void testFramesAreSliced() {
+		AnimatedTexture animation = AnimatedTexture.of(strip(2, 4, 3), 4, 100);
+
+		assertEquals(3, animation.getFrameCount());
+		assertTrue(animation.isAnimated());
+		assertEquals(2, animation.getFrameWidth());
+		assertEquals(4, animation.getFrameHeight());
+
+		for (int frame = 0; frame < 3; frame++) {
+			int[] pixels = animation.getFrame(frame);
+			assertEquals(8, pixels.length);
+
+			for (int pixel : pixels) {
+				assertEquals(frame, pixel);
+			}
+		}
+	}
+
+	@Test
+	public void testFrameBoundaries() {
+		AnimatedTexture animation = AnimatedTexture.of(strip(2, 2, 3), 2, 100);
+
+		assertEquals(0, animation.frameIndexAt(0));
+		assertEquals(0, animation.frameIndexAt(99));
+		assertEquals(1, animation.frameIndexAt(100));
+		assertEquals(1, animation.frameIndexAt(199));
+		assertEquals(2, animation.frameIndexAt(200));
+		assertEquals(2, animation.frameIndexAt(299));
+		assertSame(animation.getFrame(1), animation.frameAt(150));
+	}
+
+	@Test
+	public void testWrapAround() {
+		AnimatedTexture animation = AnimatedTexture.of(strip(2, 2, 3), 2, 100);
+
+		assertEquals(0, animation.frameIndexAt(300));
+		assertEquals(1, animation.frameIndexAt(400));
+		assertEquals(2, animation.frameIndexAt(3 * 100 * 1000 + 250));
+		assertEquals((int) ((Long.MAX_VALUE / 100) % 3), animation.frameIndexAt(Long.MAX_VALUE));
+
+		// before the epoch, counting backwards through whole frames
+		assertEquals(2, animation.frameIndexAt(-1));
+		assertEquals(2, animation.frameIndexAt(-100));
+		assertEquals(1, animation.frameIndexAt(-101));
+		assertEquals(0, animation.frameIndexAt(-300));
+	}
+
+	@Test
+	public void testSingleFrame() {
+		AnimatedTexture animation = AnimatedTexture.of(strip(4, 4, 1), 4, 100);
+
+		assertEquals(1, animation.getFrameCount());
+		assertFalse(animation.isAnimated());
+
+		for (long time : new long[] {0, 99, 100, 12345, -1}) {
+			assertSame(animation.getFrame(0), animation.frameAt(time));
+		}
+	}
+
+	@Test
+	public void testStaticTextureShowsFirstFrame() {
+		// a strip of frames with no delay is static, so is not sliced past the first frame
+		AnimatedTexture animation = AnimatedTexture.of(strip(2, 2, 3), 2, 0);
+
+		assertEquals(1, animation.getFrameCount());
+		assertEquals(0, animation.frameIndexAt(500));
+
+		for (int pixel : animation.frameAt(500)) {
+			assertEquals(0, pixel);
+		}
+	}
+
+	@Test
+	public void testPartialFramesAndOversizedFrames() {
+		// a trailing partial frame is dropped
+		assertEquals(2, AnimatedTexture.of(strip(2, 2, 3), 3, 100).getFrameCount());
+		// a frame taller than the texture is clamped to it
+		assertEquals(6, AnimatedTexture.of(strip(2, 2, 3), 10, 100).getFrameHeight());
+
+		try {
+			AnimatedTexture.of(strip(2, 2, 1), 0, 100);
+			fail("Expected a non-positive frame height to be rejected");
+		}
+		catch (IllegalArgumentException expected) {
+		}
+	}
+
+	/**
+	 * Create a vertical strip of frames, where every pixel of a frame is that frame's index.
+	 */
+	private static DecodedTexture strip(int width, int frameHeight, int frames) {
+		int[] pixels = new int[width * frameHeight * frames];
+
+		for (int i = 0; i < pixels.length; i++) {
+			pixels[i] = i / (width * frameHeight);
+		}
+
+		return new DecodedTexture("strip", width, frameHeight * frames, pixels);
+	}
+}
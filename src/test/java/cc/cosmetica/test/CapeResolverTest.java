@@ -0,0 +1,214 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.test;
+
+import cc.cosmetica.api.cape.CapeProvider;
+import cc.cosmetica.api.cape.CapeResolver;
+import cc.cosmetica.api.cape.ResolvedCape;
+import cc.cosmetica.api.settings.CapeDisplay;
+import cc.cosmetica.api.settings.CapeServer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+
+/**
+ * Tests for resolving third party capes with a {@link CapeResolver}, using local stand-ins for the cape providers.
+ */
+public class CapeResolverTest {
+	private static final UUID PLAYER = UUID.fromString("8ea1da2f-0efa-4044-9e6f-4a3bf4e8a9a5");
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@Test
+	public void testEarlierProviderWinsOverFasterLaterProvider() throws Exception {
+		StandInProvider optifine = new StandInProvider("optifine", "of-cape");
+		StandInProvider minecraftCapes = new StandInProvider("minecraftcapes", "mc-cape");
+		optifine.block();
+		CapeResolver resolver = CapeResolver.create(Arrays.asList(optifine, minecraftCapes), this.executor, 60 * 1000);
+
+		CompletableFuture<Optional<ResolvedCape>> result = resolver.resolve(PLAYER, "Valoeghese", settings(
+				"optifine", 1, CapeDisplay.SHOW,
+				"minecraftcapes", 2, CapeDisplay.SHOW));
+
+		// the later provider has answered, but the earlier one has not
+		minecraftCapes.answered.await(5, TimeUnit.SECONDS);
+		Thread.sleep(50);
+		assertFalse(result.isDone());
+
+		optifine.release();
+		assertEquals(Optional.of(new ResolvedCape("optifine", "of-cape")), result.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testLaterProviderAnswersWithoutWaitingForEvenLaterProviders() throws Exception {
+		StandInProvider optifine = new StandInProvider("optifine", null);
+		StandInProvider minecraftCapes = new StandInProvider("minecraftcapes", "mc-cape");
+		StandInProvider labyMod = new StandInProvider("labymod", "laby-cape");
+		labyMod.block();
+		CapeResolver resolver = CapeResolver.create(Arrays.asList(optifine, minecraftCapes, labyMod), this.executor, 60 * 1000);
+
+		Optional<ResolvedCape> result = resolver.resolve(PLAYER, "Valoeghese", settings(
+				"labymod", 3, CapeDisplay.SHOW,
+				"optifine", 1, CapeDisplay.SHOW,
+				"minecraftcapes", 2, CapeDisplay.SHOW)).get(5, TimeUnit.SECONDS);
+
+		assertEquals(Optional.of(new ResolvedCape("minecraftcapes", "mc-cape")), result);
+		labyMod.release();
+	}
+
+	@Test
+	public void testHiddenProvidersAreNotAskedAndAnswersAreCached() throws Exception {
+		StandInProvider optifine = new StandInProvider("optifine", "of-cape");
+		StandInProvider minecraftCapes = new StandInProvider("minecraftcapes", "mc-cape");
+		CapeResolver resolver = CapeResolver.create(Arrays.asList(optifine, minecraftCapes), this.executor, 60 * 1000);
+		Map<String, CapeServer> settings = settings(
+				"optifine", 1, CapeDisplay.HIDE,
+				"minecraftcapes", 2, CapeDisplay.SHOW);
+
+		assertEquals(Optional.of(new ResolvedCape("minecraftcapes", "mc-cape")), resolver.resolve(PLAYER, "Valoeghese", settings).get(5, TimeUnit.SECONDS));
+		assertEquals(Optional.of(new ResolvedCape("minecraftcapes", "mc-cape")), resolver.resolve(PLAYER, "Valoeghese", settings).get(5, TimeUnit.SECONDS));
+		assertEquals(0, optifine.requests.get());
+		assertEquals(1, minecraftCapes.requests.get());
+
+		resolver.invalidate(PLAYER);
+		resolver.resolve(PLAYER, "Valoeghese", settings).get(5, TimeUnit.SECONDS);
+		assertEquals(2, minecraftCapes.requests.get());
+	}
+
+	@Test
+	public void testFailingProviderCountsAsNoCape() throws Exception {
+		StandInProvider optifine = new StandInProvider("optifine", "of-cape");
+		optifine.fail = true;
+		StandInProvider minecraftCapes = new StandInProvider("minecraftcapes", "mc-cape");
+		CapeResolver resolver = CapeResolver.create(Arrays.asList(optifine, minecraftCapes), this.executor, 60 * 1000);
+		Map<String, CapeServer> settings = settings(
+				"optifine", 1, CapeDisplay.SHOW,
+				"minecraftcapes", 2, CapeDisplay.SHOW);
+
+		assertEquals(Optional.of(new ResolvedCape("minecraftcapes", "mc-cape")), resolver.resolve(PLAYER, "Valoeghese", settings).get(5, TimeUnit.SECONDS));
+
+		// failures are not cached
+		optifine.fail = false;
+		assertEquals(Optional.of(new ResolvedCape("optifine", "of-cape")), resolver.resolve(PLAYER, "Valoeghese", settings).get(5, TimeUnit.SECONDS));
+		assertEquals(2, optifine.requests.get());
+	}
+
+	@Test
+	public void testNullAnswerCountsAsNoCape() throws Exception {
+		StandInProvider optifine = new StandInProvider("optifine", "of-cape");
+		optifine.answerNull = true;
+		StandInProvider minecraftCapes = new StandInProvider("minecraftcapes", "mc-cape");
+		CapeResolver resolver = CapeResolver.create(Arrays.asList(optifine, minecraftCapes), this.executor, 60 * 1000);
+
+		assertEquals(Optional.of(new ResolvedCape("minecraftcapes", "mc-cape")), resolver.resolve(PLAYER, "Valoeghese", settings(
+				"optifine", 1, CapeDisplay.SHOW,
+				"minecraftcapes", 2, CapeDisplay.SHOW)).get(5, TimeUnit.SECONDS));
+		assertEquals(Optional.empty(), resolver.resolve(PLAYER, "Valoeghese", settings("optifine", 1, CapeDisplay.SHOW)).get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testRejectedRequestCountsAsNoCape() throws Exception {
+		StandInProvider optifine = new StandInProvider("optifine", "of-cape");
+		AtomicBoolean reject = new AtomicBoolean(true);
+		Executor executor = task -> {
+			if (reject.get()) throw new RejectedExecutionException("Stand-in rejection");
+			this.executor.execute(task);
+		};
+		CapeResolver resolver = CapeResolver.create(Collections.singletonList(optifine), executor, 60 * 1000);
+		Map<String, CapeServer> settings = settings("optifine", 1, CapeDisplay.SHOW);
+
+		assertEquals(Optional.empty(), resolver.resolve(PLAYER, "Valoeghese", settings).get(5, TimeUnit.SECONDS));
+		assertEquals(0, optifine.requests.get());
+
+		// not left in flight, so asked again once the executor accepts it
+		reject.set(false);
+		assertEquals(Optional.of(new ResolvedCape("optifine", "of-cape")), resolver.resolve(PLAYER, "Valoeghese", settings).get(5, TimeUnit.SECONDS));
+		assertEquals(1, optifine.requests.get());
+	}
+
+	private static Map<String, CapeServer> settings(Object... entries) {
+		Map<String, CapeServer> settings = new HashMap<>();
+
+		for (int i = 0; i < entries.length; i += 3) {
+			settings.put((String) entries[i], new CapeServer((String) entries[i], "", (Integer) entries[i + 1], (CapeDisplay) entries[i + 2]));
+		}
+
+		return settings;
+	}
+
+	private static class StandInProvider implements CapeProvider {
+		StandInProvider(String id, String cape) {
+			this.id = id;
+			this.cape = cape;
+		}
+
+		private final String id;
+		private final String cape;
+		private final AtomicInteger requests = new AtomicInteger();
+		private final CountDownLatch answered = new CountDownLatch(1);
+		private volatile CountDownLatch blocker;
+		private volatile boolean fail;
+		private volatile boolean answerNull;
+
+		void block() {
+			this.blocker = new CountDownLatch(1);
+		}
+
+		void release() {
+			this.blocker.countDown();
+		}
+
+		@Override
+		public String getId() {
+			return this.id;
+		}
+
+		@Override
+		public Optional<String> getCape(UUID uuid, String username) throws IOException {
+			this.requests.incrementAndGet();
+
+			try {
+				if (this.blocker != null) this.blocker.await();
+			}
+			catch (InterruptedException e) {
+				throw new IOException(e);
+			}
+
+			this.answered.countDown();
+			if (this.fail) throw new IOException("Stand-in failure");
+			if (this.answerNull) return null;
+			return Optional.ofNullable(this.cape);
+		}
+	}
+}
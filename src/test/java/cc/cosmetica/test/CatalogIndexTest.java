@@ -0,0 +1,111 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.test;
+
+import cc.cosmetica.api.CosmeticaAPI;
+import cc.cosmetica.api.CosmeticsPage;
+import cc.cosmetica.api.ServerResponse;
+import cc.cosmetica.api.catalog.CatalogIndex;
+import cc.cosmetica.api.cosmetic.Cosmetic;
+import cc.cosmetica.api.cosmetic.CosmeticType;
+import cc.cosmetica.api.cosmetic.Model;
+import cc.cosmetica.impl.cosmetic.AbstractCosmetic;
+import cc.cosmetica.util.SafeURL;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * Tests for loading a {@link CatalogIndex} from pages served by a stand-in api.
+ */
+public class CatalogIndexTest {
+	@Test
+	public void testPopularDoesNotCutShortRecent() {
+		List<String> requests = new ArrayList<>();
+		CatalogIndex index = new CatalogIndex();
+
+		// a recently uploaded cosmetic that is already popular
+		CosmeticaAPI api = api(requests, Collections.singletonList(hat("new", 100)),
+				Arrays.asList(hat("new", 100), hat("b", 90)),
+				Arrays.asList(hat("c", 80), hat("d", 70)));
+
+		assertEquals(1, (int) index.loadPopular(api, 2).get());
+		assertEquals(4, (int) index.loadRecent(api, CosmeticType.HAT, 2).get());
+		assertEquals(4, index.size());
+		assertEquals(Arrays.asList("popular 1", "recent 1", "recent 2"), requests);
+
+		// the completed recent load lets later ones stop at the first page
+		requests.clear();
+		index.loadRecent(api, CosmeticType.HAT, 2);
+		assertEquals(Collections.singletonList("recent 1"), requests);
+	}
+
+	@Test
+	public void testHeavyFieldsAreNotKept() {
+		Cosmetic full = hat("a", 100);
+		CatalogIndex index = new CatalogIndex();
+		index.add(full);
+
+		Model indexed = (Model) index.search("hat", 10).get(0);
+		assertEquals("a", indexed.getId());
+		assertEquals("Hat a", indexed.getName());
+		assertEquals("", indexed.getModel());
+		assertEquals("", indexed.getTexture());
+
+		CosmeticaAPI api = (CosmeticaAPI) Proxy.newProxyInstance(CatalogIndexTest.class.getClassLoader(), new Class<?>[] {CosmeticaAPI.class}, (proxy, method, args) -> {
+			if (!method.getName().equals("getCosmetic")) throw new UnsupportedOperationException(method.getName());
+			assertEquals(CosmeticType.HAT, args[0]);
+			assertEquals("a", args[1]);
+			return new ServerResponse<>(full, SafeURL.direct("cosmetic"));
+		});
+
+		Model fetched = (Model) index.fetch(api, indexed).get();
+		assertEquals("{\"id\":\"a\"}", fetched.getModel());
+		assertEquals("texture a", fetched.getTexture());
+	}
+
+	@SafeVarargs
+	private static CosmeticaAPI api(List<String> requests, List<Cosmetic> popular, List<Cosmetic>... recentPages) {
+		return (CosmeticaAPI) Proxy.newProxyInstance(CatalogIndexTest.class.getClassLoader(), new Class<?>[] {CosmeticaAPI.class}, (proxy, method, args) -> {
+			int page = (Integer) args[args.length == 2 ? 0 : 1];
+
+			switch (method.getName()) {
+			case "getPopularCosmetics":
+				requests.add("popular " + page);
+				return new ServerResponse<>(new CosmeticsPage<>(popular, false), SafeURL.direct("popular"));
+			case "getRecentCosmetics":
+				requests.add("recent " + page);
+				return new ServerResponse<>(new CosmeticsPage<>(recentPages[page - 1], page < recentPages.length), SafeURL.direct("recent"));
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	private static Cosmetic hat(String id, long uploaded) {
+		return AbstractCosmetic.parse(new JsonParser().parse("{\"type\":\"Hat\",\"id\":\"" + id + "\",\"extraInfo\":0,\"bounds\":[[0,0,0],[1,1,1]],"
+				+ "\"name\":\"Hat " + id + "\",\"model\":\"{\\\"id\\\":\\\"" + id + "\\\"}\",\"texture\":\"texture " + id + "\",\"owner\":\"8ea1da2f0efa40449e6f4a3bf4e8a9a5\",\"ownerName\":\"V\","
+				+ "\"origin\":\"Cosmetica\",\"uploadState\":2,\"reason\":\"\",\"uploaded\":" + uploaded + ",\"usesUvRotations\":false}").getAsJsonObject()).get();
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.test;
+
+import cc.cosmetica.api.catalog.CatalogSnapshot;
+import cc.cosmetica.api.cosmetic.BoundingBox;
+import cc.cosmetica.api.cosmetic.Cape;
+import cc.cosmetica.api.cosmetic.Cosmetic;
+import cc.cosmetica.api.cosmetic.Model;
+import cc.cosmetica.impl.cosmetic.AbstractCosmetic;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+/**
+ * Tests for writing and reading back a {@link CatalogSnapshot}.
+ */
+public class CatalogSnapshotTest {
+	// escapes, characters gson escapes itself, multi-byte utf-8 and a surrogate pair
+	private static final String AWKWARD = "quote \" backslash \\ newline \n tab \t <html>='&' caf\u00e9 \u2603 \ud83d\ude00";
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		StringBuilder heavyModel = new StringBuilder("{\"textures\":[");
+
+		for (int i = 0; i < 10000; i++) {
+			heavyModel.append(i == 0 ? "" : ",").append("{\"name\":").append(new JsonPrimitive(AWKWARD + i)).append("}");
+		}
+
+		heavyModel.append("]}");
+
+		List<Cosmetic> cosmetics = Arrays.asList(
+				cape("cape", "Cape " + AWKWARD, "data:image/png;base64,AAAA", 100, true),
+				cape("still", "Still", "data:image/png;base64," + repeat("QUJD", 50000), 0, false),
+				model("Hat", "hat", heavyModel.toString(), "data:image/png;base64,AAAA", 1 | (3 << 4), false),
+				model("Shoulder Buddy", "buddy " + AWKWARD, "{\"model\":" + new JsonPrimitive(AWKWARD) + "}", AWKWARD, 0, true),
+				model("Back Bling", "bling", "", "", 2, false),
+				reduced("Hat", "reduced hat"),
+				reduced("Cape", "reduced cape")
+		);
+
+		List<Cosmetic> read = roundTrip(cosmetics);
+		assertEquals(cosmetics.size(), read.size());
+
+		for (int i = 0; i < cosmetics.size(); i++) {
+			assertSameCosmetic(cosmetics.get(i), read.get(i));
+		}
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		assertTrue(roundTrip(Collections.emptyList()).isEmpty());
+	}
+
+	@Test
+	public void testRejectsOtherFiles() throws IOException {
+		Path file = Files.createTempFile("catalog", ".snapshot");
+
+		try {
+			Files.write(file, "not a snapshot".getBytes());
+			CatalogSnapshot.read(file);
+			fail("Expected a file which is not a snapshot to be rejected");
+		}
+		catch (IOException expected) {
+		}
+		finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	private static List<Cosmetic> roundTrip(List<Cosmetic> cosmetics) throws IOException {
+		Path file = Files.createTempFile("catalog", ".snapshot");
+
+		try {
+			assertEquals(cosmetics.size(), CatalogSnapshot.write(file, cosmetics));
+			List<Cosmetic> read = CatalogSnapshot.read(file);
+
+			// heavy fields are read lazily from the mapped file, so decode them before it is deleted
+			for (Cosmetic cosmetic : read) {
+				if (cosmetic instanceof Cape) ((Cape) cosmetic).getImage();
+				if (cosmetic instanceof Model) ((Model) cosmetic).getModel();
+				if (cosmetic instanceof Model) ((Model) cosmetic).getTexture();
+			}
+
+			return read;
+		}
+		finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	private static void assertSameCosmetic(Cosmetic expected, Cosmetic actual) {
+		assertEquals(expected.getType(), actual.getType());
+		assertEquals(expected.getId(), actual.getId());
+		assertEquals(expected.getName(), actual.getName());
+		assertEquals(expected.getOrigin(), actual.getOrigin());
+		assertEquals(expected.getOwner().get().getUUID(), actual.getOwner().get().getUUID());
+		assertEquals(expected.getOwner().get().getUsername(), actual.getOwner().get().getUsername());
+		assertEquals(expected.getUploadTime(), actual.getUploadTime());
+		assertEquals(expected.getUploadState(), actual.getUploadState());
+		assertEquals(expected.getReason(), actual.getReason());
+		assertEquals(expected.getExtraInfo(), actual.getExtraInfo());
+		assertEquals(expected.hasReducedData(), actual.hasReducedData());
+		assertEquals(expected.isOfficial(), actual.isOfficial());
+		assertEquals(expected.getClass(), actual.getClass());
+
+		if (expected instanceof Cape) {
+			Cape expectedCape = (Cape) expected;
+			Cape actualCape = (Cape) actual;
+
+			assertEquals(expectedCape.getImage(), actualCape.getImage());
+			assertEquals(expectedCape.getFrameDelay(), actualCape.getFrameDelay());
+			assertEquals(expectedCape.isCosmeticaAlternative(), actualCape.isCosmeticaAlternative());
+		}
+		else if (expected instanceof Model) {
+			Model expectedModel = (Model) expected;
+			Model actualModel = (Model) actual;
+			BoundingBox expectedBounds = expectedModel.getBoundingBox();
+			BoundingBox actualBounds = actualModel.getBoundingBox();
+
+			assertEquals(expectedModel.getModel(), actualModel.getModel());
+			assertEquals(expectedModel.getTexture(), actualModel.getTexture());
+			assertEquals(expectedModel.flags(), actualModel.flags());
+			assertEquals(expectedModel.getFrameDelay(), actualModel.getFrameDelay());
+			assertEquals(expectedModel.usesUVRotations(), actualModel.usesUVRotations());
+			assertEquals(expectedBounds.x0(), actualBounds.x0());
+			assertEquals(expectedBounds.y0(), actualBounds.y0());
+			assertEquals(expectedBounds.z0(), actualBounds.z0());
+			assertEquals(expectedBounds.x1(), actualBounds.x1());
+			assertEquals(expectedBounds.y1(), actualBounds.y1());
+			assertEquals(expectedBounds.z1(), actualBounds.z1());
+		}
+		else {
+			assertFalse(actual instanceof Cape || actual instanceof Model);
+		}
+	}
+
+	private static Cosmetic cape(String id, String name, String image, int frameDelay, boolean alternative) {
+		JsonObject json = common("Cape", id, name);
+		json.addProperty("extraInfo", frameDelay);
+		json.addProperty("image", image);
+		json.addProperty("isCosmeticaAlternative", alternative);
+		return AbstractCosmetic.parse(json).get();
+	}
+
+	private static Cosmetic model(String type, String id, String model, String texture, int flags, boolean uvRotations) {
+		JsonObject json = common(type, id, id + " model");
+		json.addProperty("extraInfo", flags);
+		json.add("bounds", new JsonParser().parse("[[-4,0,-2],[4,8,3]]"));
+		json.addProperty("model", model);
+		json.addProperty("texture", texture);
+		json.addProperty("usesUvRotations", uvRotations);
+		return AbstractCosmetic.parse(json).get();
+	}
+
+	private static Cosmetic reduced(String type, String id) {
+		JsonObject json = common(type, id, id);
+		json.addProperty("extraInfo", "");
+		return AbstractCosmetic.parse(json).get();
+	}
+
+	private static JsonObject common(String type, String id, String name) {
+		JsonObject json = new JsonObject();
+		json.addProperty("type", type);
+		json.addProperty("id", id);
+		json.addProperty("name", name);
+		json.addProperty("origin", "Cosmetica " + AWKWARD);
+		json.addProperty("owner", "8ea1da2f0efa40449e6f4a3bf4e8a9a5");
+		json.addProperty("ownerName", "Valoeghese");
+		json.addProperty("uploadState", 2);
+		json.addProperty("reason", "reason " + id.length());
+		json.addProperty("uploaded", 1600000000L + id.length());
+		return json;
+	}
+
+	private static String repeat(String text, int times) {
+		StringBuilder result = new StringBuilder(text.length() * times);
+
+		for (int i = 0; i < times; i++) {
+			result.append(text);
+		}
+
+		return result.toString();
+	}
+}
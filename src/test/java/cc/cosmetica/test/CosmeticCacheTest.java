@@ -0,0 +1,148 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.test;
+
+import cc.cosmetica.api.CosmeticaAPI;
+import cc.cosmetica.api.ServerResponse;
+import cc.cosmetica.api.UserInfo;
+import cc.cosmetica.api.cosmetic.Cosmetic;
+import cc.cosmetica.api.cosmetic.CosmeticType;
+import cc.cosmetica.api.cosmetic.Model;
+import cc.cosmetica.impl.CosmeticCache;
+import cc.cosmetica.impl.UserInfoImpl;
+import cc.cosmetica.impl.cosmetic.AbstractCosmetic;
+import cc.cosmetica.util.Response;
+import cc.cosmetica.util.SafeURL;
+import cc.cosmetica.util.Transports;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Tests for filling in user info from the {@link CosmeticCache}, requesting cosmetics from a {@link StubApiServer}.
+ */
+public class CosmeticCacheTest {
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@Test(timeout = 10 * 1000)
+	public void testConcurrentResolvesRequestEachCosmeticOnce() throws Exception {
+		try (StubApiServer server = new StubApiServer().respond("/get/cosmetic", CosmeticCacheTest::cosmeticResponse).delay(500)) {
+			CosmeticaAPI api = this.api(server);
+			String prefix = UUID.randomUUID().toString();
+			UserInfo info = user(cosmetic("Hat", prefix + "-a", ""), cosmetic("Hat", prefix + "-b", ""), cosmetic("Back Bling", prefix + "-c", ""));
+
+			// load the transport's classes before timing
+			Transports.getDefault().get(server.getUrl() + "/get/cosmetic?type=hat&id=warmup", 20 * 1000).close();
+			int requestsBefore = server.getRequestCount();
+			long start = System.currentTimeMillis();
+			CompletableFuture<UserInfo> first = CompletableFuture.supplyAsync(() -> CosmeticCache.resolve(api, info), this.executor);
+			CompletableFuture<UserInfo> second = CompletableFuture.supplyAsync(() -> CosmeticCache.resolve(api, info), this.executor);
+
+			for (UserInfo resolved : Arrays.asList(first.get(), second.get())) {
+				assertEquals("{\"from\":\"" + prefix + "-a\"}", ((Model) resolved.getHats().get(0)).getModel());
+				assertEquals("{\"from\":\"" + prefix + "-b\"}", ((Model) resolved.getHats().get(1)).getModel());
+				assertEquals("{\"from\":\"" + prefix + "-c\"}", ((Model) resolved.getBackBling().get()).getModel());
+			}
+
+			// each cosmetic is requested once, and all at the same time rather than one after another
+			assertEquals(3, server.getRequestCount() - requestsBefore);
+			assertTrue(System.currentTimeMillis() - start < 3 * 500);
+		}
+	}
+
+	@Test(timeout = 10 * 1000)
+	public void testFailedRequestReleasesWaiters() throws Exception {
+		try (StubApiServer server = new StubApiServer().respond("/get/cosmetic", CosmeticCacheTest::cosmeticResponse)) {
+			CosmeticaAPI api = this.api(server);
+			String prefix = UUID.randomUUID().toString();
+			Cosmetic broken = cosmetic("Hat", prefix + "-broken", "");
+			UserInfo resolved = CosmeticCache.resolve(api, user(broken, cosmetic("Hat", prefix + "-fine", "")));
+
+			// the cosmetic which failed is left as it was, and the rest are still resolved
+			assertEquals("", ((Model) resolved.getHats().get(0)).getModel());
+			assertEquals("{\"from\":\"" + prefix + "-fine\"}", ((Model) resolved.getHats().get(1)).getModel());
+
+			// failures are not cached, and nothing is left waiting on the failed request
+			assertFalse(CosmeticCache.get(api, CosmeticType.HAT, broken.getId()).isPresent());
+		}
+	}
+
+	/**
+	 * A stand-in api which requests cosmetics from the stub server. Requests for cosmetics with "broken" in their id throw.
+	 */
+	@SuppressWarnings("unchecked")
+	private CosmeticaAPI api(StubApiServer server) {
+		return (CosmeticaAPI) Proxy.newProxyInstance(CosmeticCacheTest.class.getClassLoader(), new Class<?>[] {CosmeticaAPI.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "getCosmetic":
+				String id = (String) args[1];
+				if (id.contains("broken")) throw new IllegalStateException("Broken cosmetic " + id);
+
+				String url = server.getUrl() + "/get/cosmetic?type=" + ((CosmeticType<?>) args[0]).getUrlString() + "&id=" + id;
+
+				try (Response response = Transports.getDefault().get(url, 20 * 1000)) {
+					return new ServerResponse<>(AbstractCosmetic.parse(response.getAsJson()).get(), SafeURL.direct(url));
+				}
+			case "async":
+				return CompletableFuture.supplyAsync(() -> ((Function<CosmeticaAPI, ?>) args[0]).apply((CosmeticaAPI) proxy), this.executor);
+			case "withPriority":
+				return ((Function<CosmeticaAPI, ?>) args[1]).apply((CosmeticaAPI) proxy);
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	private static String cosmeticResponse(String query) {
+		String id = query.substring(query.indexOf("id=") + 3);
+		return json(query.contains("type=backbling") ? "Back Bling" : "Hat", id, "{\\\"from\\\":\\\"" + id + "\\\"}");
+	}
+
+	private static UserInfo user(Cosmetic... hats) {
+		Optional<Cosmetic> backBling = Optional.empty();
+
+		if (hats[hats.length - 1].getType() == CosmeticType.BACK_BLING) {
+			backBling = Optional.of(hats[hats.length - 1]);
+			hats = Arrays.copyOf(hats, hats.length - 1);
+		}
+
+		return new UserInfoImpl(null, false, "", "java", "default", false, "", "", null, true,
+				Arrays.asList(hats), Optional.empty(), backBling, Optional.empty(), "");
+	}
+
+	private static Cosmetic cosmetic(String type, String id, String model) {
+		return AbstractCosmetic.parse(new JsonParser().parse(json(type, id, model)).getAsJsonObject()).get();
+	}
+
+	private static String json(String type, String id, String model) {
+		return "{\"type\":\"" + type + "\",\"id\":\"" + id + "\",\"extraInfo\":0,\"bounds\":[[0,0,0],[1,1,1]],\"name\":\"Cosmetic\","
+				+ "\"model\":\"" + model + "\",\"texture\":\"\",\"owner\":\"8ea1da2f0efa40449e6f4a3bf4e8a9a5\",\"ownerName\":\"V\","
+				+ "\"origin\":\"Cosmetica\",\"uploadState\":2,\"reason\":\"\",\"uploaded\":1,\"usesUvRotations\":false}";
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.test;
+
+import cc.cosmetica.util.CountingBloomFilter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Tests for adding and removing uuids from a {@link CountingBloomFilter}.
+ */
+public class CountingBloomFilterTest {
+	@Test
+	public void testAddAndRemove() {
+		CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+		List<UUID> added = uuids(1000, 1);
+
+		for (UUID uuid : added) {
+			filter.add(uuid);
+		}
+
+		// no false negatives
+		for (UUID uuid : added) {
+			assertTrue(filter.mightContain(uuid));
+		}
+
+		// removing half leaves the other half present
+		for (int i = 0; i < 500; i++) {
+			assertTrue(filter.remove(added.get(i)));
+		}
+
+		for (int i = 500; i < 1000; i++) {
+			assertTrue(filter.mightContain(added.get(i)));
+		}
+
+		// around the false positive rate it was sized for, with plenty of leeway
+		int falsePositives = 0;
+
+		for (UUID uuid : uuids(10000, 2)) {
+			if (filter.mightContain(uuid)) falsePositives++;
+		}
+
+		assertTrue("False positives: " + falsePositives, falsePositives < 300);
+	}
+
+	@Test
+	public void testRemoveUndoesAdd() {
+		CountingBloomFilter filter = new CountingBloomFilter(100, 0.01);
+		UUID uuid = UUID.randomUUID();
+
+		filter.add(uuid);
+		filter.add(uuid);
+		assertTrue(filter.remove(uuid));
+		assertTrue(filter.mightContain(uuid));
+		assertTrue(filter.remove(uuid));
+		assertFalse(filter.mightContain(uuid));
+		assertFalse(filter.remove(uuid));
+	}
+
+	@Test
+	public void testSaturatedCountersStick() {
+		CountingBloomFilter filter = new CountingBloomFilter(100, 0.01);
+		UUID uuid = UUID.randomUUID();
+
+		// counters stop at 15, and are then never decremented, so the uuid can no longer be removed
+		for (int i = 0; i < 20; i++) {
+			filter.add(uuid);
+		}
+
+		for (int i = 0; i < 20; i++) {
+			filter.remove(uuid);
+		}
+
+		assertTrue(filter.mightContain(uuid));
+
+		filter.clear();
+		assertFalse(filter.mightContain(uuid));
+	}
+
+	private static List<UUID> uuids(int count, long seed) {
+		Random random = new Random(seed);
+		List<UUID> result = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			result.add(new UUID(random.nextLong(), random.nextLong()));
+		}
+
+		return result;
+	}
+}
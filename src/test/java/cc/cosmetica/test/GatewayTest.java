@@ -0,0 +1,148 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.test;
+
+import cc.cosmetica.api.CosmeticaGateway;
+import cc.cosmetica.util.Response;
+import cc.cosmetica.util.Transports;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+
+/**
+ * Tests for passing requests through a {@link CosmeticaGateway} to a {@link StubApiServer}.
+ */
+public class GatewayTest {
+	private static final String USER_INFO = "{\"skin\":\"\",\"slim\":false,\"lore\":\"Gateway\",\"platform\":\"java\",\"role\":\"default\",\"upsideDown\":false,\"prefix\":\"\",\"suffix\":\"\",\"icon\":{\"client\":null,\"online\":true,\"icon\":\"\"},\"hats\":[]}";
+	private static final UUID USER = UUID.fromString("8ea1da2f-0efa-4044-9e6f-4a3bf4e8a9a5");
+	private static final UUID OTHER_USER = UUID.fromString("5d4e6c2a-1111-2222-3333-444455556666");
+
+	private StubApiServer server;
+	private CosmeticaGateway gateway;
+	private String url;
+
+	@Before
+	public void start() throws IOException {
+		this.server = new StubApiServer()
+				.respond("/v2/get/info", USER_INFO)
+				.respond("/get/everythirtysecondsinafricahalfaminutepasses", "{\"timestamp\":5,\"notifications\":[],\"updates\":{\"list\":[{\"uuid\":\"" + USER.toString().replace("-", "") + "\"}]}}");
+		this.gateway = CosmeticaGateway.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), this.server.getUrl(), 60 * 1000);
+		this.url = "http://" + this.gateway.getAddress().getHostString() + ":" + this.gateway.getAddress().getPort();
+	}
+
+	@After
+	public void stop() {
+		this.gateway.close();
+		this.server.close();
+	}
+
+	@Test
+	public void testTokenAndTimestampAreNotPartOfCacheKey() throws IOException {
+		assertEquals(USER_INFO, this.get("/v2/get/info?username=&uuid=" + USER + "&timestamp=1&token=first"));
+		assertEquals(USER_INFO, this.get("/v2/get/info?username=&uuid=" + USER + "&timestamp=2&token=second"));
+		assertEquals(1, this.server.getRequestCount());
+
+		// other parameters are
+		this.get("/v2/get/info?username=&uuid=" + USER + "&nothirdparty=true&timestamp=3&token=first");
+		assertEquals(2, this.server.getRequestCount());
+	}
+
+	@Test
+	public void testConcurrentIdenticalRequestsAreCoalesced() {
+		this.server.delay(300);
+		ExecutorService executor = Executors.newCachedThreadPool();
+		List<CompletableFuture<String>> responses = new ArrayList<>();
+
+		for (int i = 0; i < 8; i++) {
+			final String token = "token" + i;
+
+			responses.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					return this.get("/v2/get/info?username=&uuid=" + USER + "&token=" + token);
+				}
+				catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, executor));
+		}
+
+		for (CompletableFuture<String> response : responses) {
+			assertEquals(USER_INFO, response.join());
+		}
+
+		assertEquals(1, this.server.getRequestCount());
+		executor.shutdown();
+	}
+
+	@Test
+	public void testUpdatesInvalidateListedUsers() throws IOException {
+		this.get("/v2/get/info?username=&uuid=" + USER);
+		this.get("/v2/get/info?username=&uuid=" + OTHER_USER);
+		assertEquals(2, this.server.getRequestCount());
+
+		// polling is passed through, and drops the listed user from the cache
+		this.get("/get/everythirtysecondsinafricahalfaminutepasses?ip=abc&timestamp=0&token=first");
+		this.get("/get/everythirtysecondsinafricahalfaminutepasses?ip=abc&timestamp=0&token=first");
+		assertEquals(4, this.server.getRequestCount());
+
+		this.get("/v2/get/info?username=&uuid=" + USER);
+		this.get("/v2/get/info?username=&uuid=" + OTHER_USER);
+		assertEquals(5, this.server.getRequestCount());
+	}
+
+	@Test
+	public void testForceShowBypassesCache() throws IOException {
+		// as the library builds it, with the flag bare
+		this.get("/v2/get/info?username=&uuid=" + USER + "&forceshow&timestamp=0&token=first");
+		this.get("/v2/get/info?username=&uuid=" + USER + "&forceshow&timestamp=1&token=second");
+		this.get("/v2/get/info?username=&uuid=" + USER + "&forceshow=true&timestamp=2&token=first");
+		assertEquals(3, this.server.getRequestCount());
+		assertEquals(0, this.gateway.getCacheSize());
+	}
+
+	@Test
+	public void testUnreachableServerIsBadGateway() throws IOException {
+		this.server.close();
+
+		try (Response response = Transports.getDefault().get(this.url + "/v2/get/info?username=&uuid=" + USER, 20 * 1000)) {
+			assertEquals(502, response.getStatusCode());
+			// not json, so clients treat it as the server failing rather than an api error
+			assertFalse(response.getAsString().startsWith("{"));
+		}
+	}
+
+	private String get(String path) throws IOException {
+		try (Response response = Transports.getDefault().get(this.url + path, 20 * 1000)) {
+			assertEquals(200, response.getStatusCode());
+			return response.getAsString();
+		}
+	}
+}
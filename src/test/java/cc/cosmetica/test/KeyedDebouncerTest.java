@@ -0,0 +1,158 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.test;
+
+import cc.cosmetica.util.KeyedDebouncer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+/**
+ * Tests for coalescing writes with a {@link KeyedDebouncer}.
+ */
+public class KeyedDebouncerTest {
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@Test
+	public void testLastWriteWins() throws Exception {
+		List<String> sent = Collections.synchronizedList(new ArrayList<>());
+		KeyedDebouncer<String, String, String> debouncer = new KeyedDebouncer<>(100, this.executor, (waiting, next) -> next, (key, value) -> {
+			sent.add(key + "=" + value);
+			return value;
+		});
+
+		CompletableFuture<String> first = debouncer.submit("hat", "a");
+		CompletableFuture<String> second = debouncer.submit("hat", "b");
+		CompletableFuture<String> third = debouncer.submit("hat", "c");
+
+		// everyone who submitted receives the result of the single send
+		assertEquals("c", first.get(5, TimeUnit.SECONDS));
+		assertEquals("c", second.get(5, TimeUnit.SECONDS));
+		assertEquals("c", third.get(5, TimeUnit.SECONDS));
+		assertEquals(Collections.singletonList("hat=c"), sent);
+	}
+
+	@Test
+	public void testMergesPerKey() throws Exception {
+		List<String> sent = Collections.synchronizedList(new ArrayList<>());
+		KeyedDebouncer<String, List<String>, Integer> debouncer = new KeyedDebouncer<>(100, this.executor, KeyedDebouncerTest::concat, (key, value) -> {
+			sent.add(key + "=" + value);
+			return value.size();
+		});
+
+		debouncer.submit("settings", Collections.singletonList("a"));
+		debouncer.submit("capes", Collections.singletonList("x"));
+		CompletableFuture<Integer> settings = debouncer.submit("settings", Collections.singletonList("b"));
+
+		assertEquals(2, (int) settings.get(5, TimeUnit.SECONDS));
+		Thread.sleep(50);
+		assertEquals(2, sent.size());
+		assertTrue(sent.contains("settings=[a, b]"));
+		assertTrue(sent.contains("capes=[x]"));
+	}
+
+	@Test
+	public void testFlushSendsWithoutWaiting() throws Exception {
+		KeyedDebouncer<String, String, String> debouncer = new KeyedDebouncer<>(60 * 1000, this.executor, (waiting, next) -> next, (key, value) -> value);
+		CompletableFuture<String> result = debouncer.submit("hat", "a");
+
+		Thread.sleep(50);
+		assertFalse(result.isDone());
+
+		debouncer.flush();
+		assertEquals("a", result.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testSendsForAKeyAreInOrder() throws Exception {
+		CountDownLatch firstSending = new CountDownLatch(1);
+		CountDownLatch releaseFirst = new CountDownLatch(1);
+		AtomicInteger inFlight = new AtomicInteger();
+		List<String> sent = Collections.synchronizedList(new ArrayList<>());
+
+		KeyedDebouncer<String, String, String> debouncer = new KeyedDebouncer<>(20, this.executor, (waiting, next) -> next, (key, value) -> {
+			if (inFlight.incrementAndGet() > 1) fail("Two sends for one key at once");
+
+			if ("first".equals(value)) {
+				firstSending.countDown();
+
+				try {
+					releaseFirst.await(5, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+
+			sent.add(value);
+			inFlight.decrementAndGet();
+			return value;
+		});
+
+		CompletableFuture<String> first = debouncer.submit("hat", "first");
+		assertTrue(firstSending.await(5, TimeUnit.SECONDS));
+
+		// finishes debouncing while the first send is in progress, so waits for it
+		CompletableFuture<String> second = debouncer.submit("hat", "second");
+		Thread.sleep(100);
+		assertFalse(second.isDone());
+
+		releaseFirst.countDown();
+		assertEquals("first", first.get(5, TimeUnit.SECONDS));
+		assertEquals("second", second.get(5, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList("first", "second"), sent);
+	}
+
+	@Test
+	public void testRejectedSendCompletesExceptionally() throws Exception {
+		ExecutorService shutDown = Executors.newSingleThreadExecutor();
+		shutDown.shutdown();
+		KeyedDebouncer<String, String, String> debouncer = new KeyedDebouncer<>(20, shutDown, (waiting, next) -> next, (key, value) -> value);
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				debouncer.submit("hat", "a").get(5, TimeUnit.SECONDS);
+				fail("Send was not rejected");
+			}
+			catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof RejectedExecutionException);
+			}
+		}
+	}
+
+	private static List<String> concat(List<String> waiting, List<String> next) {
+		List<String> result = new ArrayList<>(waiting);
+		result.addAll(next);
+		return result;
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.test;
+
+import cc.cosmetica.api.cosmetic.BoundingBox;
+import cc.cosmetica.api.cosmetic.Model;
+import cc.cosmetica.api.cosmetic.ModelGeometry;
+import cc.cosmetica.impl.cosmetic.AbstractCosmetic;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Tests for parsing model json into {@link ModelGeometry}.
+ */
+public class ModelGeometryTest {
+	private static final String MODEL = "{\"texture_size\":[32,16],\"elements\":["
+			+ "{\"from\":[0,1,2],\"to\":[3,4,5],\"faces\":{\"up\":{\"uv\":[0,0,8,8]},\"east\":{\"uv\":[8,0,16,8],\"rotation\":90}}},"
+			+ "{\"from\":[6,7,8],\"to\":[9,10,11],\"rotation\":{\"angle\":22.5,\"axis\":\"y\",\"origin\":[8,8,8]},\"faces\":{\"north\":{\"uv\":[1,2,3,4]}}}]}";
+
+	@Test
+	public void testParse() {
+		ModelGeometry geometry = ModelGeometry.parse(MODEL, new BoundingBox(0, 0, 0, 1, 1, 1), true);
+
+		assertEquals(2, geometry.getCuboidCount());
+		assertEquals(32, geometry.getTextureWidth());
+		assertEquals(16, geometry.getTextureHeight());
+		assertEquals("[0.0, 1.0, 2.0, 6.0, 7.0, 8.0]", Arrays.toString(geometry.getFrom()));
+		assertEquals("[3.0, 4.0, 5.0, 9.0, 10.0, 11.0]", Arrays.toString(geometry.getTo()));
+
+		// only the second cuboid is rotated
+		assertEquals(0.0f, geometry.getRotationAngles()[0]);
+		assertEquals(22.5f, geometry.getRotationAngles()[1]);
+		assertEquals(ModelGeometry.AXIS_Y, geometry.getRotationAxes()[1]);
+		assertEquals("[0.0, 0.0, 0.0, 8.0, 8.0, 8.0]", Arrays.toString(geometry.getRotationOrigins()));
+
+		assertTrue(geometry.hasFace(0, ModelGeometry.UP));
+		assertTrue(geometry.hasFace(0, ModelGeometry.EAST));
+		assertFalse(geometry.hasFace(0, ModelGeometry.NORTH));
+		assertTrue(geometry.hasFace(1, ModelGeometry.NORTH));
+
+		int east = ModelGeometry.EAST;
+		int north = ModelGeometry.FACES + ModelGeometry.NORTH;
+		assertEquals("[8.0, 0.0, 16.0, 8.0]", Arrays.toString(Arrays.copyOfRange(geometry.getUVs(), 4 * east, 4 * east + 4)));
+		assertEquals("[1.0, 2.0, 3.0, 4.0]", Arrays.toString(Arrays.copyOfRange(geometry.getUVs(), 4 * north, 4 * north + 4)));
+		assertEquals(90, geometry.getUVRotations()[east]);
+
+		// uv rotations are not read for models that do not use them
+		assertEquals(0, ModelGeometry.parse(MODEL, new BoundingBox(0, 0, 0, 1, 1, 1), false).getUVRotations()[east]);
+	}
+
+	@Test
+	public void testModelWithoutJson() {
+		Model stripped = model("geometry-test-stripped", "");
+		assertFalse(stripped.getGeometry().isPresent());
+
+		// once the full model has been seen, its geometry is served to the stripped copy
+		Model full = model("geometry-test-full", MODEL);
+		assertEquals(2, full.getGeometry().get().getCuboidCount());
+		assertEquals(2, model("geometry-test-full", "").getGeometry().get().getCuboidCount());
+	}
+
+	private static Model model(String id, String modelJson) {
+		JsonObject json = new JsonParser().parse("{\"type\":\"Hat\",\"id\":\"" + id + "\",\"extraInfo\":0,\"bounds\":[[0,0,0],[1,1,1]],"
+				+ "\"name\":\"Hat\",\"texture\":\"\",\"owner\":\"8ea1da2f0efa40449e6f4a3bf4e8a9a5\",\"ownerName\":\"V\","
+				+ "\"origin\":\"Cosmetica\",\"uploadState\":2,\"reason\":\"\",\"uploaded\":1,\"usesUvRotations\":true}").getAsJsonObject();
+		json.addProperty("model", modelJson);
+		return (Model) AbstractCosmetic.parse(json).get();
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.test;
+
+import cc.cosmetica.api.RequestPriority;
+import cc.cosmetica.util.RequestScheduler;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+/**
+ * Tests for queueing requests by priority in a {@link RequestScheduler}. No requests are actually sent.
+ */
+public class RequestSchedulerTest {
+	@Test
+	public void testInteractiveRequestsOvertakeQueuedBulkRequests() throws Exception {
+		RequestScheduler scheduler = new RequestScheduler(1, 16);
+		CountDownLatch blocker = new CountDownLatch(1);
+		List<String> order = Collections.synchronizedList(new ArrayList<>());
+		List<CompletableFuture<Void>> requests = new ArrayList<>();
+
+		// hold the only slot so everything else queues
+		CompletableFuture<Void> first = CompletableFuture.runAsync(() -> send(scheduler, RequestPriority.NORMAL, () -> blocker.await()));
+		while (scheduler.getInFlight() == 0) Thread.sleep(1);
+
+		for (int i = 0; i < 3; i++) {
+			requests.add(queue(scheduler, RequestPriority.BULK, order));
+		}
+
+		for (int i = 0; i < 3; i++) {
+			requests.add(queue(scheduler, RequestPriority.INTERACTIVE, order));
+		}
+
+		blocker.countDown();
+		first.join();
+		requests.forEach(CompletableFuture::join);
+
+		assertEquals(Arrays.asList("INTERACTIVE", "INTERACTIVE", "INTERACTIVE", "BULK", "BULK", "BULK"), order);
+		assertEquals(0, scheduler.getInFlight());
+	}
+
+	@Test
+	public void testBulkRequestsAreNotStarved() throws Exception {
+		RequestScheduler scheduler = new RequestScheduler(1, 32);
+		CountDownLatch blocker = new CountDownLatch(1);
+		List<String> order = Collections.synchronizedList(new ArrayList<>());
+		List<CompletableFuture<Void>> requests = new ArrayList<>();
+
+		CompletableFuture<Void> first = CompletableFuture.runAsync(() -> send(scheduler, RequestPriority.NORMAL, () -> blocker.await()));
+		while (scheduler.getInFlight() == 0) Thread.sleep(1);
+
+		requests.add(queue(scheduler, RequestPriority.BULK, order));
+
+		for (int i = 0; i < 20; i++) {
+			requests.add(queue(scheduler, RequestPriority.INTERACTIVE, order));
+		}
+
+		blocker.countDown();
+		first.join();
+		requests.forEach(CompletableFuture::join);
+
+		// with weights of 8 to 1, the bulk request gets one of every nine slots
+		int bulk = order.indexOf("BULK");
+		assertTrue("Bulk request was sent at " + bulk, bulk >= 0 && bulk < 9);
+	}
+
+	@Test
+	public void testFullQueueRejectsRequests() throws Exception {
+		RequestScheduler scheduler = new RequestScheduler(1, 1);
+		CountDownLatch blocker = new CountDownLatch(1);
+		List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+		CompletableFuture<Void> first = CompletableFuture.runAsync(() -> send(scheduler, RequestPriority.NORMAL, () -> blocker.await()));
+		while (scheduler.getInFlight() == 0) Thread.sleep(1);
+
+		CompletableFuture<Void> queued = queue(scheduler, RequestPriority.BULK, order);
+
+		try {
+			scheduler.execute(RequestPriority.BULK, () -> null);
+			fail("Request should have been rejected by the full queue");
+		}
+		catch (IOException expected) {
+		}
+
+		// other priorities have their own queues
+		CompletableFuture<Void> interactive = queue(scheduler, RequestPriority.INTERACTIVE, order);
+
+		blocker.countDown();
+		first.join();
+		queued.join();
+		interactive.join();
+
+		assertEquals(Arrays.asList("INTERACTIVE", "BULK"), order);
+	}
+
+	/**
+	 * Queue a request which records its priority when sent, returning once it is queued.
+	 */
+	private static CompletableFuture<Void> queue(RequestScheduler scheduler, RequestPriority priority, List<String> order) throws InterruptedException {
+		int queued = scheduler.getQueued(priority);
+		CompletableFuture<Void> request = CompletableFuture.runAsync(() -> send(scheduler, priority, () -> order.add(priority.name())), runnable -> new Thread(runnable).start());
+		while (scheduler.getQueued(priority) == queued) Thread.sleep(1);
+		return request;
+	}
+
+	private static void send(RequestScheduler scheduler, RequestPriority priority, Action action) {
+		try {
+			scheduler.execute(priority, () -> {
+				try {
+					action.run();
+				}
+				catch (InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+
+				return null;
+			});
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@FunctionalInterface
+	private interface Action {
+		void run() throws InterruptedException;
+	}
+}
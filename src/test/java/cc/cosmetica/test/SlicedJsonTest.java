@@ -0,0 +1,140 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.test;
+
+import cc.cosmetica.util.LazyString;
+import cc.cosmetica.util.SlicedJson;
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Tests for slicing heavy values out of json with {@link SlicedJson}, and decoding them with {@link LazyString}.
+ */
+public class SlicedJsonTest {
+	private static final Set<String> KEYS = new HashSet<>(Arrays.asList("model", "texture"));
+
+	@Test
+	public void testSlicesOnlyTheGivenKeys() {
+		SlicedJson document = parse("{\"name\": \"Hat\", \"model\" : \"{\\\"a\\\":1}\", \"texture\":\"data\"}");
+		JsonObject json = document.getJson().getAsJsonObject();
+
+		assertEquals("Hat", json.get("name").getAsString());
+		assertEquals(0, json.get("model").getAsInt());
+		assertEquals(1, json.get("texture").getAsInt());
+
+		LazyString model = document.getString(json.get("model"));
+		assertFalse(model.isDecoded());
+		assertEquals("\"{\\\"a\\\":1}\"", StandardCharsets.UTF_8.decode(model.getRaw()).toString());
+		assertEquals("{\"a\":1}", model.get());
+		assertTrue(model.isDecoded());
+		assertEquals("data", document.getString(json.get("texture")).get());
+	}
+
+	@Test
+	public void testKeysInsideStringsAreNotSliced() {
+		// "model" appears as a value, and as text inside other values, both escaped and not
+		String body = "{\"name\":\"\\\"model\\\":\\\"x\\\"\",\"lore\":\"model\",\"about\":\"a \\\\\",\"list\":[\"model\",\"texture\"],"
+				+ "\"model\":\"real\"}";
+		SlicedJson document = parse(body);
+		JsonObject json = document.getJson().getAsJsonObject();
+
+		assertEquals("\"model\":\"x\"", json.get("name").getAsString());
+		assertEquals("model", json.get("lore").getAsString());
+		assertEquals("a \\", json.get("about").getAsString());
+		assertEquals(2, json.get("list").getAsJsonArray().size());
+		assertEquals("real", document.getString(json.get("model")).get());
+		assertEquals(0, json.get("model").getAsInt());
+	}
+
+	@Test
+	public void testNestedKeysAreSliced() {
+		SlicedJson document = parse("{\"hats\":[{\"model\":\"a\",\"texture\":\"b\"},{\"model\":\"c\",\"texture\":\"d\"}]}");
+		JsonObject second = document.getJson().getAsJsonObject().getAsJsonArray("hats").get(1).getAsJsonObject();
+
+		assertEquals("c", document.getString(second.get("model")).get());
+		assertEquals("d", document.getString(second.get("texture")).get());
+	}
+
+	@Test
+	public void testEscapes() {
+		assertEquals("quote \" backslash \\ slash / \b\f\n\r\t", decode("quote \\\" backslash \\\\ slash \\/ \\b\\f\\n\\r\\t"));
+		assertEquals("\\\"", decode("\\\\\\\""));
+		assertEquals("caf\u00e9 \u2603", decode("caf\\u00e9 \\u2603"));
+		assertEquals("\u00c9", decode("\\u00C9"));
+	}
+
+	@Test
+	public void testSurrogatePairs() {
+		// U+1F600, escaped as a surrogate pair and written directly in utf-8
+		assertEquals("\ud83d\ude00", decode("\\ud83d\\ude00"));
+		assertEquals("\ud83d\ude00", decode("\ud83d\ude00"));
+	}
+
+	@Test
+	public void testMultiByteUtf8() {
+		assertEquals("\u00e9\u20ac\u65e5\u672c", decode("\u00e9\u20ac\u65e5\u672c"));
+		assertEquals("\u00e9 \"\u20ac\"", decode("\u00e9 \\\"\u20ac\\\""));
+		assertEquals("plain ascii", decode("plain ascii"));
+		assertEquals("", decode(""));
+	}
+
+	@Test
+	public void testNumericValuesOfSlicedKeys() {
+		// a number under a sliced key must not be read as a slice index
+		SlicedJson document = parse("{\"model\":\"m\",\"texture\":7}");
+		JsonObject json = document.getJson().getAsJsonObject();
+
+		assertEquals("m", document.getString(json.get("model")).get());
+		assertEquals("7", document.getString(json.get("texture")).get());
+
+		document = parse("{\"model\":-1.5e3}");
+		assertEquals("-1.5e3", document.getString(document.getJson().getAsJsonObject().get("model")).get());
+	}
+
+	@Test
+	public void testUnslicedDocument() {
+		SlicedJson document = parse("{\"name\":\"Hat\",\"model\":null,\"count\":3}");
+		JsonObject json = document.getJson().getAsJsonObject();
+
+		assertTrue(json.get("model").isJsonNull());
+		assertEquals("3", SlicedJson.NONE.getString(json.get("count")).get());
+		assertEquals("Hat", document.getString(json.get("name")).get());
+	}
+
+	private static SlicedJson parse(String body) {
+		return SlicedJson.parse(body.getBytes(StandardCharsets.UTF_8), KEYS);
+	}
+
+	/**
+	 * Decode the given json string literal contents through a {@link LazyString}.
+	 */
+	private static String decode(String literalContents) {
+		LazyString string = LazyString.ofRaw(ByteBuffer.wrap(('"' + literalContents + '"').getBytes(StandardCharsets.UTF_8)));
+		assertFalse(string.isDecoded());
+		return string.get();
+	}
+}
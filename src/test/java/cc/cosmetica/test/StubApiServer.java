@@ -0,0 +1,148 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cc.cosmetica.test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * A local HTTP server standing in for the Cosmetica API, responding to each path with a fixed json body, or one
+ * computed from the query, or failing with a given status. Unknown paths respond with an api error.
+ */
+public class StubApiServer implements Closeable {
+	public StubApiServer() throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 256);
+		this.server.setExecutor(Executors.newCachedThreadPool(task -> {
+			Thread thread = new Thread(task, "Stub API Server");
+			thread.setDaemon(true);
+			return thread;
+		}));
+		this.server.createContext("/", this::handle);
+		this.server.start();
+	}
+
+	private final HttpServer server;
+	private final Map<String, Function<String, String>> responses = new ConcurrentHashMap<>();
+	private final Map<String, Integer> statuses = new ConcurrentHashMap<>();
+	private final AtomicInteger requests = new AtomicInteger();
+	private volatile long delay;
+
+	/**
+	 * Set the response to requests to the given path, regardless of query.
+	 * @param path the path, such as "/v2/get/info".
+	 * @param json the json to respond with.
+	 * @return this.
+	 */
+	public StubApiServer respond(String path, String json) {
+		return this.respond(path, query -> json);
+	}
+
+	/**
+	 * Set the response to requests to the given path.
+	 * @param path the path, such as "/v2/get/info".
+	 * @param responder computes the json to respond with from the raw query of the request, which may be null.
+	 * @return this.
+	 */
+	public StubApiServer respond(String path, Function<String, String> responder) {
+		this.statuses.remove(path);
+		this.responses.put(path, responder);
+		return this;
+	}
+
+	/**
+	 * Set the response to requests to the given path to fail with the given status and body, regardless of query.
+	 * @param path the path, such as "/v2/get/info".
+	 * @param status the http status to respond with.
+	 * @param body the body to respond with, which need not be json.
+	 * @return this.
+	 */
+	public StubApiServer fail(String path, int status, String body) {
+		this.responses.put(path, query -> body);
+		this.statuses.put(path, status);
+		return this;
+	}
+
+	/**
+	 * @param delay how long to wait before responding to each request, in milliseconds.
+	 * @return this.
+	 */
+	public StubApiServer delay(long delay) {
+		this.delay = delay;
+		return this;
+	}
+
+	/**
+	 * @return the url of this server, with no trailing slash.
+	 */
+	public String getUrl() {
+		return "http://" + this.server.getAddress().getHostString() + ":" + this.server.getAddress().getPort();
+	}
+
+	/**
+	 * @return the number of requests this server has received.
+	 */
+	public int getRequestCount() {
+		return this.requests.get();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		this.requests.incrementAndGet();
+		String path = exchange.getRequestURI().getPath();
+		Function<String, String> responder = this.responses.get(path);
+		byte[] body = responder == null ? null : responder.apply(exchange.getRequestURI().getRawQuery()).getBytes(StandardCharsets.UTF_8);
+		int status = this.statuses.getOrDefault(path, 200);
+
+		if (this.delay > 0) {
+			try {
+				Thread.sleep(this.delay);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		if (body == null) {
+			body = "{\"error\":\"Not found\"}".getBytes(StandardCharsets.UTF_8);
+			status = 404;
+		}
+
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, body.length);
+
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	@Override
+	public void close() {
+		this.server.stop(0);
+	}
+}
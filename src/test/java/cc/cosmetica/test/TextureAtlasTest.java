@@ -0,0 +1,120 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cc.cosmetica.test;
+
+import cc.cosmetica.api.cosmetic.BoundingBox;
+import cc.cosmetica.api.cosmetic.ModelGeometry;
+import cc.cosmetica.api.texture.DecodedTexture;
+import cc.cosmetica.api.texture.TextureAtlas;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+/**
+ * Tests for packing textures into a {@link TextureAtlas}. These run entirely on the CPU.
+ */
+public class TextureAtlasTest {
+	@Test
+	public void testPackingDoesNotOverlap() {
+		TextureAtlas<Integer> atlas = new TextureAtlas<>(256, 1);
+		List<TextureAtlas.Region> regions = new ArrayList<>();
+
+		for (int i = 0; i < 100; i++) {
+			regions.add(atlas.acquire(i, texture(i, 8 + (i % 5) * 8, 8 + (i % 3) * 8)));
+		}
+
+		for (int i = 0; i < regions.size(); i++) {
+			TextureAtlas.Region a = regions.get(i);
+			assertTrue(a.getX() >= 1 && a.getY() >= 1 && a.getX() + a.getWidth() < 256 && a.getY() + a.getHeight() < 256);
+
+			for (int j = i + 1; j < regions.size(); j++) {
+				TextureAtlas.Region b = regions.get(j);
+
+				if (a.getPage() == b.getPage() && a.getX() < b.getX() + b.getWidth() && b.getX() < a.getX() + a.getWidth()
+						&& a.getY() < b.getY() + b.getHeight() && b.getY() < a.getY() + a.getHeight()) {
+					fail("Regions " + a + " and " + b + " overlap");
+				}
+			}
+		}
+
+		// check pixels were copied into place
+		TextureAtlas.Region region = regions.get(42);
+		int[] page = atlas.getPagePixels(region.getPage());
+		assertEquals(42, page[region.getY() * 256 + region.getX()]);
+		assertEquals(42, page[(region.getY() + region.getHeight() - 1) * 256 + region.getX() + region.getWidth() - 1]);
+	}
+
+	@Test
+	public void testReleaseReusesSpace() {
+		TextureAtlas<String> atlas = new TextureAtlas<>(64, 0);
+		TextureAtlas.Region first = atlas.acquire("a", texture(1, 32, 32));
+		atlas.acquire("b", texture(2, 32, 32));
+		atlas.acquire("c", texture(3, 32, 32));
+		atlas.acquire("d", texture(4, 32, 32));
+		assertEquals(1, atlas.getPageCount());
+
+		// a second reference keeps the texture in the atlas
+		atlas.acquire("a", texture(1, 32, 32));
+		assertFalse(atlas.release("a"));
+		assertTrue(atlas.release("a"));
+		assertFalse(atlas.getRegion("a").isPresent());
+		assertEquals(0, atlas.getPagePixels(0)[first.getY() * 64 + first.getX()]);
+
+		TextureAtlas.Region replacement = atlas.acquire("e", texture(5, 32, 32));
+		assertEquals(1, atlas.getPageCount());
+		assertEquals(first.getPage(), replacement.getPage());
+		assertEquals(first.getX(), replacement.getX());
+		assertEquals(first.getY(), replacement.getY());
+
+		atlas.acquire("f", texture(6, 32, 32));
+		assertEquals(2, atlas.getPageCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooLarge() {
+		new TextureAtlas<String>(64, 1).acquire("big", texture(0, 64, 64));
+	}
+
+	@Test
+	public void testRemapUVs() {
+		TextureAtlas<String> atlas = new TextureAtlas<>(128, 0);
+		atlas.acquire("filler", texture(0, 64, 32));
+		TextureAtlas.Region region = atlas.acquire("model", texture(1, 32, 32));
+
+		String model = "{\"texture_size\":[32,32],\"elements\":[{\"from\":[0,0,0],\"to\":[1,1,1],\"faces\":{\"north\":{\"uv\":[0,0,16,32]}}}]}";
+		ModelGeometry geometry = ModelGeometry.parse(model, new BoundingBox(0, 0, 0, 1, 1, 1), false);
+		float[] uvs = atlas.remapUVs(region, geometry);
+
+		int north = 4 * ModelGeometry.NORTH;
+		float[] expected = {region.getU0(), region.getV0(), (region.getX() + 16) / 128.0f, region.getV1()};
+		assertEquals(Arrays.toString(expected), Arrays.toString(Arrays.copyOfRange(uvs, north, north + 4)));
+	}
+
+	private static DecodedTexture texture(int colour, int width, int height) {
+		int[] pixels = new int[width * height];
+		Arrays.fill(pixels, colour);
+		return new DecodedTexture("test" + colour, width, height, pixels);
+	}
+}
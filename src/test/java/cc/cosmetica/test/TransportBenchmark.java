@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cc.cosmetica.test;
+
+import cc.cosmetica.util.Response;
+import cc.cosmetica.util.Transport;
+import cc.cosmetica.util.Transports;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compares the request throughput of each {@link Transport} against a {@link StubApiServer}.<br>
+ * The HTTP/2 transport is only present in the multi-release section of the jar, so to include it, run this with the
+ * packaged jar on the classpath before the compiled classes, on Java 11 or above. Note the stub server only speaks
+ * HTTP/1.1, so this measures connection reuse rather than multiplexing.
+ */
+public class TransportBenchmark {
+	private static final String USER_INFO = "{\"skin\":\"\",\"slim\":false,\"lore\":\"Benchmarking\",\"platform\":\"java\",\"role\":\"default\",\"upside-down\":false,\"prefix\":\"\",\"suffix\":\"\",\"client\":\"cosmetica\",\"online\":true,\"hats\":[],\"shoulder-buddies\":{},\"back-bling\":null,\"cape\":null}";
+
+	public static void main(String[] args) throws IOException {
+		final int requests = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		final int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+
+		try (StubApiServer server = new StubApiServer().respond("/v2/get/info", USER_INFO)) {
+			String url = server.getUrl() + "/v2/get/info?uuid=8ea1da2f-0efa-4044-9e6f-4a3bf4e8a9a5";
+			List<Transport> transports = new ArrayList<>();
+			transports.add(Transports.apache());
+
+			Optional<Transport> http2 = Transports.http2();
+
+			if (http2.isPresent()) {
+				transports.add(http2.get());
+			}
+			else {
+				System.out.println("HTTP/2 transport unavailable: run on Java 11+ with the multi-release jar on the classpath.");
+			}
+
+			for (Transport transport : transports) {
+				// warm up
+				run(transport, url, Math.min(500, requests), concurrency);
+				System.out.println(transport.getName() + ": " + run(transport, url, requests, concurrency) + " requests/s");
+			}
+		}
+	}
+
+	private static long run(Transport transport, String url, int requests, int concurrency) {
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+		List<CompletableFuture<Response>> results = new ArrayList<>(requests);
+		long time = System.nanoTime();
+
+		for (int i = 0; i < requests; i++) {
+			results.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					return transport.get(url, 20 * 1000);
+				}
+				catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, executor));
+		}
+
+		results.forEach(CompletableFuture::join);
+		long elapsed = System.nanoTime() - time;
+		executor.shutdown();
+
+		return (long) (requests / (elapsed / 1e9));
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.test;
+
+import cc.cosmetica.util.SafeURL;
+import cc.cosmetica.util.UrlTemplate;
+import cc.cosmetica.util.Yootil;
+
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Compares the time and memory allocated to build a user info url by string concatenation, as endpoints used to, and
+ * with a {@link UrlTemplate}.<br>
+ * Allocation is measured with the per-thread allocation counter of HotSpot's {@link com.sun.management.ThreadMXBean},
+ * so this must run on a HotSpot JVM.
+ */
+public class UrlTemplateBenchmark {
+	private static final String HOST = "https://api.cosmetica.cc";
+	private static final String TOKEN = "abcdef0123456789abcdef0123456789";
+	private static final UrlTemplate USER_INFO = UrlTemplate.of("/v2/get/info?username={}&uuid={}");
+	private static final UUID UUID = java.util.UUID.fromString("8ea1da2f-0efa-4044-9e6f-4a3bf4e8a9a5");
+
+	public static void main(String[] args) {
+		final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+		Supplier<SafeURL> concatenation = () -> {
+			String target = "/v2/get/info?username=" + Yootil.urlEncode("Valoeghese") + "&uuid=" + Yootil.urlEncode(UUID) + "&excludemodels";
+			return SafeURL.of(HOST + target + (target.indexOf('?') == -1 ? "?" : "&") + "timestamp=" + System.currentTimeMillis(), TOKEN);
+		};
+
+		Supplier<SafeURL> template = () -> USER_INFO.begin()
+				.param(Yootil.urlEncode("Valoeghese"))
+				.param(Yootil.urlEncode(UUID))
+				.flag("excludemodels", true)
+				.build(HOST, System.currentTimeMillis(), TOKEN);
+
+		// warm up
+		run(concatenation, iterations);
+		run(template, iterations);
+
+		System.out.println("Concatenation: " + run(concatenation, iterations));
+		System.out.println("Template: " + run(template, iterations));
+	}
+
+	private static String run(Supplier<SafeURL> builder, int iterations) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		int check = 0;
+
+		long allocated = threads.getThreadAllocatedBytes(thread);
+		long time = System.nanoTime();
+
+		for (int i = 0; i < iterations; i++) {
+			check += builder.get().url().length();
+		}
+
+		long elapsed = System.nanoTime() - time;
+		allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+		return (elapsed / iterations) + " ns/op, " + (allocated / iterations) + " B/op (" + check + ")";
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2022, 2023 EyezahMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cc.cosmetica.test;
+
+import cc.cosmetica.util.SafeURL;
+import cc.cosmetica.util.UrlTemplate;
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.fail;
+
+/**
+ * Tests for building urls from a {@link UrlTemplate}.
+ */
+public class UrlTemplateTest {
+	private static final String HOST = "https://api.cosmetica.cc";
+
+	@Test
+	public void testWithoutQuery() {
+		SafeURL url = UrlTemplate.of("/get/{}/{}").begin().param("hat").param(12).build(HOST, 5, "secret");
+
+		assertEquals(HOST + "/get/hat/12?timestamp=5&token=secret", url.url());
+		assertEquals(HOST + "/get/hat/12?timestamp=5", url.safeUrl());
+	}
+
+	@Test
+	public void testWithQuery() {
+		SafeURL url = UrlTemplate.of("/get/cosmetic?type={}&id={}").begin().param("hat").param("abc").build(HOST, 5, "secret");
+
+		assertEquals(HOST + "/get/cosmetic?type=hat&id=abc&timestamp=5&token=secret", url.url());
+		assertEquals(HOST + "/get/cosmetic?type=hat&id=abc&timestamp=5", url.safeUrl());
+	}
+
+	@Test
+	public void testFlagAndQuerySeparators() {
+		UrlTemplate noQuery = UrlTemplate.of("/v2/get/info");
+		UrlTemplate query = UrlTemplate.of("/v2/get/info?uuid={}");
+
+		// the first added parameter starts the query if the template has none
+		assertEquals(HOST + "/v2/get/info?excludemodels&forceshow&timestamp=5",
+				noQuery.begin().flag("excludemodels", true).flag("forceshow", true).build(HOST, 5, null).url());
+		assertEquals(HOST + "/v2/get/info?page=2&excludemodels&timestamp=5",
+				noQuery.begin().query("page", 2).flag("excludemodels", true).build(HOST, 5, null).url());
+		assertEquals(HOST + "/v2/get/info?uuid=u&page=2&forceshow&timestamp=5",
+				query.begin().param("u").query("page", 2).flag("forceshow", true).build(HOST, 5, null).url());
+
+		// unset flags are left out
+		assertEquals(HOST + "/v2/get/info?timestamp=5", noQuery.begin().flag("excludemodels", false).build(HOST, 5, null).url());
+		assertEquals(HOST + "/v2/get/info?uuid=u&timestamp=5", query.begin().param("u").flag("forceshow", false).build(HOST, 5, null).url());
+	}
+
+	@Test
+	public void testTokens() {
+		UrlTemplate template = UrlTemplate.of("/v2/get/info?uuid={}");
+
+		// no token leaves out the parameter
+		SafeURL none = template.begin().param("u").build(HOST, 5, null);
+		assertEquals(HOST + "/v2/get/info?uuid=u&timestamp=5", none.url());
+		assertEquals(none.url(), none.safeUrl());
+
+		// an empty token is still sent, but not shown
+		SafeURL empty = template.begin().param("u").build(HOST, 5, "");
+		assertEquals(HOST + "/v2/get/info?uuid=u&timestamp=5&token=", empty.url());
+		assertEquals(HOST + "/v2/get/info?uuid=u&timestamp=5", empty.safeUrl());
+	}
+
+	@Test
+	public void testBuilderIsReset() {
+		UrlTemplate template = UrlTemplate.of("/get/{}");
+
+		template.begin().param("a").flag("excludemodels", true).build(HOST, 1, "x");
+		assertEquals(HOST + "/get/b?timestamp=2", template.begin().param("b").build(HOST, 2, null).url());
+		assertEquals(2, UrlTemplate.of("/a/{}?b={}").getParameterCount());
+		assertEquals(0, UrlTemplate.of("/a").getParameterCount());
+	}
+
+	@Test
+	public void testTooManyParameters() {
+		UrlTemplate.Builder builder = UrlTemplate.of("/get/{}").begin().param("a");
+
+		try {
+			builder.param("b");
+			fail("Expected a parameter past the end of the template to be rejected");
+		}
+		catch (IllegalStateException expected) {
+		}
+
+		try {
+			UrlTemplate.of("/panoramas").begin().param(1);
+			fail("Expected a parameter for a template without any to be rejected");
+		}
+		catch (IllegalStateException expected) {
+		}
+	}
+
+	@Test
+	public void testMissingParameters() {
+		try {
+			UrlTemplate.of("/get/cosmetic?type={}&id={}").begin().param("hat").build(HOST, 5, "secret");
+			fail("Expected a url missing a parameter to be rejected");
+		}
+		catch (IllegalStateException expected) {
+		}
+
+		try {
+			UrlTemplate.of("/get/{}").begin().build(HOST, 5, null);
+			fail("Expected a url missing its only parameter to be rejected");
+		}
+		catch (IllegalStateException expected) {
+		}
+	}
+}